@@ -0,0 +1,102 @@
+package benchmark;
+
+import Controller.TaskManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Time to load and save whole task files
+ * Loads verify the CRC32C checksums of the file; verifyChecksums measures that verification alone, so its share of
+ * the load time can be read off directly
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class PersistenceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"HEAP", "MAPPED", "OFF_HEAP"})
+    public TaskManager.Storage storage;
+
+    private Path directory;
+    private String filePath;
+    private TaskManager taskManager;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        directory = Files.createTempDirectory("todo-bench");
+        filePath = directory.resolve("todolist.txt").toString();
+
+        taskManager = new TaskManager(false, TaskManager.Storage.HEAP, filePath);
+        Tasks.fill(taskManager, size);
+        if (!taskManager.saveTasks()) {
+            throw new IOException("Could not write " + filePath);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public TaskManager loadTasks() {
+        TaskManager loaded = new TaskManager(false, storage, filePath);
+        loaded.loadTasks();
+        return loaded;
+    }
+
+    @Benchmark
+    public boolean saveTasks() {
+        return taskManager.saveTasks();
+    }
+
+    @Benchmark
+    public long verifyChecksums() throws IOException {
+        //the same pass a load makes: one checksum per 64 KiB block
+        ByteBuffer block = ByteBuffer.allocateDirect(1 << 16);
+        CRC32C crc = new CRC32C();
+        long combined = 0;
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            while (channel.read(block) > 0) {
+                crc.update(block.flip());
+                combined += crc.getValue();
+                crc.reset();
+                block.clear();
+            }
+        }
+        return combined;
+    }
+}
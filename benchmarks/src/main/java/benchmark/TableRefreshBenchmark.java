@@ -0,0 +1,85 @@
+package benchmark;
+
+import Controller.TaskEvent;
+import Controller.TaskManager;
+import Controller.TaskView;
+import View.TaskTableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.JTable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of redrawing the whole table with fireTableDataChanged, as after loading, against redrawing the row of one
+ * completed task from its change event, each followed by reading one screen of cells the way the table paints them,
+ * and of a click on a column header that reverses the sort order
+ * Runs headless: the table is never shown, so no window is needed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Djava.awt.headless=true")
+public class TableRefreshBenchmark {
+    private static final int VISIBLE_ROWS = 40;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private TaskManager taskManager;
+    private TaskTableModel tableModel;
+    private JTable table;
+    private boolean ascending;
+
+    @Setup
+    public void createTable() {
+        taskManager = new TaskManager();
+        Tasks.fill(taskManager, size);
+
+        tableModel = new TaskTableModel();
+        table = new JTable(tableModel);
+        tableModel.setTaskManager(taskManager);
+    }
+
+    @Benchmark
+    public int updateTable() {
+        tableModel.fireTableDataChanged();
+        return readScreen();
+    }
+
+    @Benchmark
+    public int redrawChangedRow() {
+        long id = taskManager.getTaskId(VISIBLE_ROWS / 2);
+        tableModel.tasksChanged(List.of(new TaskEvent(TaskEvent.Kind.COMPLETED, id, taskManager.getTaskById(id))));
+        return readScreen();
+    }
+
+    @Benchmark
+    public int sortByDueDate() {
+        ascending = !ascending;
+        tableModel.setView(TaskView.sortedBy(TaskView.SortKey.DUE_DATE, ascending)); //the first call orders the tasks
+        return readScreen();
+    }
+
+    private int readScreen() {
+        int hash = table.getRowCount();
+        for (int row = 0; row < VISIBLE_ROWS; row++) {
+            for (int column = 0; column < table.getColumnCount(); column++) {
+                hash = 31 * hash + table.getValueAt(row, column).hashCode();
+            }
+        }
+        return hash;
+    }
+}
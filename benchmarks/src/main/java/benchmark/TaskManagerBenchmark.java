@@ -0,0 +1,106 @@
+package benchmark;
+
+import Controller.TaskManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of single task changes on a list that already holds many tasks
+ * Deleting and completing run in batches of fresh tasks that are added before every batch, outside the measured time
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskManagerBenchmark {
+    private static final int BATCH = 10_000;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private TaskManager taskManager;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void createList() {
+        taskManager = new TaskManager();
+        Tasks.fill(taskManager, size);
+        next = size;
+    }
+
+    @Benchmark
+    public boolean addTask() {
+        return taskManager.addTask(Tasks.task(next++));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int deleteTask(Batch batch) {
+        int deleted = 0;
+        for (int i = 0; i < BATCH; i++) {
+            if (taskManager.deleteTask(size)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH - 1)
+    public int deleteTasksFromTheBottomUp(Batch batch) {
+        int deleted = 0;
+        for (int i = BATCH - 2; i >= 0; i--) { //the last fresh task stays, so every deletion leaves a row behind
+            if (taskManager.deleteTaskById(batch.ids[i])) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int markTaskAsCompleted(Batch batch) {
+        int marked = 0;
+        for (int i = 0; i < BATCH; i++) {
+            if (taskManager.markTaskAsCompleted(size + i)) {
+                marked++;
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * Fresh tasks after the first size rows, replaced before every batch outside the measured time
+     */
+    @State(Scope.Thread)
+    public static class Batch {
+        private final long[] ids = new long[BATCH]; //IDs of the fresh tasks in list order
+
+        @Setup(Level.Invocation)
+        public void refill(TaskManagerBenchmark benchmark) {
+            TaskManager taskManager = benchmark.taskManager;
+            while (taskManager.getTaskCount() > benchmark.size) {
+                taskManager.deleteTask(taskManager.getTaskCount() - 1);
+            }
+            for (int i = 0; i < BATCH; i++) {
+                taskManager.addTask(Tasks.task(benchmark.next++));
+                ids[i] = taskManager.getTaskId(benchmark.size + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import Controller.TaskManager;
+import Model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of one task manager shared by several threads
+ * Each operation is a read by ID or by row, or with the given share a write; main runs it at 1, 4, 16 and 64 threads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class TaskManagerContention {
+    private static final int TASK_COUNT = 100_000;
+
+    @Param({"0", "10", "100"})
+    public int writePercent;
+
+    private TaskManager taskManager;
+    private long firstId;
+
+    @Setup
+    public void createList() {
+        taskManager = new TaskManager();
+        Tasks.fill(taskManager, TASK_COUNT);
+        firstId = taskManager.getTaskId(0);
+    }
+
+    @Benchmark
+    public Object mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = firstId + random.nextInt(TASK_COUNT);
+        int choice = random.nextInt(100);
+
+        if (choice < writePercent / 2) {
+            return taskManager.markTaskAsCompletedById(id);
+        }
+        if (choice < writePercent) {
+            Task task = taskManager.getTaskById(id);
+            return task != null && taskManager.updateTaskById(id, task); //rewrites the task with the same contents
+        }
+        return choice % 2 == 0 ? taskManager.getTaskById(id) : taskManager.getTask(random.nextInt(TASK_COUNT));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 4, 16, 64}) {
+            Options options = new OptionsBuilder()
+                    .include(TaskManagerContention.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
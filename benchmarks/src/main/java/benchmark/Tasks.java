@@ -0,0 +1,41 @@
+package benchmark;
+
+import Controller.TaskManager;
+import Model.Task;
+
+/**
+ * Test data shared by the benchmarks
+ */
+final class Tasks {
+    private static final String[] DUE_DATES = new String[12 * 28]; //formatted once, so creating a task costs little next to the measured work
+
+    static {
+        for (int i = 0; i < DUE_DATES.length; i++) {
+            DUE_DATES[i] = String.format("2025-%02d-%02d", i % 12 + 1, i % 28 + 1);
+        }
+    }
+
+    private Tasks() {
+    }
+
+    /**
+     * Creates a task with varied contents
+     * @param i number of the task
+     * @return the task, without an ID
+     */
+    static Task task(int i) {
+        return new Task("Task " + i, "Description of task " + i, DUE_DATES[i % DUE_DATES.length],
+                i % 2 == 0 ? "WORK" : "ERRANDS", i % 3 == 0 ? "High" : "Low", i % 5 == 0);
+    }
+
+    /**
+     * Adds tasks to a task manager
+     * @param taskManager task manager to fill
+     * @param count number of tasks to add
+     */
+    static void fill(TaskManager taskManager, int count) {
+        for (int i = 0; i < count; i++) {
+            taskManager.addTask(task(i));
+        }
+    }
+}
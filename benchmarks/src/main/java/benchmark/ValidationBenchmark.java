@@ -0,0 +1,95 @@
+package benchmark;
+
+import Controller.TaskValidator;
+import Model.TaskCategory;
+import Model.TaskPriority;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Cost of the date and priority checks run for every new task, and of checking a large import batch
+ * The regex benchmarks show the checks as they were before: a pattern match on the date format that accepted
+ * impossible dates such as 2025-99-99
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private static final Pattern DATE_PATTERN = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final int BATCH_SIZE = 100_000;
+
+    @Param({"2025-10-10", "20251010", "2025-99-99"})
+    public String dueDate;
+
+    @Param({"Medium", "priority"})
+    public String priority;
+
+    private List<TaskValidator.Input> batch;
+
+    @Setup
+    public void setUp() {
+        batch = new ArrayList<>(BATCH_SIZE);
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        TaskPriority[] priorities = TaskPriority.values();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String date = i % 100 == 0 ? dueDate : start.plusDays(i % 730).toString();
+            batch.add(new TaskValidator.Input("Task " + i, null, date, priorities[i % priorities.length].getLabel(),
+                    TaskCategory.WORK, false));
+        }
+    }
+
+    @Benchmark
+    public boolean isValidDate() {
+        return TaskValidator.isValidDate(dueDate);
+    }
+
+    @Benchmark
+    public boolean regexIsValidDate() {
+        return DATE_PATTERN.matcher(dueDate).matches();
+    }
+
+    @Benchmark
+    public boolean isValidPriority() {
+        return TaskValidator.isValidPriority(priority);
+    }
+
+    @Benchmark
+    public String validateTask() {
+        return TaskValidator.validateTask("Title", dueDate, priority, TaskCategory.WORK);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public TaskValidator.Outcome[] validateBatchSequential() {
+        TaskValidator.Outcome[] outcomes = new TaskValidator.Outcome[batch.size()];
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = TaskValidator.validate(batch.get(i));
+        }
+        return outcomes;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public TaskValidator.Outcome[] validateBatchParallel() {
+        return TaskValidator.validateAll(batch);
+    }
+}
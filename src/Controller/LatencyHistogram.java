@@ -0,0 +1,90 @@
+package Controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds with a fixed relative precision, in the style of HdrHistogram
+ * Values below 128 have a bucket each; above that every power of two is split into 64 buckets, so a value is
+ * reported within 1.6% of what was recorded whatever its size. Recording takes a few atomic increments and never
+ * allocates or locks, so it can be called on every operation from any number of threads
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6; //64 buckets per power of two
+    private static final int BUCKET_COUNT = bucketOf(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder(); //sum of all values
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration
+     * @param nanos the duration, negative values count as 0
+     */
+    void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        total.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Summarizes the values recorded so far; values recorded meanwhile may be partly included
+     * @return the summary
+     */
+    LatencySnapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long recorded = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            recorded += copy[i];
+        }
+        long highest = max.get();
+        return new LatencySnapshot(recorded, recorded > 0 ? total.sum() / recorded : 0,
+                percentile(copy, recorded, 0.50, highest), percentile(copy, recorded, 0.90, highest),
+                percentile(copy, recorded, 0.99, highest), percentile(copy, recorded, 0.999, highest), highest);
+    }
+
+    /**
+     * @return the highest value of the bucket holding the given fraction of the values, at most the largest value
+     */
+    private static long percentile(long[] counts, long recorded, double fraction, long highest) {
+        if (recorded == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(fraction * recorded));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), highest);
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * @return index of the bucket holding a non-negative value
+     */
+    private static int bucketOf(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * @return the highest value stored in a bucket
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < 2 << SUB_BUCKET_BITS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = bucket - ((long) shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,74 @@
+package Controller;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Summary of the durations recorded for one operation, all in nanoseconds
+ * JMX clients see it as a composite value with one item per getter
+ */
+public final class LatencySnapshot {
+    private final long count;
+    private final long meanNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    /**
+     * Creates a summary
+     * @param count number of recorded durations
+     * @param meanNanos average duration
+     * @param p50Nanos median duration
+     * @param p90Nanos duration not exceeded by 90% of the operations
+     * @param p99Nanos duration not exceeded by 99% of the operations
+     * @param p999Nanos duration not exceeded by 99.9% of the operations
+     * @param maxNanos longest duration
+     */
+    @ConstructorProperties({"count", "meanNanos", "p50Nanos", "p90Nanos", "p99Nanos", "p999Nanos", "maxNanos"})
+    public LatencySnapshot(long count, long meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+        this.count = count;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP90Nanos() {
+        return p90Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * @return the summary as a JSON object
+     */
+    public String toJson() {
+        return "{\"count\":" + count + ",\"meanNanos\":" + meanNanos + ",\"p50Nanos\":" + p50Nanos + ",\"p90Nanos\":" + p90Nanos
+                + ",\"p99Nanos\":" + p99Nanos + ",\"p999Nanos\":" + p999Nanos + ",\"maxNanos\":" + maxNanos + "}";
+    }
+}
@@ -1,9 +1,49 @@
 package Controller;
 
+import java.io.IOException;
+
 public class Main {
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args.length > 1 ? Integer.parseInt(args[1]) : Integer.getInteger("todo.serverPort", 8080));
+            return;
+        }
         new ToDoAppController();
     }
 
+    /**
+     * Runs without a window, serving the tasks over HTTP until the process is stopped
+     * Uses the same storage, journal and save settings as the application
+     * @param port port to listen on
+     */
+    private static void runServer(int port) {
+        TaskManager taskManager = new TaskManager(Boolean.getBoolean("todo.journal"),
+                ToDoAppController.storage(System.getProperty("todo.storage")));
+        if (!taskManager.loadTasks()) {
+            System.err.println("Failed to load tasks, starting with an empty list");
+        }
+
+        //there is no event dispatch thread, so the state is captured on the persistence thread itself
+        SaveScheduler saveScheduler = new SaveScheduler(taskManager::prepareSave, Runnable::run, System.err::println,
+                Long.getLong("todo.saveWindowMillis", 250));
+        taskManager.getEventBus().subscribe(events -> saveScheduler.requestSave(), TaskEventBus.DIRECT);
+        taskManager.getMetrics().registerMBean();
+
+        TaskServer server;
+        try {
+            server = new TaskServer(taskManager, port);
+        } catch (IOException e) {
+            System.err.println("Failed to start the server on port " + port + ": " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            saveScheduler.shutdown(); //write pending changes before the process exits
+        }, "task-server-shutdown"));
+        server.start();
+        System.out.println("Serving tasks on http://localhost:" + server.getPort() + "/tasks");
+    }
+
 }
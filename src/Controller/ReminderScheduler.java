@@ -0,0 +1,263 @@
+package Controller;
+
+import Model.DueDate;
+import Model.Task;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Raises reminders for tasks that are coming due or overdue
+ * Every pending task with a due date has one entry in a queue ordered by the time its next reminder is due: first a
+ * reminder the given number of days before the due date, then one when the due date has passed. The scheduler
+ * follows the change events of the task manager, so adding, changing, completing or deleting a task takes logarithmic
+ * time and the list is only read in full after a reset. A single background thread sleeps until the first entry of
+ * the queue is due.
+ * A task is reminded of being overdue once per due date: changing it in any other way, completing it and undoing that,
+ * does not raise the reminder again
+ */
+public class ReminderScheduler {
+    private static final long MAX_WAIT_MILLIS = 60_000; //the thread wakes up at least this often to notice changes of the system clock
+
+    private final Consumer<List<Reminder>> listener; //receives the reminders that are due, on the reminder thread
+    private final Clock clock; //current time and time zone that due dates are in
+    private final int leadDays; //how many days before the due date the first reminder is raised
+    private final NavigableSet<Entry> queue = new TreeSet<>(Comparator.comparingLong(Entry::fireAt).thenComparingLong(Entry::taskId));
+    private final Map<Long, Entry> entries = new HashMap<>(); //entry of every task in the queue, by task ID
+    private final Map<Long, Integer> overdueDays = new HashMap<>(); //due day of the overdue reminder raised for a task, by task ID
+    private Thread thread; //null until started
+    private boolean running;
+
+    /**
+     * Kinds of reminders
+     */
+    public enum Kind {
+        DUE_SOON, //the due date is within the lead time
+        OVERDUE //the due date has passed and the task is not completed
+    }
+
+    /**
+     * A reminder about a task
+     * @param taskId ID of the task
+     * @param dueDay due date of the task as a day number, see DueDate
+     * @param kind why the reminder was raised
+     */
+    public record Reminder(long taskId, int dueDay, Kind kind) {
+    }
+
+    /**
+     * The next reminder of a task
+     * @param fireAt time the reminder is due, in milliseconds since the epoch
+     */
+    private record Entry(long fireAt, long taskId, int dueDay, Kind kind) {
+    }
+
+    /**
+     * Creates a scheduler; reminders are only raised automatically once it is started
+     * @param listener receives the reminders that are due, called on the reminder thread
+     * @param clock current time and time zone that due dates are in
+     * @param leadDays how many days before the due date the first reminder is raised
+     */
+    public ReminderScheduler(Consumer<List<Reminder>> listener, Clock clock, int leadDays) {
+        this.listener = listener;
+        this.clock = clock;
+        this.leadDays = Math.max(leadDays, 0);
+    }
+
+    /**
+     * Starts the reminder thread
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "task-reminders");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the reminder thread
+     */
+    public synchronized void shutdown() {
+        running = false;
+        notifyAll();
+    }
+
+    /**
+     * Keeps the reminders up to date with the tasks of a task manager
+     * The reminders of the current tasks are scheduled now; after that every change event of the manager is applied on
+     * the thread making the change, so the reminders never lag behind the tasks
+     * @param taskManager the task manager
+     */
+    public void follow(TaskManager taskManager) {
+        taskManager.getEventBus().subscribe(events -> update(events, taskManager), TaskEventBus.DIRECT);
+        scheduleAll(taskManager);
+    }
+
+    /**
+     * Applies the change events of a task manager
+     * @param events the events, in the order of the changes
+     * @param taskManager the manager that published them
+     */
+    private void update(List<TaskEvent> events, TaskManager taskManager) {
+        for (TaskEvent event : events) {
+            switch (event.kind()) {
+                case ADDED, UPDATED, COMPLETED -> schedule(event.task());
+                case DELETED -> cancel(event.taskId());
+                case RESET -> scheduleAll(taskManager);
+            }
+        }
+    }
+
+    /**
+     * Replaces all reminders with those of the tasks of a task manager
+     * The scheduler is not locked while the tasks are read, so changes made meanwhile can still update it
+     */
+    private void scheduleAll(TaskManager taskManager) {
+        clear();
+        taskManager.forEachTask(this::schedule);
+    }
+
+    /**
+     * Schedules the reminders of a task, replacing those scheduled before
+     * Completed tasks and tasks without a due date get no reminders. A task whose due date has not changed keeps its
+     * schedule, so editing its title does not raise a reminder again
+     * @param task the task
+     */
+    public synchronized void schedule(Task task) {
+        long id = task.getId();
+        int dueDay = task.getDueDay();
+        Integer overdueDay = overdueDays.get(id);
+        if (overdueDay != null && overdueDay != dueDay) {
+            overdueDays.remove(id); //a new due date is reminded of again
+        }
+        if (task.isCompleted() || dueDay == DueDate.NONE) {
+            unqueue(id);
+            return;
+        }
+
+        Entry current = entries.get(id);
+        if (current != null && current.dueDay() == dueDay) {
+            return;
+        }
+        if (current == null && overdueDays.containsKey(id)) {
+            return; //already reminded that this due date has passed
+        }
+        if (current != null) {
+            queue.remove(current);
+        }
+
+        long now = clock.millis();
+        long overdueAt = startOfDay(dueDay + 1L);
+        Entry entry = now < overdueAt
+                ? new Entry(Math.max(startOfDay((long) dueDay - leadDays), now), id, dueDay, Kind.DUE_SOON)
+                : new Entry(now, id, dueDay, Kind.OVERDUE);
+        add(entry);
+    }
+
+    /**
+     * Cancels the reminders of a task and forgets the reminders raised for it, e.g. when it is deleted
+     * @param taskId ID of the task
+     */
+    public synchronized void cancel(long taskId) {
+        unqueue(taskId);
+        overdueDays.remove(taskId);
+    }
+
+    /**
+     * Cancels the reminders of all tasks
+     */
+    public synchronized void clear() {
+        entries.clear();
+        queue.clear();
+        overdueDays.clear();
+    }
+
+    /**
+     * @return number of tasks with a pending reminder
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Takes the reminders that are due from the queue; a task that was reminded of its due date is scheduled again
+     * for when it becomes overdue
+     * @return the reminders that are due, in the order they became due
+     */
+    public synchronized List<Reminder> fireDue() {
+        List<Reminder> due = new ArrayList<>();
+        long now = clock.millis();
+        while (!queue.isEmpty() && queue.first().fireAt() <= now) {
+            Entry entry = queue.pollFirst();
+            entries.remove(entry.taskId());
+            due.add(new Reminder(entry.taskId(), entry.dueDay(), entry.kind()));
+            if (entry.kind() == Kind.DUE_SOON) {
+                add(new Entry(Math.max(startOfDay(entry.dueDay() + 1L), now), entry.taskId(), entry.dueDay(), Kind.OVERDUE));
+            } else {
+                overdueDays.put(entry.taskId(), entry.dueDay());
+            }
+        }
+        return due;
+    }
+
+    private void unqueue(long taskId) {
+        Entry entry = entries.remove(taskId);
+        if (entry != null) {
+            queue.remove(entry);
+        }
+    }
+
+    private void add(Entry entry) {
+        entries.put(entry.taskId(), entry);
+        queue.add(entry);
+        if (queue.first() == entry) {
+            notifyAll(); //the thread is sleeping until a later time
+        }
+    }
+
+    private long startOfDay(long day) {
+        return LocalDate.ofEpochDay(day).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Sleeps until the first entry of the queue is due and passes the due reminders to the listener
+     */
+    private void run() {
+        while (true) {
+            List<Reminder> due;
+            synchronized (this) {
+                try {
+                    while (running && (queue.isEmpty() || queue.first().fireAt() > clock.millis())) {
+                        long delay = queue.isEmpty() ? MAX_WAIT_MILLIS : queue.first().fireAt() - clock.millis();
+                        wait(Math.max(1, Math.min(delay, MAX_WAIT_MILLIS)));
+                    }
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+                if (!running) {
+                    thread = null;
+                    return;
+                }
+                due = fireDue();
+            }
+
+            try {
+                listener.accept(due); //outside the lock, so the listener may read the task manager
+            } catch (RuntimeException e) {
+                System.err.println("Failed to deliver reminders: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package Controller;
+
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Saves tasks on a background thread, coalescing the changes made within a time window into a single write
+ * The state to save is captured on the thread that owns the task manager (the Swing event dispatch thread
+ * in the application) and written on a dedicated persistence thread, so the owner thread never waits for the disk
+ */
+class SaveScheduler {
+    private final Supplier<BooleanSupplier> saveCapture; //captures the state to save, runs on the owner thread
+    private final Executor ownerThread; //runs work on the thread that owns the task manager
+    private final Consumer<String> errorHandler; //receives the message of a failed save
+    private final long windowMillis; //how long changes are collected before they are written
+    private final ScheduledExecutorService writer; //single persistence thread
+    private final boolean ownsWriter; //false if the persistence thread is shared with other schedulers
+
+    private final Object captureLock = new Object(); //orders captures; never held by requestSave
+    private ScheduledFuture<?> pendingWindow; //window that is collecting changes, null if there are none, guarded by this
+    private volatile boolean lastSaveSucceeded = true; //result of the most recent write
+
+    /**
+     * Creates a save scheduler
+     * @param saveCapture captures the state to save and returns the write to perform
+     * @param ownerThread executor that runs work on the thread that owns the task manager
+     * @param errorHandler receives the message of a failed save
+     * @param windowMillis how long changes are collected before they are written
+     */
+    SaveScheduler(Supplier<BooleanSupplier> saveCapture, Executor ownerThread, Consumer<String> errorHandler, long windowMillis) {
+        this(saveCapture, ownerThread, errorHandler, windowMillis, newWriter(), true);
+    }
+
+    /**
+     * Creates a save scheduler that writes on a persistence thread shared with other schedulers
+     * Shutting the scheduler down flushes it but leaves the shared thread running
+     * @param saveCapture captures the state to save and returns the write to perform
+     * @param ownerThread executor that runs work on the thread that owns the task manager
+     * @param errorHandler receives the message of a failed save
+     * @param windowMillis how long changes are collected before they are written
+     * @param writer the shared persistence thread, see newWriter()
+     */
+    SaveScheduler(Supplier<BooleanSupplier> saveCapture, Executor ownerThread, Consumer<String> errorHandler, long windowMillis,
+                  ScheduledExecutorService writer) {
+        this(saveCapture, ownerThread, errorHandler, windowMillis, writer, false);
+    }
+
+    private SaveScheduler(Supplier<BooleanSupplier> saveCapture, Executor ownerThread, Consumer<String> errorHandler, long windowMillis,
+                          ScheduledExecutorService writer, boolean ownsWriter) {
+        this.saveCapture = saveCapture;
+        this.ownerThread = ownerThread;
+        this.errorHandler = errorHandler;
+        this.windowMillis = windowMillis;
+        this.writer = writer;
+        this.ownsWriter = ownsWriter;
+    }
+
+    /**
+     * Creates a persistence thread
+     * @return executor running on a single daemon thread
+     */
+    static ScheduledExecutorService newWriter() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reports that the tasks changed; the change is written when the current window closes
+     * May be called on any thread, including one that holds the task manager's lock
+     */
+    synchronized void requestSave() {
+        if (pendingWindow == null) {
+            pendingWindow = writer.schedule(() -> ownerThread.execute(this::closeWindow), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes any pending changes and waits until every write has reached the disk
+     * Must be called on the owner thread, e.g. when the application is closing
+     * @return true if all writes succeeded
+     */
+    boolean flush() {
+        synchronized (captureLock) {
+            ScheduledFuture<?> window;
+            synchronized (this) {
+                window = pendingWindow;
+                pendingWindow = null;
+            }
+            if (window != null) {
+                window.cancel(false);
+                submit(saveCapture.get());
+            }
+        }
+
+        try {
+            return writer.submit(() -> lastSaveSucceeded).get(); //runs after every write submitted before it
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Flushes pending changes and stops the persistence thread, unless it is shared
+     */
+    void shutdown() {
+        flush();
+        if (ownsWriter) {
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * Captures the state at the end of a window and hands it to the persistence thread
+     * The capture takes the task manager's lock, so it runs without holding this scheduler's monitor: a thread
+     * changing the tasks may be waiting in requestSave meanwhile
+     */
+    private void closeWindow() {
+        synchronized (captureLock) {
+            synchronized (this) {
+                if (pendingWindow == null) {
+                    return; //already written by flush()
+                }
+                pendingWindow = null;
+            }
+            submit(saveCapture.get());
+        }
+    }
+
+    private void submit(BooleanSupplier save) {
+        writer.execute(() -> {
+            lastSaveSucceeded = save.getAsBoolean();
+            if (!lastSaveSucceeded) {
+                errorHandler.accept("Failed to save tasks. Your latest changes may not be stored.");
+            }
+        });
+    }
+}
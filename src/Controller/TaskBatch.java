@@ -0,0 +1,109 @@
+package Controller;
+
+import Model.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Changes to several tasks that are applied together by TaskManager.applyBatch
+ * Either every change is applied or none is, readers never see part of a batch,
+ * and the batch is journaled as a single record
+ */
+public class TaskBatch {
+    private final List<Operation> operations = new ArrayList<>();
+
+    /**
+     * Kinds of change a batch can hold
+     */
+    enum Kind {
+        ADD,
+        UPDATE,
+        COMPLETE,
+        DELETE,
+        RESTORE //puts a deleted task back with its ID, used to undo deletions
+    }
+
+    /**
+     * A single change
+     * @param kind kind of change
+     * @param id ID of the changed task, 0 for additions; for restores the ID of the task it goes in front of, 0 for the end
+     * @param task the new task or new contents, null for completions and deletions
+     */
+    record Operation(Kind kind, long id, Task task) {
+    }
+
+    /**
+     * Adds a new task
+     * @param task task to be added
+     * @return this batch
+     */
+    public TaskBatch add(Task task) {
+        operations.add(new Operation(Kind.ADD, 0, task));
+        return this;
+    }
+
+    /**
+     * Replaces the contents of a task, keeping its ID and position
+     * @param id ID of the task
+     * @param task new contents of the task
+     * @return this batch
+     */
+    public TaskBatch update(long id, Task task) {
+        operations.add(new Operation(Kind.UPDATE, id, task));
+        return this;
+    }
+
+    /**
+     * Marks a task as completed
+     * @param id ID of the task
+     * @return this batch
+     */
+    public TaskBatch complete(long id) {
+        operations.add(new Operation(Kind.COMPLETE, id, null));
+        return this;
+    }
+
+    /**
+     * Deletes a task
+     * @param id ID of the task
+     * @return this batch
+     */
+    public TaskBatch delete(long id) {
+        operations.add(new Operation(Kind.DELETE, id, null));
+        return this;
+    }
+
+    /**
+     * Puts a deleted task back with its ID
+     * @param task the task as it was deleted
+     * @param beforeId ID of the task it goes in front of, or 0 to put it at the end
+     * @return this batch
+     */
+    TaskBatch restore(Task task, long beforeId) {
+        operations.add(new Operation(Kind.RESTORE, beforeId, task));
+        return this;
+    }
+
+    /**
+     * Appends a change as it is
+     * @param operation the change
+     * @return this batch
+     */
+    TaskBatch append(Operation operation) {
+        operations.add(operation);
+        return this;
+    }
+
+    /**
+     * @return number of changes in the batch
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    List<Operation> operations() {
+        return Collections.unmodifiableList(operations);
+    }
+}
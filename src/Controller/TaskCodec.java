@@ -0,0 +1,799 @@
+package Controller;
+
+import Model.Task;
+import Model.TaskCategory;
+import Model.TaskPriority;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary format used to store tasks.
+ * A file starts with a header (magic number, format version, journal sequence number, task count,
+ * the position of the record index and the next free task ID) followed by one record per task and the record index.
+ * Each record is prefixed with its length and holds a flags byte, the category and priority ordinals,
+ * the title, description and due date as UTF-8 strings and the task ID. The record index holds the file position
+ * and ID of every record, so a mapped file can be read one record at a time. Since version 4 a trailer follows the
+ * record index with a CRC32C checksum of every 64 KiB block of the records and index, and one of the header; the
+ * checksums are verified while the file is read, so a damaged file is rejected instead of loaded partially.
+ * Files of earlier versions (without IDs or without the index) and files written with Java serialization
+ * by older versions are still read, so they can be migrated
+ */
+final class TaskCodec {
+    static final int MAGIC = 0x54444F42; //"TDOB"
+    static final byte VERSION = 4;
+    static final byte CHECKSUM_VERSION = 4; //first version with checksums
+    static final int BLOCK_SIZE = 1 << 16; //bytes covered by one checksum
+    static final int INDEX_OFFSET_POSITION = Integer.BYTES + 1 + Long.BYTES + Integer.BYTES; //header field patched after the records
+    static final int HEADER_SIZE = INDEX_OFFSET_POSITION + Long.BYTES + Long.BYTES;
+    static final int INDEX_ENTRY_SIZE = Long.BYTES + Long.BYTES; //record position and task ID
+
+    private static final short SERIALIZATION_MAGIC = (short) 0xACED; //first bytes of an ObjectOutputStream
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int FLAG_COMPLETED = 1;
+    private static final int NOT_AN_ORDINAL = 0xFF; //the value does not match an enum constant and is stored as text
+    private static final TaskCategory[] CATEGORIES = TaskCategory.values();
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+
+    private TaskCodec() {
+    }
+
+    /**
+     * Contents of a task file
+     * @param tasks the stored tasks
+     * @param journalSeq sequence number of the last journal record contained in the file
+     * @param legacy true if the file was written with Java serialization and should be rewritten
+     */
+    record Snapshot(TaskStore tasks, long journalSeq, boolean legacy) {
+    }
+
+    /**
+     * Reads a task file in either the binary or the legacy serialized format
+     * @param path file to read
+     * @return the tasks stored in the file
+     * @throws IOException if the file is missing or malformed
+     */
+    static Snapshot read(Path path) throws IOException {
+        return read(path, false);
+    }
+
+    /**
+     * Reads a task file in either the binary or the legacy serialized format
+     * @param path file to read
+     * @param offHeap true to keep the tasks in off-heap columns
+     * @return the tasks stored in the file
+     * @throws IOException if the file is missing or malformed
+     */
+    static Snapshot read(Path path, boolean offHeap) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(HEADER_SIZE);
+            while (start.hasRemaining() && channel.read(start, start.position()) > 0) {
+                //read the header without moving the channel
+            }
+            start.flip();
+            if (start.remaining() >= Short.BYTES && start.getShort(0) == SERIALIZATION_MAGIC) {
+                return readSerialized(path, offHeap);
+            }
+            if (start.remaining() > Integer.BYTES && start.getInt(0) == MAGIC && start.get(Integer.BYTES) >= CHECKSUM_VERSION) {
+                return readChecked(channel, start, path, offHeap);
+            }
+
+            ChannelInput input = new ChannelInput(channel);
+            ByteBuffer header = input.require(INDEX_OFFSET_POSITION);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a task file: " + path);
+            }
+            byte version = header.get();
+            if (version < 1) {
+                throw new IOException("Unsupported task file version: " + version);
+            }
+            long journalSeq = header.getLong();
+            int count = header.getInt();
+            if (version >= 2) {
+                input.require(Long.BYTES).getLong(); //the record index is not needed when reading sequentially
+            }
+            long nextId = version >= 3 ? input.require(Long.BYTES).getLong() : 1;
+
+            TaskStore tasks = TaskStore.empty(count, nextId, offHeap); //tasks go straight into the store, so no list of them is built
+            for (int i = 0; i < count; i++) {
+                int length = readVarInt(input);
+                ByteBuffer buffer = input.require(length);
+                tasks.add(decode(buffer.slice().limit(length)));
+                buffer.position(buffer.position() + length);
+            }
+            return new Snapshot(tasks, journalSeq, false);
+        }
+    }
+
+    /**
+     * Reads a file with checksums in one pass, verifying each block before any record in it is decoded
+     * The header is checked first, so a damaged header is never trusted to size the store, and the block checksums
+     * are read next, so a damaged block is never trusted for a record length
+     * @param channel the open file, not yet read from
+     * @param header the header, read without moving the channel
+     */
+    private static Snapshot readChecked(FileChannel channel, ByteBuffer header, Path path, boolean offHeap) throws IOException {
+        long size = channel.size();
+        ByteBuffer headerChecksum = ByteBuffer.allocate(Integer.BYTES);
+        if (size >= HEADER_SIZE + Integer.BYTES) {
+            while (headerChecksum.hasRemaining() && channel.read(headerChecksum, size - headerChecksum.remaining()) > 0) {
+                //the header's checksum is the last field of the file
+            }
+        }
+        Layout layout = Layout.of(header, size, headerChecksum.getInt(0), path);
+        VerifiedChannel verified = new VerifiedChannel(channel, layout.dataEnd(), path);
+        ChannelInput input = new ChannelInput(verified);
+        TaskStore tasks = TaskStore.empty(layout.count(), layout.nextId(), offHeap);
+        try {
+            for (int i = 0; i < layout.count(); i++) {
+                int length = readVarInt(input);
+                long next = verified.position() - input.buffered(); //file position of the record body
+                if (length < 0 || length > layout.indexOffset() - next) {
+                    throw new IOException("Record length " + length + " reaches past the records of task file: " + path);
+                }
+                ByteBuffer buffer = input.require(length);
+                tasks.add(decode(buffer.slice().limit(length)));
+                buffer.position(buffer.position() + length);
+            }
+            for (long left = (long) layout.count() * INDEX_ENTRY_SIZE; left > 0; ) {
+                int skipped = (int) Math.min(left, BUFFER_SIZE); //the index is not needed, but it is read so its checksum can be verified
+                ByteBuffer buffer = input.require(skipped);
+                buffer.position(buffer.position() + skipped);
+                left -= skipped;
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed record in task file: " + path, e); //lets the caller fall back like for any damage
+        }
+        return new Snapshot(tasks, layout.journalSeq(), false);
+    }
+
+    /**
+     * Positions and counts stored in the header of a file with checksums
+     * @param dataEnd position after the record index, where the checksums start
+     */
+    private record Layout(long journalSeq, int count, long indexOffset, long nextId, long dataEnd) {
+
+        /**
+         * Reads the header of a file with checksums and checks it against its checksum and the file size
+         * @param header the header, at least HEADER_SIZE bytes from position 0
+         * @param size size of the file
+         * @param headerChecksum checksum of the header stored at the end of the file
+         * @param path the file, for error messages
+         * @return the layout of the file
+         * @throws IOException if the header is damaged or the file is truncated
+         */
+        static Layout of(ByteBuffer header, long size, int headerChecksum, Path path) throws IOException {
+            if (header.limit() < HEADER_SIZE || size < HEADER_SIZE + Integer.BYTES) {
+                throw new IOException("Truncated task file: " + path);
+            }
+            if (checksum(header.duplicate().position(0).limit(HEADER_SIZE)) != headerChecksum) {
+                throw new IOException("Header checksum mismatch in task file: " + path);
+            }
+            byte version = header.get(Integer.BYTES);
+            if (version > VERSION) {
+                throw new IOException("Unsupported task file version: " + version);
+            }
+            long journalSeq = header.getLong(Integer.BYTES + 1);
+            int count = header.getInt(Integer.BYTES + 1 + Long.BYTES);
+            long indexOffset = header.getLong(INDEX_OFFSET_POSITION);
+            long nextId = header.getLong(INDEX_OFFSET_POSITION + Long.BYTES);
+            long dataEnd = indexOffset + (long) count * INDEX_ENTRY_SIZE;
+            if (count < 0 || indexOffset < HEADER_SIZE || dataEnd + trailerSize(dataEnd) != size) {
+                throw new IOException("Damaged header or truncated task file: " + path);
+            }
+            return new Layout(journalSeq, count, indexOffset, nextId, dataEnd);
+        }
+    }
+
+    /**
+     * @param dataEnd position after the record index
+     * @return size of the checksums that follow the record index
+     */
+    private static long trailerSize(long dataEnd) {
+        long blocks = (dataEnd - HEADER_SIZE + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        return (blocks + 1) * Integer.BYTES; //one checksum per block, then the header's
+    }
+
+    /**
+     * Maps a task file into memory so that tasks are only decoded when they are accessed
+     * Files without a record index, and files too large for a single mapping, are read into memory instead
+     * @param path file to map
+     * @return the tasks stored in the file
+     * @throws IOException if the file is missing or malformed
+     */
+    static Snapshot map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return read(path);
+            }
+
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (data.getInt(0) != MAGIC || data.get(Integer.BYTES) < 3) {
+                return read(path);
+            }
+            if (data.get(Integer.BYTES) >= CHECKSUM_VERSION) {
+                Layout layout = Layout.of(data, size, data.getInt((int) size - Integer.BYTES), path);
+                verify(data, layout.dataEnd(), path);
+                return new Snapshot(TaskStore.mapped(data, (int) layout.indexOffset(), layout.count(), layout.nextId()),
+                        layout.journalSeq(), false);
+            }
+
+            long journalSeq = data.getLong(Integer.BYTES + 1);
+            int count = data.getInt(Integer.BYTES + 1 + Long.BYTES);
+            long indexOffset = data.getLong(INDEX_OFFSET_POSITION);
+            long nextId = data.getLong(INDEX_OFFSET_POSITION + Long.BYTES);
+            if (count < 0 || indexOffset < HEADER_SIZE || indexOffset + (long) count * INDEX_ENTRY_SIZE > size) {
+                throw new IOException("Corrupt record index in task file: " + path);
+            }
+            return new Snapshot(TaskStore.mapped(data, (int) indexOffset, count, nextId), journalSeq, false);
+        }
+    }
+
+    /**
+     * Verifies the block checksums of a mapped file in one pass, without decoding any record
+     * @param data the mapped file
+     * @param dataEnd position after the record index
+     * @param path the file, for error messages
+     * @throws IOException if a block does not match its checksum
+     */
+    private static void verify(ByteBuffer data, long dataEnd, Path path) throws IOException {
+        int trailer = (int) dataEnd;
+        int block = 0;
+        for (int start = HEADER_SIZE; start < dataEnd; start += BLOCK_SIZE, block++) {
+            int end = (int) Math.min(dataEnd, (long) start + BLOCK_SIZE);
+            if (checksum(data.duplicate().position(start).limit(end)) != data.getInt(trailer + block * Integer.BYTES)) {
+                throw new IOException("Checksum mismatch in block " + block + " of task file: " + path);
+            }
+        }
+    }
+
+    /**
+     * @param bytes the bytes between position and limit, which are consumed
+     * @return CRC32C checksum of the bytes
+     */
+    private static int checksum(ByteBuffer bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns the body of the record stored at the given position of a mapped file
+     * @param data mapped task file
+     * @param offset position of the record's length prefix
+     * @return a buffer holding exactly the record body
+     */
+    static ByteBuffer recordAt(ByteBuffer data, int offset) {
+        ByteBuffer record = data.duplicate().position(offset);
+        int length = getVarInt(record);
+        return record.limit(record.position() + length).slice();
+    }
+
+    /**
+     * Writes the tasks to a file, replacing its contents
+     * @param path file to write
+     * @param tasks tasks to store
+     * @param journalSeq sequence number of the last journal record contained in the tasks
+     * @param sync true to force the data to the storage device before returning
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path path, TaskStore tasks, long journalSeq, boolean sync) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChecksumChannel channel = new ChecksumChannel(file, 0, Long.MAX_VALUE); //checksums the records and index as they are written
+            int count = tasks.size();
+            ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            out.put(header(journalSeq, count, 0, tasks.nextId()));
+
+            long[] offsets = new long[count];
+            long position = out.position();
+            ByteBuffer scratch = ByteBuffer.allocate(256);
+            for (int row = 0; row < count; row++) {
+                ByteBuffer record = tasks.storedRecord(row); //records that were never decoded are copied as they are
+                if (record == null) {
+                    scratch = encode(tasks.get(row), scratch);
+                    record = scratch;
+                }
+                position = writeRecord(channel, out, record, offsets, row, position);
+            }
+
+            long indexOffset = position;
+            for (int row = 0; row < count; row++) {
+                if (out.remaining() < INDEX_ENTRY_SIZE) {
+                    drain(channel, out);
+                }
+                out.putLong(offsets[row]).putLong(tasks.idAt(row));
+            }
+
+            drain(channel, out);
+
+            ByteBuffer header = header(journalSeq, count, indexOffset, tasks.nextId());
+            file.write(header.duplicate(), 0); //the index position is only known now
+            int[] checksums = channel.checksums();
+            ByteBuffer trailer = ByteBuffer.allocate((checksums.length + 1) * Integer.BYTES);
+            for (int checksum : checksums) {
+                trailer.putInt(checksum);
+            }
+            trailer.putInt(checksum(header)).flip();
+            writeFully(file, trailer);
+            if (sync) {
+                file.force(true);
+            }
+        }
+    }
+
+    /**
+     * @return a header ready for reading
+     */
+    private static ByteBuffer header(long journalSeq, int count, long indexOffset, long nextId) {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).put(VERSION).putLong(journalSeq).putInt(count)
+                .putLong(indexOffset).putLong(nextId).flip();
+    }
+
+    /**
+     * Appends a single record with its length prefix
+     * @return file position after the record
+     */
+    private static long writeRecord(WritableByteChannel channel, ByteBuffer out, ByteBuffer record, long[] offsets, int index,
+                                    long position) throws IOException {
+        offsets[index] = position;
+        int length = record.remaining();
+        position += varIntSize(length) + length;
+
+        if (out.remaining() < 5) {
+            drain(channel, out);
+        }
+        putVarInt(out, length);
+
+        if (out.remaining() < length) {
+            drain(channel, out);
+        }
+        if (out.remaining() < length) {
+            writeFully(channel, record); //record larger than the buffer
+        } else {
+            out.put(record);
+        }
+        return position;
+    }
+
+    /**
+     * Encodes a single task
+     * @param task task to encode
+     * @param scratch buffer to reuse if it is large enough
+     * @return a buffer ready for reading that holds the encoded task
+     */
+    static ByteBuffer encode(Task task, ByteBuffer scratch) {
+        int category = task.getTaskCategory() != null ? task.getTaskCategory().ordinal() : NOT_AN_ORDINAL;
+        int priority = task.getTaskPriority() != null ? task.getTaskPriority().ordinal() : NOT_AN_ORDINAL;
+        byte[] categoryText = category == NOT_AN_ORDINAL ? utf8(task.getCategory()) : null;
+        byte[] priorityText = priority == NOT_AN_ORDINAL ? utf8(task.getPriority()) : null;
+        byte[] title = utf8(task.getTitle());
+        byte[] description = utf8(task.getDescription());
+        byte[] dueDate = utf8(task.getDueDate());
+
+        int size = 3 + stringSize(title) + stringSize(description) + stringSize(dueDate) + varLongSize(task.getId());
+        if (category == NOT_AN_ORDINAL) {
+            size += stringSize(categoryText);
+        }
+        if (priority == NOT_AN_ORDINAL) {
+            size += stringSize(priorityText);
+        }
+
+        ByteBuffer buffer = scratch.capacity() >= size ? scratch.clear() : ByteBuffer.allocate(Math.max(size, scratch.capacity() * 2));
+        buffer.put((byte) (task.isCompleted() ? FLAG_COMPLETED : 0));
+        buffer.put((byte) category);
+        buffer.put((byte) priority);
+        if (category == NOT_AN_ORDINAL) {
+            putString(buffer, categoryText);
+        }
+        if (priority == NOT_AN_ORDINAL) {
+            putString(buffer, priorityText);
+        }
+        putString(buffer, title);
+        putString(buffer, description);
+        putString(buffer, dueDate);
+        putVarLong(buffer, task.getId());
+        return buffer.flip();
+    }
+
+    /**
+     * Decodes a single task
+     * @param buffer buffer holding exactly one encoded task
+     * @return the decoded task, with ID 0 if the record was written before IDs existed
+     * @throws IOException if the record is malformed
+     */
+    static Task decode(ByteBuffer buffer) throws IOException {
+        try {
+            int flags = buffer.get();
+            int category = buffer.get() & 0xFF;
+            int priority = buffer.get() & 0xFF;
+
+            String categoryName = category == NOT_AN_ORDINAL ? getString(buffer) : categoryName(category);
+            String priorityLabel = priority == NOT_AN_ORDINAL ? getString(buffer) : priorityLabel(priority);
+            String title = getString(buffer);
+            String description = getString(buffer);
+            String dueDate = getString(buffer);
+            long id = buffer.hasRemaining() ? getVarLong(buffer) : 0; //version 2 records end before the ID
+
+            return new Task(id, title, description, dueDate, categoryName, priorityLabel, (flags & FLAG_COMPLETED) != 0);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated task record", e);
+        }
+    }
+
+    /**
+     * Reads a file written by ObjectOutputStream, optionally followed by a journal sequence number
+     */
+    @SuppressWarnings("unchecked")
+    private static Snapshot readSerialized(Path path, boolean offHeap) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            List<Task> tasks = (List<Task>) ois.readObject();
+            long journalSeq;
+            try {
+                journalSeq = ois.readLong();
+            } catch (EOFException e) {
+                journalSeq = 0;
+            }
+            return new Snapshot(TaskStore.of(tasks, 1, offHeap), journalSeq, true);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unreadable task file: " + path, e);
+        }
+    }
+
+    private static String categoryName(int ordinal) throws IOException {
+        if (ordinal >= CATEGORIES.length) {
+            throw new IOException("Unknown category ordinal: " + ordinal);
+        }
+        return CATEGORIES[ordinal].name();
+    }
+
+    private static String priorityLabel(int ordinal) throws IOException {
+        if (ordinal >= PRIORITIES.length) {
+            throw new IOException("Unknown priority ordinal: " + ordinal);
+        }
+        return PRIORITIES[ordinal].getLabel();
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Strings are stored as their byte length plus one, so that zero can mark a null value
+     */
+    private static int stringSize(byte[] bytes) {
+        return bytes == null ? 1 : varIntSize(bytes.length + 1) + bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        putVarInt(buffer, bytes.length + 1);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = getVarInt(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (!buffer.hasArray()) {
+            byte[] bytes = new byte[length]; //mapped records are copied out of the file
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new BufferUnderflowException();
+    }
+
+    private static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new BufferUnderflowException();
+    }
+
+    private static int readVarInt(ChannelInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = input.require(1).get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed record length");
+    }
+
+    private static void drain(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Buffered reader over a channel that hands out heap buffers holding at least the requested number of bytes
+     */
+    private static final class ChannelInput {
+        private final ReadableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+        ChannelInput(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Makes sure that at least the given number of bytes can be read from the returned buffer
+         * @param bytes number of bytes needed
+         * @return buffer positioned at the next unread byte
+         * @throws IOException if the channel ends first
+         */
+        ByteBuffer require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return buffer;
+            }
+
+            if (bytes > buffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(bytes, buffer.capacity() * 2));
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Unexpected end of task file");
+                }
+            }
+            return buffer.flip();
+        }
+
+        /**
+         * @return number of bytes read from the channel but not yet consumed
+         */
+        int buffered() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Reads the bytes of a file covered by block checksums, one block at a time, and hands out the bytes of a block
+     * only after the block matched its checksum
+     */
+    private static final class VerifiedChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+        private final long end; //position after the last byte covered by the checksums
+        private final Path path;
+        private final ByteBuffer checksums; //stored checksum of every block
+        private final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE).flip(); //verified bytes not yet handed out
+        private final CRC32C crc = new CRC32C();
+        private long blockEnd = HEADER_SIZE; //file position after the last block read
+
+        /**
+         * Reads the block checksums, which follow the covered bytes
+         * @param channel the file
+         * @param end position after the last byte covered by the checksums
+         * @param path the file, for error messages
+         * @throws IOException if the checksums cannot be read
+         */
+        VerifiedChannel(FileChannel channel, long end, Path path) throws IOException {
+            this.channel = channel;
+            this.end = end;
+            this.path = path;
+            checksums = ByteBuffer.allocate((int) (trailerSize(end) - Integer.BYTES));
+            readFully(checksums, end);
+            checksums.flip();
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            if (!block.hasRemaining()) {
+                if (blockEnd == end) {
+                    return -1;
+                }
+                int number = checksums.position() / Integer.BYTES;
+                block.clear().limit((int) Math.min(BLOCK_SIZE, end - blockEnd));
+                readFully(block, blockEnd);
+                block.flip();
+                crc.reset();
+                crc.update(block.duplicate());
+                if ((int) crc.getValue() != checksums.getInt()) {
+                    throw new IOException("Checksum mismatch in block " + number + " of task file: " + path);
+                }
+                blockEnd += block.limit();
+            }
+            int length = Math.min(block.remaining(), destination.remaining());
+            destination.put(block.slice().limit(length));
+            block.position(block.position() + length);
+            return length;
+        }
+
+        /**
+         * @return file position of the next byte to hand out
+         */
+        long position() {
+            return blockEnd - block.remaining();
+        }
+
+        /**
+         * @param destination empty buffer to fill up to its limit
+         * @param position file position of the first byte to read
+         */
+        private void readFully(ByteBuffer destination, long position) throws IOException {
+            while (destination.hasRemaining()) {
+                if (channel.read(destination, position + destination.position()) < 0) {
+                    throw new EOFException("Unexpected end of task file");
+                }
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Passes writes through to a file and computes a CRC32C checksum for every block of the bytes between two file
+     * positions, so the data is checksummed in the same pass that writes it
+     */
+    private static final class ChecksumChannel implements WritableByteChannel {
+        private final FileChannel channel;
+        private final long end; //position after the last one covered; coverage starts after the header
+        private long position; //file position of the next byte
+        private final CRC32C crc = new CRC32C(); //checksum of the current block so far
+        private int blockFill; //bytes of the current block checksummed so far
+        private int[] checksums = new int[16];
+        private int blockCount;
+
+        /**
+         * @param channel the file, positioned at the given position
+         * @param position current position of the file
+         * @param end position after the last one covered by the checksums
+         */
+        ChecksumChannel(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int from = source.position();
+            int written = channel.write(source);
+            update(source.duplicate().position(from).limit(from + written));
+            return written;
+        }
+
+        /**
+         * Adds bytes that were just written at the current position
+         */
+        private void update(ByteBuffer bytes) {
+            long first = position;
+            position += bytes.remaining();
+            long skipped = Math.min(Math.max(HEADER_SIZE - first, 0), bytes.remaining()); //bytes of the header
+            long beyond = Math.min(Math.max(position - end, 0), bytes.remaining() - skipped); //bytes after it
+            bytes.position(bytes.position() + (int) skipped).limit(bytes.limit() - (int) beyond);
+
+            while (bytes.hasRemaining()) {
+                int length = Math.min(bytes.remaining(), BLOCK_SIZE - blockFill);
+                int limit = bytes.limit();
+                crc.update(bytes.limit(bytes.position() + length));
+                bytes.limit(limit);
+                blockFill += length;
+                if (blockFill == BLOCK_SIZE) {
+                    finishBlock();
+                }
+            }
+        }
+
+        private void finishBlock() {
+            if (blockCount == checksums.length) {
+                checksums = Arrays.copyOf(checksums, blockCount * 2);
+            }
+            checksums[blockCount++] = (int) crc.getValue();
+            crc.reset();
+            blockFill = 0;
+        }
+
+        /**
+         * Finishes the last block; call once every covered byte has passed
+         * @return the checksum of every block
+         */
+        int[] checksums() {
+            if (blockFill > 0) {
+                finishBlock();
+            }
+            return Arrays.copyOf(checksums, blockCount);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
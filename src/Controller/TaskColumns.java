@@ -0,0 +1,289 @@
+package Controller;
+
+import Model.DueDate;
+import Model.Task;
+import Model.TaskCategory;
+import Model.TaskPriority;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Task fields stored column by column outside the Java heap
+ * Every column is a direct buffer indexed by slot: task IDs, due days, category and priority ordinals, a bitmap of
+ * completed tasks, and the position of each title and description in a text arena holding their UTF-8 bytes.
+ * A Task object is only created when a slot is read, and its strings are decoded at that point, so the heap holds
+ * nothing per stored task and the garbage collector has nothing to trace. The rare tasks whose due date, category or
+ * priority has no compact form also keep their text in a small map on the heap.
+ * Reads only use absolute positions, so several threads may read at once, but changes need exclusive access
+ */
+final class TaskColumns {
+    private static final int TEXT_ENTRY_SIZE = 3 * Integer.BYTES; //arena offset, title size, description size
+    private static final byte NO_ORDINAL = -1;
+    private static final TaskCategory[] CATEGORIES = TaskCategory.values();
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+    private static final int MIN_ARENA_SIZE = 1 << 16;
+    private static final int MAX_ARENA_SIZE = Integer.MAX_VALUE - 8;
+
+    private int capacity; //number of slots every column has room for
+    private ByteBuffer ids; //long per slot
+    private ByteBuffer dueDays; //int per slot
+    private ByteBuffer categories; //ordinal per slot, NO_ORDINAL for none
+    private ByteBuffer priorities; //ordinal per slot, NO_ORDINAL for none
+    private ByteBuffer completed; //one bit per slot
+    private ByteBuffer textEntries; //per slot; a size is the byte length plus one, so 0 marks a null string
+    private ByteBuffer arena; //title and description bytes
+    private int arenaSize; //bytes of the arena in use
+    private long deadBytes; //bytes of the arena left behind by removed and replaced tasks
+    private final Map<Integer, Task> textValues; //tasks with values that have no compact form, by slot
+
+    /**
+     * Creates empty columns
+     * @param capacity number of slots to make room for
+     */
+    TaskColumns(int capacity) {
+        this(capacity, MIN_ARENA_SIZE, new HashMap<>());
+    }
+
+    private TaskColumns(int capacity, int arenaCapacity, Map<Integer, Task> textValues) {
+        this.capacity = capacity;
+        this.ids = allocate(capacity * Long.BYTES);
+        this.dueDays = allocate(capacity * Integer.BYTES);
+        this.categories = allocate(capacity);
+        this.priorities = allocate(capacity);
+        this.completed = allocate(bitmapSize(capacity));
+        this.textEntries = allocate(capacity * TEXT_ENTRY_SIZE);
+        this.arena = allocate(arenaCapacity);
+        this.textValues = textValues;
+    }
+
+    /**
+     * @return number of slots the columns have room for
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Grows every column so that it has room for the given number of slots
+     * @param slots number of slots needed
+     */
+    void ensureCapacity(int slots) {
+        if (slots <= capacity) {
+            return;
+        }
+
+        capacity = Math.max(slots, capacity + (capacity >> 1) + 16);
+        ids = grow(ids, capacity * Long.BYTES);
+        dueDays = grow(dueDays, capacity * Integer.BYTES);
+        categories = grow(categories, capacity);
+        priorities = grow(priorities, capacity);
+        completed = grow(completed, bitmapSize(capacity));
+        textEntries = grow(textEntries, capacity * TEXT_ENTRY_SIZE);
+    }
+
+    /**
+     * Stores a task in a slot, replacing the task stored there before
+     * @param slot slot of the task
+     * @param task the task
+     */
+    void set(int slot, Task task) {
+        clear(slot);
+
+        ids.putLong(slot * Long.BYTES, task.getId());
+        dueDays.putInt(slot * Integer.BYTES, task.getDueDay());
+        categories.put(slot, task.getTaskCategory() != null ? (byte) task.getTaskCategory().ordinal() : NO_ORDINAL);
+        priorities.put(slot, task.getTaskPriority() != null ? (byte) task.getTaskPriority().ordinal() : NO_ORDINAL);
+        setCompleted(slot, task.isCompleted());
+
+        byte[] title = utf8(task.getTitle());
+        byte[] description = utf8(task.getDescription());
+        int offset = reserve(length(title) + length(description));
+        if (title != null) {
+            arena.put(offset, title);
+        }
+        if (description != null) {
+            arena.put(offset + length(title), description);
+        }
+        textEntries.putInt(slot * TEXT_ENTRY_SIZE, offset)
+                .putInt(slot * TEXT_ENTRY_SIZE + Integer.BYTES, size(title))
+                .putInt(slot * TEXT_ENTRY_SIZE + 2 * Integer.BYTES, size(description));
+
+        if (hasTextValues(task)) {
+            textValues.put(slot, task);
+        }
+    }
+
+    /**
+     * Forgets the task stored in a slot; its text bytes are reclaimed the next time the arena is compacted
+     * @param slot slot of the task
+     */
+    void clear(int slot) {
+        int entry = slot * TEXT_ENTRY_SIZE;
+        deadBytes += Math.max(textEntries.getInt(entry + Integer.BYTES) - 1, 0)
+                + Math.max(textEntries.getInt(entry + 2 * Integer.BYTES) - 1, 0);
+        textEntries.putInt(entry, 0).putInt(entry + Integer.BYTES, 0).putInt(entry + 2 * Integer.BYTES, 0);
+        setCompleted(slot, false);
+        if (!textValues.isEmpty()) {
+            textValues.remove(slot);
+        }
+    }
+
+    /**
+     * Creates a task from the columns of a slot, decoding its title and description
+     * @param slot slot of the task
+     * @return the task
+     */
+    Task get(int slot) {
+        boolean isCompleted = isCompleted(slot);
+        if (!textValues.isEmpty()) {
+            Task task = textValues.get(slot);
+            if (task != null) {
+                return task.isCompleted() == isCompleted ? task : task.withCompleted(isCompleted);
+            }
+        }
+
+        int entry = slot * TEXT_ENTRY_SIZE;
+        int offset = textEntries.getInt(entry);
+        int titleSize = textEntries.getInt(entry + Integer.BYTES);
+        String title = string(offset, titleSize);
+        String description = string(offset + Math.max(titleSize - 1, 0), textEntries.getInt(entry + 2 * Integer.BYTES));
+        return new Task(id(slot), title, description, dueDay(slot), category(slot), priority(slot), isCompleted);
+    }
+
+    long id(int slot) {
+        return ids.getLong(slot * Long.BYTES);
+    }
+
+    int dueDay(int slot) {
+        return dueDays.getInt(slot * Integer.BYTES);
+    }
+
+    TaskCategory category(int slot) {
+        byte ordinal = categories.get(slot);
+        return ordinal != NO_ORDINAL ? CATEGORIES[ordinal] : null;
+    }
+
+    TaskPriority priority(int slot) {
+        byte ordinal = priorities.get(slot);
+        return ordinal != NO_ORDINAL ? PRIORITIES[ordinal] : null;
+    }
+
+    boolean isCompleted(int slot) {
+        return (completed.get(slot >>> 3) & (1 << (slot & 7))) != 0;
+    }
+
+    void setCompleted(int slot, boolean isCompleted) {
+        int bits = completed.get(slot >>> 3);
+        int mask = 1 << (slot & 7);
+        completed.put(slot >>> 3, (byte) (isCompleted ? bits | mask : bits & ~mask));
+    }
+
+    /**
+     * Copies the columns, leaving out the text of removed tasks
+     * @return columns holding the same tasks, independent of these
+     */
+    TaskColumns copy() {
+        TaskColumns copy = new TaskColumns(capacity, 0, new HashMap<>(textValues));
+        copy.ids.put(0, ids, 0, ids.capacity());
+        copy.dueDays.put(0, dueDays, 0, dueDays.capacity());
+        copy.categories.put(0, categories, 0, categories.capacity());
+        copy.priorities.put(0, priorities, 0, priorities.capacity());
+        copy.completed.put(0, completed, 0, completed.capacity());
+        copy.textEntries.put(0, textEntries, 0, textEntries.capacity());
+        copy.arenaSize = copy.compactFrom(arena, Math.max(MIN_ARENA_SIZE, (int) (arenaSize - deadBytes)));
+        return copy;
+    }
+
+    /**
+     * Finds room for the given number of text bytes, compacting or growing the arena if it is full
+     * @return arena offset of the room
+     */
+    private int reserve(int length) {
+        if (arena.capacity() - arenaSize < length) {
+            if (deadBytes > arenaSize / 2) {
+                arenaSize = compactFrom(arena, arena.capacity());
+                deadBytes = 0;
+            }
+            if (arena.capacity() - arenaSize < length) {
+                long needed = (long) arenaSize + length;
+                if (needed > MAX_ARENA_SIZE) {
+                    throw new IllegalStateException("Task text does not fit in off-heap storage");
+                }
+                arena = grow(arena, (int) Math.min(MAX_ARENA_SIZE, Math.max(needed, 2L * arena.capacity())));
+            }
+        }
+
+        int offset = arenaSize;
+        arenaSize += length;
+        return offset;
+    }
+
+    /**
+     * Copies the text of every stored task from the given arena into a new arena, updating the text entries
+     * @param source arena holding the text
+     * @param arenaCapacity size of the new arena, at least the number of live text bytes
+     * @return bytes of the new arena in use
+     */
+    private int compactFrom(ByteBuffer source, int arenaCapacity) {
+        ByteBuffer target = allocate(arenaCapacity);
+        int size = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int entry = slot * TEXT_ENTRY_SIZE;
+            int length = Math.max(textEntries.getInt(entry + Integer.BYTES) - 1, 0)
+                    + Math.max(textEntries.getInt(entry + 2 * Integer.BYTES) - 1, 0);
+            if (length > 0) {
+                target.put(size, source, textEntries.getInt(entry), length);
+                textEntries.putInt(entry, size);
+                size += length;
+            }
+        }
+        arena = target;
+        return size;
+    }
+
+    private String string(int offset, int size) {
+        if (size == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[size - 1];
+        arena.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return true if the task has a due date, category or priority that is only available as text
+     */
+    private static boolean hasTextValues(Task task) {
+        return (task.getDueDay() == DueDate.NONE && task.getDueDate() != null)
+                || (task.getTaskCategory() == null && task.getCategory() != null)
+                || (task.getTaskPriority() == null && task.getPriority() != null);
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+
+    private static int size(byte[] bytes) {
+        return bytes != null ? bytes.length + 1 : 0;
+    }
+
+    private static int bitmapSize(int slots) {
+        return (slots + 7) >>> 3;
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+    }
+
+    private static ByteBuffer grow(ByteBuffer column, int size) {
+        return allocate(size).put(0, column, 0, column.capacity());
+    }
+}
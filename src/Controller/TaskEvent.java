@@ -0,0 +1,30 @@
+package Controller;
+
+import Model.Task;
+
+/**
+ * A change to the task list, published by the task manager through its event bus
+ * @param kind what changed
+ * @param taskId ID of the changed task, or 0 for a reset
+ * @param task the task after the change, or null if it was deleted or the event is a reset
+ */
+public record TaskEvent(Kind kind, long taskId, Task task) {
+
+    /**
+     * Kinds of changes
+     */
+    public enum Kind {
+        ADDED,
+        UPDATED, //the contents of the task were replaced
+        COMPLETED,
+        DELETED,
+        RESET //the whole list may have changed, e.g. after loading; listeners read the list again
+    }
+
+    /**
+     * @return an event telling listeners to read the whole list again
+     */
+    public static TaskEvent reset() {
+        return new TaskEvent(Kind.RESET, 0, null);
+    }
+}
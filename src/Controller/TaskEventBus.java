@@ -0,0 +1,132 @@
+package Controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the changes of the task list to listeners
+ * The task manager publishes the events of each change together, so a batch of changes reaches a listener as one
+ * list. Every listener runs on its own executor, such as the Swing event dispatch thread or a worker thread, and
+ * events published while the listener is busy are collected and delivered together in the next call. A listener
+ * never gets two calls at once, and it gets the events in the order of the changes.
+ * A slow listener cannot hold up the task manager: once more events are waiting for it than its capacity allows,
+ * they are replaced by a single reset event, telling the listener to read the whole list again
+ */
+public final class TaskEventBus {
+    private static final int DEFAULT_CAPACITY = 10_000; //events waiting for a listener before they are replaced by a reset
+
+    /**
+     * Executor that runs a listener on the thread making the change, while the task manager is still locked
+     * Changes of different tasks may then call the listener at the same time, and the listener must not change tasks
+     */
+    public static final Executor DIRECT = Runnable::run;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a listener that may fall behind by up to 10,000 events before getting a reset instead
+     * @param listener receives the events
+     * @param executor runs the listener
+     */
+    public void subscribe(Consumer<List<TaskEvent>> listener, Executor executor) {
+        subscribe(listener, executor, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Registers a listener
+     * @param listener receives the events
+     * @param executor runs the listener
+     * @param capacity number of events that may wait for the listener before they are replaced by a reset
+     */
+    public void subscribe(Consumer<List<TaskEvent>> listener, Executor executor, int capacity) {
+        subscribers.add(new Subscriber(listener, executor, Math.max(capacity, 1)));
+    }
+
+    /**
+     * Removes a listener; events already handed to its executor may still be delivered
+     * @param listener the listener
+     */
+    public void unsubscribe(Consumer<List<TaskEvent>> listener) {
+        subscribers.removeIf(subscriber -> subscriber.listener == listener);
+    }
+
+    /**
+     * @return true if any listener is registered, so events are worth creating
+     */
+    boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Hands the events of one change to every listener
+     * @param events the events, in the order of the changes
+     */
+    void publish(List<TaskEvent> events) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(events);
+        }
+    }
+
+    /**
+     * Events waiting for one listener
+     */
+    private static final class Subscriber {
+        private final Consumer<List<TaskEvent>> listener;
+        private final Executor executor;
+        private final int capacity;
+        private List<TaskEvent> pending = new ArrayList<>(); //guarded by this
+        private boolean draining; //true while a delivery is scheduled or running, guarded by this
+
+        Subscriber(Consumer<List<TaskEvent>> listener, Executor executor, int capacity) {
+            this.listener = listener;
+            this.executor = executor;
+            this.capacity = capacity;
+        }
+
+        void enqueue(List<TaskEvent> events) {
+            synchronized (this) {
+                boolean isReset = pending.size() == 1 && pending.get(0).kind() == TaskEvent.Kind.RESET;
+                if (!isReset) {
+                    if (pending.size() + events.size() > capacity) {
+                        pending.clear(); //the listener reads the whole list instead
+                        pending.add(TaskEvent.reset());
+                    } else {
+                        pending.addAll(events);
+                    }
+                }
+                if (draining) {
+                    return; //the running delivery picks the events up
+                }
+                draining = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        /**
+         * Delivers the waiting events until there are none left
+         */
+        private void drain() {
+            while (true) {
+                List<TaskEvent> events;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    events = pending;
+                    pending = new ArrayList<>();
+                }
+
+                try {
+                    listener.accept(events);
+                } catch (RuntimeException e) {
+                    System.err.println("Task event listener failed: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package Controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Streams the tasks of a task manager to a CSV or JSON Lines file
+ * Tasks are written one at a time straight from the task list, so no copy of the list is made
+ */
+public final class TaskExporter {
+
+    private TaskExporter() {
+    }
+
+    /**
+     * Writes every task in list order
+     * No task can be added or removed while the list is written; a task completed or replaced by ID at the same time
+     * is written as it was either before or after the change
+     * @param taskManager source of the tasks
+     * @param writer destination, flushed but not closed
+     * @param format format to write
+     * @return number of tasks written
+     * @throws IOException if writing fails
+     */
+    public static int exportTasks(TaskManager taskManager, Writer writer, TaskFileFormat format) throws IOException {
+        int[] count = {0};
+
+        String header = format.header();
+        if (header != null) {
+            writer.write(header);
+            writer.write('\n');
+        }
+        try {
+            taskManager.forEachTask(task -> {
+                try {
+                    writer.write(format.format(task));
+                    writer.write('\n');
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); //stops the iteration
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return count[0];
+    }
+}
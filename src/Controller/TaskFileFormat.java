@@ -0,0 +1,328 @@
+package Controller;
+
+import Model.Task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Text formats for importing and exporting tasks
+ * CSV files have the header line title,description,dueDate,category,priority,completed and one task per record;
+ * quoted fields may contain commas, doubled quotes and line breaks. JSON Lines files hold one JSON object per line
+ * with the same field names
+ */
+public enum TaskFileFormat {
+    CSV,
+    JSONL;
+
+    static final String[] FIELDS = {"title", "description", "dueDate", "category", "priority", "completed"};
+
+    /**
+     * Picks the format from a file name
+     * @param fileName name of the file
+     * @return JSONL for names ending in .jsonl or .json, CSV otherwise
+     */
+    public static TaskFileFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".jsonl") || name.endsWith(".json") ? JSONL : CSV;
+    }
+
+    /**
+     * @return the line written before the first task, or null if the format has none
+     */
+    String header() {
+        return this == CSV ? String.join(",", FIELDS) : null;
+    }
+
+    /**
+     * Checks whether a record is a header line rather than a task
+     * @param record the first record of a file
+     * @return true if the record is the header
+     */
+    boolean isHeader(String record) {
+        return this == CSV && record.trim().toLowerCase(Locale.ROOT).startsWith("title,");
+    }
+
+    /**
+     * Formats a task as one record, without the line break
+     * @param task task to format
+     * @return the record
+     */
+    String format(Task task) {
+        String[] values = {task.getTitle(), task.getDescription(), task.getDueDate(), task.getCategory(), task.getPriority(),
+                String.valueOf(task.isCompleted())};
+        StringBuilder record = new StringBuilder(64);
+
+        if (this == CSV) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    record.append(',');
+                }
+                appendCsv(record, values[i]);
+            }
+            return record.toString();
+        }
+
+        record.append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                record.append(',');
+            }
+            record.append('"').append(FIELDS[i]).append("\":");
+            if (i == values.length - 1) {
+                record.append(values[i]); //completed is a boolean
+            } else {
+                appendJson(record, values[i]);
+            }
+        }
+        return record.append('}').toString();
+    }
+
+    /**
+     * Splits one record into its named fields
+     * @param record the record, possibly spanning several lines for CSV
+     * @return the field values by name; missing fields are absent
+     * @throws IOException if the record is malformed
+     */
+    Map<String, String> parse(String record) throws IOException {
+        return this == CSV ? parseCsv(record) : parseJson(record);
+    }
+
+    /**
+     * Tells whether a CSV record read so far ends inside a quoted field and continues on the next line
+     * @param record text read so far
+     * @return true if more lines belong to the record
+     */
+    boolean continuesOnNextLine(CharSequence record) {
+        if (this != CSV) {
+            return false;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '"') {
+                quoted = !quoted; //a doubled quote toggles twice
+            }
+        }
+        return quoted;
+    }
+
+    private static void appendCsv(StringBuilder record, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            record.append(value);
+            return;
+        }
+
+        record.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                record.append('"');
+            }
+            record.append(c);
+        }
+        record.append('"');
+    }
+
+    private static Map<String, String> parseCsv(String record) throws IOException {
+        List<String> values = new ArrayList<>(FIELDS.length);
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++; //skip the second quote of the pair
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (c != '\r') {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IOException("Unterminated quoted field");
+        }
+        values.add(value.toString());
+
+        if (values.size() > FIELDS.length) {
+            throw new IOException("Expected at most " + FIELDS.length + " fields but found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.put(FIELDS[i], values.get(i));
+        }
+        return fields;
+    }
+
+    /**
+     * Appends a string as a quoted JSON value, or null
+     * @param record text to append to
+     * @param value the string, may be null
+     */
+    static void appendJson(StringBuilder record, String value) {
+        if (value == null) {
+            record.append("null");
+            return;
+        }
+
+        record.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> record.append("\\\"");
+                case '\\' -> record.append("\\\\");
+                case '\n' -> record.append("\\n");
+                case '\r' -> record.append("\\r");
+                case '\t' -> record.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        record.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        record.append(c);
+                    }
+                }
+            }
+        }
+        record.append('"');
+    }
+
+    /**
+     * Parses a flat JSON object whose values are strings, booleans, numbers or null
+     */
+    private static Map<String, String> parseJson(String record) throws IOException {
+        JsonReader reader = new JsonReader(record);
+        Map<String, String> fields = new HashMap<>();
+
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                String name = reader.string();
+                reader.expect(':');
+                fields.put(name, reader.value());
+            } while (reader.consume(','));
+            reader.expect('}');
+        }
+        reader.end();
+        return fields;
+    }
+
+    /**
+     * Reads the tokens of one JSON line
+     */
+    private static final class JsonReader {
+        private final String text;
+        private int position;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        void expect(char c) throws IOException {
+            if (!consume(c)) {
+                throw new IOException("Expected '" + c + "' at column " + (position + 1));
+            }
+        }
+
+        boolean consume(char c) {
+            skipSpaces();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void end() throws IOException {
+            skipSpaces();
+            if (position < text.length()) {
+                throw new IOException("Unexpected text at column " + (position + 1));
+            }
+        }
+
+        /**
+         * Reads a value, returning strings unquoted, other values as written and null for null
+         */
+        String value() throws IOException {
+            skipSpaces();
+            if (position < text.length() && text.charAt(position) == '"') {
+                return string();
+            }
+
+            int start = position;
+            while (position < text.length() && ",}] \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty() || literal.startsWith("{") || literal.startsWith("[")) {
+                throw new IOException("Unsupported value at column " + (start + 1));
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        String string() throws IOException {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw new IOException("Truncated escape at column " + position);
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IOException("Invalid escape at column " + position);
+                        }
+                        position += 4;
+                    }
+                    default -> value.append(escaped); //covers \" \\ and \/
+                }
+            }
+            throw new IOException("Unterminated string");
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package Controller;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Undo and redo history of the changes made through a task manager
+ * Every change records the changes that revert it: an added task is deleted, a changed or completed task gets its
+ * previous contents back and a deleted task is put back with its ID in front of the task that followed it. The
+ * reverting changes of one change form a step, which is applied as one batch, so undoing a batch is a single change as
+ * well and costs as much as the batch did, however long the list is. Tasks are immutable, so a step shares the tasks
+ * the change replaced instead of copying them or the list. The history keeps a limited number of steps and of
+ * reverting changes, dropping the oldest steps first.
+ * Only used with the task manager's write lock held, except for recordStep, canUndo and canRedo, which changes of
+ * single tasks and readers call under the read lock
+ */
+final class TaskHistory {
+    private final int maxSteps;
+    private final int maxOperations;
+    private final Deque<List<TaskBatch.Operation>> undoSteps = new ArrayDeque<>(); //newest first
+    private final Deque<List<TaskBatch.Operation>> redoSteps = new ArrayDeque<>(); //newest first
+    private int operations; //reverting changes held by both stacks
+    private List<TaskBatch.Operation> pending = new ArrayList<>(); //reverting changes of the change being made
+    private boolean isOverflowing; //the change being made has more reverting changes than the history may hold
+    private Direction direction = Direction.DO;
+
+    /**
+     * What the change being made does to the history
+     */
+    private enum Direction {
+        DO, //a new change, which makes the undone steps unreachable
+        UNDO,
+        REDO
+    }
+
+    /**
+     * Creates an empty history
+     * @param maxSteps number of changes that can be undone
+     * @param maxOperations number of reverting changes kept over all steps
+     */
+    TaskHistory(int maxSteps, int maxOperations) {
+        this.maxSteps = maxSteps;
+        this.maxOperations = maxOperations;
+    }
+
+    /**
+     * Records a change that reverts part of the change being made
+     * @param revert the reverting change
+     */
+    void record(TaskBatch.Operation revert) {
+        if (isOverflowing) {
+            return;
+        }
+        if (pending.size() == maxOperations) {
+            isOverflowing = true;
+            pending = new ArrayList<>();
+            return;
+        }
+        pending.add(revert);
+    }
+
+    /**
+     * Records a change of a single task made outside a write as a step of its own
+     * @param revert the change that reverts it
+     */
+    synchronized void recordStep(TaskBatch.Operation revert) {
+        List<TaskBatch.Operation> step = new ArrayList<>(1);
+        step.add(revert);
+        dropAll(redoSteps);
+        undoSteps.push(step);
+        operations++;
+        trim();
+    }
+
+    /**
+     * Closes the step of the change being made, called when the outermost change releases the lock
+     */
+    void endChange() {
+        Direction finished = direction;
+        direction = Direction.DO;
+        if (isOverflowing) {
+            isOverflowing = false;
+            clear(); //earlier steps cannot be reverted past a change that was not recorded
+            return;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<TaskBatch.Operation> step = pending;
+        pending = new ArrayList<>();
+        if (finished == Direction.UNDO) {
+            redoSteps.push(step);
+        } else {
+            if (finished == Direction.DO) {
+                dropAll(redoSteps);
+            }
+            undoSteps.push(step);
+        }
+        operations += step.size();
+        trim();
+    }
+
+    /**
+     * Takes the latest step off the undo stack; the change applying it records the step that redoes it
+     * @return the reverting changes as a batch, or null if there is nothing to undo
+     */
+    TaskBatch takeUndo() {
+        return take(undoSteps, Direction.UNDO);
+    }
+
+    /**
+     * Takes the latest undone step off the redo stack; the change applying it records the step that undoes it again
+     * @return the changes as a batch, or null if there is nothing to redo
+     */
+    TaskBatch takeRedo() {
+        return take(redoSteps, Direction.REDO);
+    }
+
+    synchronized boolean canUndo() {
+        return !undoSteps.isEmpty();
+    }
+
+    synchronized boolean canRedo() {
+        return !redoSteps.isEmpty();
+    }
+
+    /**
+     * Forgets every step, e.g. after the whole list was replaced
+     */
+    void clear() {
+        undoSteps.clear();
+        redoSteps.clear();
+        operations = 0;
+    }
+
+    private TaskBatch take(Deque<List<TaskBatch.Operation>> steps, Direction taken) {
+        List<TaskBatch.Operation> step = steps.poll();
+        if (step == null) {
+            return null;
+        }
+        operations -= step.size();
+        direction = taken;
+
+        TaskBatch batch = new TaskBatch();
+        for (int i = step.size() - 1; i >= 0; i--) {
+            batch.append(step.get(i)); //the last change is reverted first
+        }
+        return batch;
+    }
+
+    /**
+     * Drops the oldest steps until the history is within its limits
+     */
+    private void trim() {
+        while (undoSteps.size() > maxSteps || (operations > maxOperations && !undoSteps.isEmpty())) {
+            operations -= undoSteps.removeLast().size();
+        }
+        while (operations > maxOperations && !redoSteps.isEmpty()) {
+            operations -= redoSteps.removeLast().size();
+        }
+    }
+
+    private void dropAll(Deque<List<TaskBatch.Operation>> steps) {
+        for (List<TaskBatch.Operation> step : steps) {
+            operations -= step.size();
+        }
+        steps.clear();
+    }
+}
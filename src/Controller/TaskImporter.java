@@ -0,0 +1,200 @@
+package Controller;
+
+import Model.Task;
+import Model.TaskCategory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams tasks from a CSV or JSON Lines file into a task manager
+ * The file is read in batches, so memory use depends on the batch size rather than the file size. The records of a
+ * batch are parsed in parallel and validated on the fork-join pool, then the valid tasks are added in a single change
+ * to the task manager
+ */
+public final class TaskImporter {
+    private static final int MAX_REPORTED_ERRORS = 100; //rejected records beyond this are counted but not described
+
+    private final TaskManager taskManager;
+    private final int batchSize;
+
+    /**
+     * Outcome of an import
+     * @param imported number of tasks added
+     * @param rejected number of records that were not added
+     * @param errors descriptions of the first rejected records, with their line numbers
+     */
+    public record Result(int imported, int rejected, List<String> errors) {
+    }
+
+    /**
+     * Receives each batch once it has been added
+     */
+    public interface BatchListener {
+        /**
+         * @param firstRow index of the first task added by the batch
+         * @param count number of tasks added by the batch
+         */
+        void batchCommitted(int firstRow, int count);
+    }
+
+    /**
+     * Creates an importer
+     * @param taskManager task manager receiving the tasks
+     * @param batchSize number of records parsed and added together
+     */
+    public TaskImporter(TaskManager taskManager, int batchSize) {
+        this.taskManager = taskManager;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports every task in a file
+     * @param reader source of the file contents, closed by the caller
+     * @param format format of the file
+     * @param listener receives every batch added, may be null
+     * @return the number of imported and rejected records
+     * @throws IOException if the file cannot be read
+     */
+    public Result importTasks(Reader reader, TaskFileFormat format, BatchListener listener) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 1 << 16);
+        List<Record> batch = new ArrayList<>(batchSize);
+        List<String> errors = new ArrayList<>();
+        int imported = 0;
+        int rejected = 0;
+        int lineNumber = 0;
+
+        StringBuilder text = new StringBuilder(); //record read so far, longer than a line if a quoted field has line breaks
+        int recordLine = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (text.isEmpty()) {
+                if (line.isBlank() || (lineNumber == 1 && format.isHeader(line))) {
+                    continue;
+                }
+                recordLine = lineNumber;
+            } else {
+                text.append('\n'); //the line break belongs to a quoted field
+            }
+            text.append(line);
+            if (format.continuesOnNextLine(text)) {
+                continue;
+            }
+
+            batch.add(new Record(recordLine, text.toString()));
+            text.setLength(0);
+            if (batch.size() == batchSize) {
+                int[] counts = commit(batch, format, errors, listener);
+                imported += counts[0];
+                rejected += counts[1];
+                batch.clear();
+            }
+        }
+        if (!text.isEmpty()) {
+            batch.add(new Record(recordLine, text.toString())); //rejected as an unterminated quoted field
+        }
+
+        int[] counts = commit(batch, format, errors, listener);
+        imported += counts[0];
+        rejected += counts[1];
+        return new Result(imported, rejected, errors);
+    }
+
+    /**
+     * Parses and validates a batch in parallel and adds its valid tasks
+     * @return the number of added and rejected records
+     */
+    private int[] commit(List<Record> batch, TaskFileFormat format, List<String> errors, BatchListener listener) {
+        if (batch.isEmpty()) {
+            return new int[]{0, 0};
+        }
+
+        List<Parsed> parsed = batch.parallelStream().map(record -> parse(record, format)).toList();
+        List<TaskValidator.Input> inputs = new ArrayList<>(parsed.size());
+        for (Parsed result : parsed) {
+            if (result.input() != null) {
+                inputs.add(result.input());
+            }
+        }
+        TaskValidator.Outcome[] outcomes = TaskValidator.validateAll(inputs);
+
+        List<Task> tasks = new ArrayList<>(inputs.size());
+        int rejected = 0;
+        int next = 0; //outcome of the next parsed record
+        for (Parsed result : parsed) {
+            String error = result.error();
+            if (result.input() != null) {
+                TaskValidator.Outcome outcome = outcomes[next++];
+                if (outcome.task() != null) {
+                    tasks.add(outcome.task());
+                    continue;
+                }
+                error = "Line " + result.line() + ": " + outcome.problem().getMessage();
+            }
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        int added = taskManager.addTasks(tasks);
+        rejected += tasks.size() - added;
+        if (added > 0 && listener != null) {
+            listener.batchCommitted(taskManager.getTaskCount() - added, added);
+        }
+        return new int[]{added, rejected};
+    }
+
+    /**
+     * Splits a record into the values of a task; the values are checked by TaskValidator afterwards
+     */
+    private static Parsed parse(Record record, TaskFileFormat format) {
+        try {
+            Map<String, String> fields = format.parse(record.text());
+            TaskCategory category = parseCategory(fields.get("category"));
+            if (category == null) {
+                return Parsed.error(record, "Unknown category: " + fields.get("category"));
+            }
+
+            boolean isCompleted = Boolean.parseBoolean(fields.get("completed"));
+            TaskValidator.Input input = new TaskValidator.Input(fields.get("title"), fields.get("description"),
+                    fields.get("dueDate"), fields.get("priority"), category, isCompleted);
+            return new Parsed(record.line(), input, null);
+        } catch (IOException e) {
+            return Parsed.error(record, e.getMessage());
+        }
+    }
+
+    /**
+     * @param text name of a category in any case
+     * @return the category, or null if there is none with the name
+     */
+    static TaskCategory parseCategory(String text) {
+        for (TaskCategory category : TaskCategory.values()) {
+            if (category.name().equalsIgnoreCase(text)) {
+                return category;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Text of one record and the line it starts on
+     */
+    private record Record(int line, String text) {
+    }
+
+    /**
+     * A parsed record: either the values of a task or the reason it was rejected
+     */
+    private record Parsed(int line, TaskValidator.Input input, String error) {
+        static Parsed error(Record record, String message) {
+            return new Parsed(record.line(), null, "Line " + record.line() + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package Controller;
+
+import Model.DueDate;
+import Model.Task;
+import Model.TaskCategory;
+import Model.TaskPriority;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Secondary indexes over the slots of a task store
+ * Category, priority and completion are kept as bit sets over slot numbers, so combining them is a word-wise AND.
+ * Due days are kept in a sorted map, so a due date range only visits the tasks inside the range; tasks without a
+ * valid due date never match a range
+ */
+final class TaskIndex {
+    private final BitSet live = new BitSet(); //slots that hold a task
+    private final BitSet completed = new BitSet(); //slots whose task is completed
+    private final Map<TaskCategory, BitSet> byCategory = new EnumMap<>(TaskCategory.class);
+    private final Map<TaskPriority, BitSet> byPriority = new EnumMap<>(TaskPriority.class);
+    private final NavigableMap<Integer, SlotBucket> byDueDay = new TreeMap<>();
+
+    /**
+     * Adds a task to the indexes
+     * @param slot slot of the task
+     * @param task the task
+     */
+    void add(int slot, Task task) {
+        add(slot, task.getDueDay(), task.getTaskCategory(), task.getTaskPriority(), task.isCompleted());
+    }
+
+    /**
+     * Adds a task to the indexes from its indexed values
+     * @param slot slot of the task
+     * @param dueDay due day of the task, or DueDate.NONE
+     * @param category category of the task, may be null
+     * @param priority priority of the task, may be null
+     * @param isCompleted completion status of the task
+     */
+    void add(int slot, int dueDay, TaskCategory category, TaskPriority priority, boolean isCompleted) {
+        live.set(slot);
+        completed.set(slot, isCompleted);
+
+        if (category != null) {
+            byCategory.computeIfAbsent(category, c -> new BitSet()).set(slot);
+        }
+        if (priority != null) {
+            byPriority.computeIfAbsent(priority, p -> new BitSet()).set(slot);
+        }
+        if (dueDay != DueDate.NONE) {
+            byDueDay.computeIfAbsent(dueDay, d -> new SlotBucket()).add(slot);
+        }
+    }
+
+    /**
+     * Removes a task from the indexes
+     * @param slot slot of the task
+     * @param task the task as it was indexed
+     */
+    void remove(int slot, Task task) {
+        live.clear(slot);
+        completed.clear(slot);
+
+        TaskCategory category = task.getTaskCategory();
+        if (category != null) {
+            byCategory.get(category).clear(slot);
+        }
+        TaskPriority priority = task.getTaskPriority();
+        if (priority != null) {
+            byPriority.get(priority).clear(slot);
+        }
+        if (task.getDueDay() != DueDate.NONE) {
+            SlotBucket bucket = byDueDay.get(task.getDueDay());
+            if (bucket != null && bucket.remove(slot) && bucket.isEmpty()) {
+                byDueDay.remove(task.getDueDay());
+            }
+        }
+    }
+
+    /**
+     * Records a change of completion status
+     * @param slot slot of the task
+     * @param isCompleted the new status
+     */
+    void setCompleted(int slot, boolean isCompleted) {
+        completed.set(slot, isCompleted);
+    }
+
+    /**
+     * Passes the slot of every task matching the query to the action
+     * With a due date range, matches are visited in due date order; otherwise in slot order
+     * @param query criteria to match
+     * @param action receives the matching slots
+     */
+    void forEachMatch(TaskQuery query, IntConsumer action) {
+        BitSet filter = filterFor(query);
+
+        if (query.hasDueRange()) {
+            NavigableMap<Integer, SlotBucket> range = byDueDay;
+            if (query.getDueFrom() != DueDate.NONE) {
+                range = range.tailMap(query.getDueFrom(), true);
+            }
+            if (query.getDueTo() != DueDate.NONE) {
+                range = range.headMap(query.getDueTo(), false);
+            }
+
+            for (SlotBucket bucket : range.values()) {
+                for (int i = 0; i < bucket.size; i++) {
+                    int slot = bucket.slots[i];
+                    if (filter == null || filter.get(slot)) {
+                        action.accept(slot);
+                    }
+                }
+            }
+            return;
+        }
+
+        BitSet matches = filter != null ? filter : live;
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            action.accept(slot);
+        }
+    }
+
+    /**
+     * Combines the category, priority and completion criteria into one bit set
+     * @return the combined set, or null if the query sets none of these criteria
+     */
+    private BitSet filterFor(TaskQuery query) {
+        BitSet filter = null;
+
+        if (query.getCategory() != null) {
+            filter = and(filter, byCategory.get(query.getCategory()));
+        }
+        if (query.getPriority() != null) {
+            filter = and(filter, byPriority.get(query.getPriority()));
+        }
+        if (query.getCompleted() != null) {
+            if (filter == null) {
+                filter = (BitSet) live.clone();
+            }
+            if (query.getCompleted()) {
+                filter.and(completed);
+            } else {
+                filter.andNot(completed);
+            }
+        }
+        return filter;
+    }
+
+    private static BitSet and(BitSet filter, BitSet bucket) {
+        if (bucket == null) {
+            return new BitSet(); //no task has this value
+        }
+        if (filter == null) {
+            return (BitSet) bucket.clone();
+        }
+        filter.and(bucket);
+        return filter;
+    }
+
+    /**
+     * Slots of the tasks sharing one due date
+     */
+    private static final class SlotBucket {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        boolean remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package Controller;
+
+import Model.Task;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only log of task mutations used by the journal persistence mode.
+ * The log is split into segment files named after the snapshot file and the sequence number
+ * of their first record (e.g. todolist.txt.1.log), so compaction can start a new segment
+ * and drop the old ones once a snapshot covering them has been written.
+ * Appends and syncs are synchronized because the sync may run on the persistence thread.
+ * Records appended between beginBatch and endBatch are written as one batch record, so a crash never leaves
+ * part of a batch in the log.
+ * Segments start with a marker and every record ends with a CRC32C checksum of its length, type and payload. A replay
+ * stops a segment at the first record that is torn, fails its checksum or cannot be decoded, truncates the segment
+ * there and goes on with the next one, so one damaged record never keeps the later segments from being replayed.
+ * Segments written before the checksums were added have no marker and are replayed without them
+ */
+class TaskJournal implements Closeable {
+    static final byte OP_ADD = 1; //record holding a new task
+    static final byte OP_COMPLETE = 2; //record holding the ID of a completed task
+    static final byte OP_DELETE = 3; //record holding the ID of a deleted task
+    static final byte OP_UPDATE = 4; //record holding the new contents of a task
+    static final byte OP_BATCH = 5; //record holding other records that are applied together
+    static final byte OP_RESTORE = 6; //record holding the ID of the task a restored task goes in front of, then the task
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int SEGMENT_MAGIC = 0x8A4A524E; //first field of a segment with checksums; negative, so never a record length
+
+    private final Path directory; //directory that holds the snapshot and the log segments
+    private final String segmentPrefix; //snapshot file name followed by a dot
+    private ByteBuffer taskBuffer = ByteBuffer.allocate(256); //reused buffer for encoding tasks
+
+    private DataOutputStream out; //stream of the active segment, null until the next append
+    private FileChannel channel; //file of the active segment, forced to disk by sync
+    private final CRC32C crc = new CRC32C(); //checksum of the record being written to the active segment
+    private ByteArrayOutputStream batchBytes; //records of the open batch, null outside a batch
+    private DataOutputStream batchOut; //stream writing to batchBytes
+    private int batchRecords; //number of records in the open batch
+    private long nextSeq = 1; //sequence number of the next record
+    private long recordCount; //number of records in the active segment
+    private boolean positioned; //true once nextSeq reflects the segments on disk
+
+    /**
+     * Creates a journal whose segments live next to the given snapshot file
+     * @param snapshotPath path of the snapshot file
+     */
+    TaskJournal(Path snapshotPath) {
+        Path absolute = snapshotPath.toAbsolutePath();
+        this.directory = absolute.getParent();
+        this.segmentPrefix = absolute.getFileName() + ".";
+    }
+
+    /**
+     * Replays every record newer than the snapshot onto the given store
+     * @param tasks store to apply the records to, or null to only count the records
+     * @param snapshotSeq sequence number of the last record already contained in the snapshot
+     * @return true if at least one segment was found
+     * @throws IOException if a segment cannot be read
+     */
+    synchronized boolean replay(TaskStore tasks, long snapshotSeq) throws IOException {
+        close();
+        List<Long> bases = listSegmentBases();
+        long lastSeq = snapshotSeq;
+
+        for (long base : bases) {
+            lastSeq = Math.max(lastSeq, replaySegment(base, tasks, snapshotSeq));
+        }
+
+        nextSeq = lastSeq + 1;
+        recordCount = 0; //appends always start a fresh segment
+        positioned = true;
+        return !bases.isEmpty();
+    }
+
+    /**
+     * Appends a record for an added task
+     * @param task the added task
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void appendAdd(Task task) throws IOException {
+        appendTaskRecord(OP_ADD, task);
+    }
+
+    /**
+     * Appends a record for a task whose contents were replaced
+     * @param task the new contents, carrying the task's ID
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void appendUpdate(Task task) throws IOException {
+        appendTaskRecord(OP_UPDATE, task);
+    }
+
+    /**
+     * Appends a record for a deleted task that was put back
+     * @param task the restored task
+     * @param beforeId ID of the task it was put in front of, or 0 if it was appended
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void appendRestore(Task task, long beforeId) throws IOException {
+        taskBuffer = TaskCodec.encode(task, taskBuffer);
+        DataOutputStream target = beginRecord(OP_RESTORE, Long.BYTES + taskBuffer.remaining());
+        target.writeLong(beforeId);
+        target.write(taskBuffer.array(), taskBuffer.arrayOffset() + taskBuffer.position(), taskBuffer.remaining());
+        endRecord();
+    }
+
+    /**
+     * Appends a record for a task marked as completed
+     * @param id ID of the task
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void appendCompleted(long id) throws IOException {
+        appendIdRecord(OP_COMPLETE, id);
+    }
+
+    /**
+     * Appends a record for a deleted task
+     * @param id ID of the task
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void appendDelete(long id) throws IOException {
+        appendIdRecord(OP_DELETE, id);
+    }
+
+    /**
+     * Starts collecting records into a batch instead of writing them one by one
+     */
+    synchronized void beginBatch() {
+        batchBytes = new ByteArrayOutputStream();
+        batchOut = new DataOutputStream(batchBytes);
+        batchRecords = 0;
+    }
+
+    /**
+     * Writes the records collected since beginBatch as a single batch record
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void endBatch() throws IOException {
+        ByteArrayOutputStream bytes = batchBytes;
+        int records = batchRecords;
+        batchBytes = null;
+        batchOut = null;
+        if (records == 0) {
+            return;
+        }
+
+        DataOutputStream target = beginRecord(OP_BATCH, bytes.size());
+        bytes.writeTo(target);
+        endRecord();
+        recordCount += records - 1; //compaction is triggered by the number of changes, not of batches
+    }
+
+    /**
+     * Writes buffered records and forces the active segment to disk, so that they survive a crash or power failure
+     * @throws IOException if the records cannot be written
+     */
+    synchronized void sync() throws IOException {
+        if (out != null) {
+            out.flush();
+            channel.force(false); //the segment's length is all the metadata a replay needs
+        }
+    }
+
+    /**
+     * @return number of records in the active segment
+     */
+    synchronized long recordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Closes the active segment so that the next append starts a new one
+     * @return sequence number of the last record written so far
+     * @throws IOException if the active segment cannot be closed
+     */
+    synchronized long roll() throws IOException {
+        close();
+        recordCount = 0;
+        return nextSeq - 1;
+    }
+
+    /**
+     * Deletes all closed segments whose records are covered by a snapshot
+     * @param snapshotSeq sequence number of the last record contained in the snapshot
+     */
+    void discardSegmentsUpTo(long snapshotSeq) {
+        try {
+            for (long base : listSegmentBases()) {
+                if (base <= snapshotSeq) {
+                    Files.deleteIfExists(segmentPath(base));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to discard journal segments: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forces the active segment to disk and closes it
+     * @throws IOException if the segment cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            sync();
+            out.close();
+            out = null;
+            channel = null;
+        }
+    }
+
+    /**
+     * Writes a record holding an encoded task
+     */
+    private void appendTaskRecord(byte op, Task task) throws IOException {
+        taskBuffer = TaskCodec.encode(task, taskBuffer);
+        DataOutputStream target = beginRecord(op, taskBuffer.remaining());
+        target.write(taskBuffer.array(), taskBuffer.arrayOffset() + taskBuffer.position(), taskBuffer.remaining());
+        endRecord();
+    }
+
+    /**
+     * Writes a record holding a task ID
+     */
+    private void appendIdRecord(byte op, long id) throws IOException {
+        DataOutputStream target = beginRecord(op, Long.BYTES);
+        target.writeLong(id);
+        endRecord();
+    }
+
+    /**
+     * Writes the length prefix and type of a record to the open batch, or else to the active segment
+     * @param op record type
+     * @param payloadLength number of bytes that follow the type
+     * @return the stream the payload is written to
+     */
+    private DataOutputStream beginRecord(byte op, int payloadLength) throws IOException {
+        DataOutputStream target = batchOut;
+        if (target == null) {
+            if (out == null) {
+                openSegment();
+            }
+            target = out;
+            crc.reset(); //the stream adds every byte of the record to the checksum
+        }
+        target.writeInt(1 + payloadLength);
+        target.writeByte(op);
+        return target;
+    }
+
+    private void endRecord() throws IOException {
+        if (batchOut != null) {
+            batchRecords++; //the batch record gets the sequence number
+            return;
+        }
+        out.writeInt((int) crc.getValue());
+        nextSeq++;
+        recordCount++;
+    }
+
+    /**
+     * Opens a new segment starting at the next sequence number
+     */
+    private void openSegment() throws IOException {
+        if (!positioned) {
+            replay(null, 0); //find the next sequence number without touching the task list
+        }
+        FileOutputStream file = new FileOutputStream(segmentPath(nextSeq).toFile(), true);
+        channel = file.getChannel();
+        out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file), crc));
+        if (channel.size() == 0) {
+            out.writeInt(SEGMENT_MAGIC);
+        }
+    }
+
+    /**
+     * Replays a single segment, truncating it at the first record that is torn, damaged or unreadable
+     * @return sequence number of the last record kept in the segment
+     */
+    private long replaySegment(long base, TaskStore tasks, long snapshotSeq) throws IOException {
+        Path path = segmentPath(base);
+        long size = Files.size(path);
+        long seq = base;
+        long validLength = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            boolean isChecked = false;
+            if (size >= Integer.BYTES) {
+                in.mark(Integer.BYTES);
+                isChecked = in.readInt() == SEGMENT_MAGIC;
+                if (isChecked) {
+                    validLength = Integer.BYTES;
+                } else {
+                    in.reset(); //an older segment, which starts with its first record
+                }
+            }
+            int trailer = isChecked ? Integer.BYTES : 0;
+
+            while (true) {
+                byte[] record;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > size - validLength - Integer.BYTES - trailer) {
+                        break; //torn or garbled length prefix
+                    }
+                    record = new byte[length];
+                    in.readFully(record);
+                    if (isChecked && in.readInt() != checksum(length, record)) {
+                        System.err.println("Journal record " + seq + " fails its checksum, dropping it and the rest of " + path);
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break; //end of the segment or a torn record
+                }
+
+                if (tasks != null && seq > snapshotSeq) {
+                    Consumer<TaskStore> change;
+                    try {
+                        change = parse(ByteBuffer.wrap(record));
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Journal record " + seq + " cannot be read, dropping it and the rest of " + path + ": " + e);
+                        break;
+                    }
+                    change.accept(tasks);
+                }
+                validLength += Integer.BYTES + record.length + trailer;
+                seq++;
+            }
+        }
+
+        if (size > validLength) {
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                file.setLength(validLength); //drop the partially written record
+            }
+        }
+        return seq - 1;
+    }
+
+    /**
+     * @param length length prefix of a record
+     * @param record type and payload of the record
+     * @return CRC32C checksum of the record as it is written to a segment
+     */
+    private static int checksum(int length, byte[] record) {
+        CRC32C check = new CRC32C();
+        check.update(ByteBuffer.allocate(Integer.BYTES).putInt(0, length));
+        check.update(record);
+        return (int) check.getValue();
+    }
+
+    /**
+     * Decodes a single record into the change it makes to the task list
+     * A batch is decoded completely before any of it is applied, so an unreadable batch changes nothing
+     * @param buffer type and payload of the record
+     * @return the change
+     * @throws IOException if the record type is unknown
+     */
+    private static Consumer<TaskStore> parse(ByteBuffer buffer) throws IOException {
+        byte op = buffer.get();
+
+        switch (op) {
+            case OP_ADD -> {
+                Task task = TaskCodec.decode(buffer);
+                return tasks -> tasks.add(task);
+            }
+            case OP_UPDATE -> {
+                Task task = TaskCodec.decode(buffer);
+                return tasks -> tasks.replace(task.getId(), task);
+            }
+            case OP_COMPLETE -> {
+                long id = buffer.getLong();
+                return tasks -> tasks.markCompleted(id);
+            }
+            case OP_DELETE -> {
+                long id = buffer.getLong();
+                return tasks -> tasks.remove(id);
+            }
+            case OP_RESTORE -> {
+                long beforeId = buffer.getLong();
+                Task task = TaskCodec.decode(buffer);
+                return tasks -> tasks.insert(task, beforeId);
+            }
+            case OP_BATCH -> {
+                List<Consumer<TaskStore>> changes = new ArrayList<>();
+                while (buffer.hasRemaining()) {
+                    int length = buffer.getInt();
+                    changes.add(parse(buffer.slice().limit(length)));
+                    buffer.position(buffer.position() + length);
+                }
+                return tasks -> changes.forEach(change -> change.accept(tasks));
+            }
+            default -> throw new IOException("Unknown journal record type: " + op);
+        }
+    }
+
+    /**
+     * Lists the first sequence numbers of all segments in ascending order
+     */
+    private List<Long> listSegmentBases() throws IOException {
+        List<Long> bases = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, segmentPrefix + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                String base = name.substring(segmentPrefix.length(), name.length() - SEGMENT_SUFFIX.length());
+                try {
+                    bases.add(Long.parseLong(base));
+                } catch (NumberFormatException e) {
+                    //not a journal segment
+                }
+            }
+        }
+
+        bases.sort(null);
+        return bases;
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(segmentPrefix + base + SEGMENT_SUFFIX);
+    }
+}
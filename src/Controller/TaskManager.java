@@ -2,53 +2,804 @@ package Controller;
 
 import Model.Task;
 
-import java.io.*;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * TaskManager class handles the management of tasks
+ * The manager can be used from several threads: reads run in parallel with each other. Completing or replacing a task
+ * by ID runs in parallel with reads and with changes of other tasks as long as it only touches the task itself: no
+ * journal, synchronization versions, snapshot, secondary index, text index or sort order needs updating and the tasks
+ * are on the heap. Every other change runs one at a time
  */
 public class TaskManager {
-    private final List<Task> tasks = new ArrayList<>(); //list to store tasks
-    private final String filePath = "todolist.txt"; //file path
+    private TaskStore tasks; //tasks in list order, also addressable by ID, guarded by lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); //many readers or a single writer
+    private final String filePath; //file path
+    private static final int COMPACTION_THRESHOLD = 10_000; //journal records that trigger a new snapshot
+    private static final int UNDO_STEPS = 100; //changes that can be undone
+    private static final int UNDO_OPERATIONS = 100_000; //task changes the undo history holds over all steps
+    private static final int TASK_STRIPES = 64; //locks shared by the tasks, so changes of different tasks rarely wait for each other
+
+    private final TaskJournal journal; //mutation log, null unless journal mode is enabled
+    private final Storage storage; //how loaded tasks are held in memory
+    private ExecutorService compactor; //background thread that writes journal snapshots
+    private Future<?> pendingCompaction; //last submitted compaction
+    private boolean inBatch; //true while the changes of a batch are being logged
+    private final Object fileLock = new Object(); //serializes writes to the task file
+    private long currentSnapshotSeq; //journal sequence number of the task file, guarded by fileLock
+    private long previousSnapshotSeq; //journal sequence number of the previous generation, guarded by fileLock
+    private final TaskEventBus eventBus = new TaskEventBus(); //tells listeners about every change
+    private List<TaskEvent> changes = new ArrayList<>(); //events of the change being made, guarded by lock
+    private final TaskMetrics metrics = new TaskMetrics(this::getTaskCount); //durations of operations, loads and saves
+    private TaskVersions versions; //versions for synchronization, null unless tracked, guarded by lock
+    private boolean applyingRemote; //true while changes from another replica are applied, guarded by lock
+    private final TaskHistory history = new TaskHistory(UNDO_STEPS, UNDO_OPERATIONS); //undo and redo steps, guarded by lock
+    private TaskSnapshot workingSnapshot; //null unless snapshots are being read, then follows every change, guarded by lock
+    private volatile TaskSnapshot snapshot; //state after the last whole change, read without the lock; null if it has to be made
+    private volatile boolean isSnapshotRead; //the published snapshot was read since it was published
+    private final Object[] taskLocks = new Object[TASK_STRIPES]; //order the changes of one task made under the read lock
+
+    /**
+     * Creates a task manager that saves the whole list on every save
+     */
+    public TaskManager() {
+        this(false);
+    }
+
+    /**
+     * Creates a task manager that keeps all loaded tasks on the heap
+     * @param journalMode true to append each mutation to a log instead of rewriting the whole list on save
+     */
+    public TaskManager(boolean journalMode) {
+        this(journalMode, Storage.HEAP);
+    }
+
+    /**
+     * Creates a task manager
+     * @param journalMode true to append each mutation to a log instead of rewriting the whole list on save
+     * @param storage how loaded tasks are held in memory
+     */
+    public TaskManager(boolean journalMode, Storage storage) {
+        this(journalMode, storage, "todolist.txt");
+    }
+
+    /**
+     * Creates a task manager that keeps its tasks in the given file
+     * @param journalMode true to append each mutation to a log instead of rewriting the whole list on save
+     * @param storage how loaded tasks are held in memory
+     * @param filePath path of the task file; journal segments are written next to it
+     */
+    public TaskManager(boolean journalMode, Storage storage, String filePath) {
+        this.filePath = filePath;
+        this.journal = journalMode ? new TaskJournal(Paths.get(filePath)) : null;
+        this.storage = storage;
+        for (int i = 0; i < taskLocks.length; i++) {
+            taskLocks[i] = new Object();
+        }
+        this.tasks = newStore();
+    }
+
+    /**
+     * Ways of holding the loaded tasks in memory
+     */
+    public enum Storage {
+        HEAP, //every task is decoded when the file is loaded
+        MAPPED, //the file is memory-mapped and a task is decoded the first time it is accessed
+        OFF_HEAP //tasks are kept in off-heap columns and decoded on every access, so the heap does not grow with the list
+    }
+
+    private TaskStore newStore() {
+        return TaskStore.empty(16, 1, storage == Storage.OFF_HEAP);
+    }
 
     /**
      * Loads the list of tasks from a file
+     * In journal mode the records logged after the last snapshot are replayed on top of it
      * @return true if the tasks were successfully loaded, false otherwise
      */
     public boolean loadTasks() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
-            List<Task> loadedTasks = (List<Task>) ois.readObject(); //read tasks from the file
-            tasks.clear(); //clear the current tasks list
-            tasks.addAll(loadedTasks); //add all loaded tasks to the list
-            return true;
-        } catch (IOException | ClassNotFoundException e) {
-            return false; //return false if an IOException or ClassNotFoundException occurs
+        long start = System.nanoTime();
+        boolean loaded = write(() -> {
+            boolean succeeded = load();
+            changed(TaskEvent.Kind.RESET, 0, null);
+            return succeeded;
+        });
+        metrics.recordLoad(start, fileSize(Paths.get(filePath)), loaded);
+        return loaded;
+    }
+
+    /**
+     * Loads the snapshot and replays the journal, called with the write lock held
+     */
+    private boolean load() {
+        long snapshotSeq = loadSnapshot();
+        if (journal == null) {
+            return snapshotSeq >= 0;
+        }
+
+        try {
+            if (snapshotSeq < 0) {
+                tasks = newStore(); //no snapshot yet, the journal holds the whole history
+            }
+            boolean replayed = journal.replay(tasks, Math.max(snapshotSeq, 0));
+            return snapshotSeq >= 0 || replayed;
+        } catch (IOException e) {
+            System.err.println("Failed to replay task journal: " + e.getMessage());
+            e.printStackTrace();
+            return false;
         }
     }
 
+    /**
+     * Reads the snapshot file into the task list, falling back to the previous generation if it is damaged
+     * Files written with Java serialization are converted to the binary format on the way
+     * @return sequence number of the last journal record contained in the snapshot, or -1 if it could not be read
+     */
+    private long loadSnapshot() {
+        Path path = Paths.get(filePath);
+        try {
+            return loadSnapshot(path);
+        } catch (NoSuchFileException e) {
+            //a crash between the renames of a save leaves only the previous generation
+        } catch (IOException e) {
+            System.err.println("Failed to load tasks: " + e.getMessage());
+            e.printStackTrace();
+            try {
+                //kept for inspection, and so the next save does not replace the previous generation with it
+                Files.move(path, Paths.get(filePath + ".damaged"), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException moveFailure) {
+                System.err.println("Failed to move damaged task file aside: " + moveFailure.getMessage());
+            }
+        }
+
+        Path previous = previousGeneration();
+        try {
+            long snapshotSeq = loadSnapshot(previous);
+            System.err.println("Recovered tasks from the previous snapshot " + previous);
+            return snapshotSeq;
+        } catch (NoSuchFileException e) {
+            return -1; //there is no task file yet
+        } catch (IOException e) {
+            System.err.println("Failed to load the previous snapshot: " + e.getMessage());
+            e.printStackTrace();
+            return -1; //return -1 if the file cannot be read
+        }
+    }
+
+    /**
+     * Reads one generation of the snapshot file into the task list
+     * @param path the file
+     * @return sequence number of the last journal record contained in the snapshot
+     * @throws IOException if the file is missing or damaged
+     */
+    private long loadSnapshot(Path path) throws IOException {
+        TaskCodec.Snapshot snapshot = storage == Storage.MAPPED ? TaskCodec.map(path)
+                : TaskCodec.read(path, storage == Storage.OFF_HEAP); //read tasks from the file
+        synchronized (fileLock) {
+            currentSnapshotSeq = snapshot.journalSeq();
+            previousSnapshotSeq = snapshot.journalSeq();
+        }
+        if (snapshot.legacy() && writeSnapshotFile(snapshot.tasks(), snapshot.journalSeq()) && storage == Storage.MAPPED) {
+            snapshot = TaskCodec.map(Paths.get(filePath)); //map the file now that it is in the binary format
+        }
+        tasks = snapshot.tasks();
+        return snapshot.journalSeq();
+    }
+
+    /**
+     * @return path of the previous generation of the snapshot file, replaced by every save
+     */
+    private Path previousGeneration() {
+        return Paths.get(filePath + ".prev");
+    }
+
     /**
      * Saves the list of tasks to a file
+     * In journal mode the mutations are already logged, so only the pending records are written and forced to disk
      * @return true if the tasks were successfully saved, false otherwise
      */
     public boolean saveTasks() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
-            oos.writeObject(tasks); //write the tasks list to the file
-            return true;
+        return prepareSave().getAsBoolean();
+    }
+
+    /**
+     * Captures the current tasks so that they can be saved on another thread
+     * Only the list of task references is copied here; encoding and writing happen when the returned save runs
+     * @return the save to perform, returning true if the tasks were successfully saved
+     */
+    public BooleanSupplier prepareSave() {
+        if (journal != null) {
+            return measuredSave(null, () -> {
+                try {
+                    journal.sync(); //the mutations are already in the journal; a save must also survive a power failure
+                    return true;
+                } catch (IOException e) {
+                    System.err.println("Failed to save tasks: " + e.getMessage());
+                    e.printStackTrace();
+                    return false;
+                }
+            });
+        }
+
+        TaskStore snapshot = write(() -> tasks.copy());
+        return measuredSave(Paths.get(filePath), () -> writeSnapshotFile(snapshot, 0)); //the file is replaced, never truncated in place
+    }
+
+    /**
+     * Records the duration and size of a save when it runs
+     * @param file file the save writes, or null if it only flushes the journal
+     * @param save the save
+     * @return the save, recording its metrics
+     */
+    private BooleanSupplier measuredSave(Path file, BooleanSupplier save) {
+        return () -> {
+            long start = System.nanoTime();
+            boolean saved = save.getAsBoolean();
+            metrics.recordSave(start, saved && file != null ? fileSize(file) : 0, saved);
+            return saved;
+        };
+    }
+
+    private static long fileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0; //the file does not exist
+        }
+    }
+
+    /**
+     * Writes a snapshot that covers the journal up to the given record, then drops the segments covered by the
+     * previous generation; the segments after it are kept so that generation can still be brought up to date
+     * @param snapshot tasks to write
+     * @param snapshotSeq sequence number of the last journal record reflected in the snapshot
+     */
+    private void compactJournal(TaskStore snapshot, long snapshotSeq) {
+        if (writeSnapshotFile(snapshot, snapshotSeq)) {
+            long previousSeq;
+            synchronized (fileLock) {
+                previousSeq = previousSnapshotSeq;
+            }
+            journal.discardSegmentsUpTo(previousSeq);
+        } //otherwise the segments are kept and replayed on the next load
+    }
+
+    /**
+     * Replaces the task file with a new snapshot, keeping the replaced file as the previous generation
+     * The snapshot is written to a temporary file and forced to disk before it is renamed over the task file, so a
+     * crash leaves either the old or the new file behind, never a partial one
+     * @param snapshot tasks to write
+     * @param snapshotSeq sequence number of the last journal record reflected in the snapshot
+     * @return true if the snapshot was written
+     */
+    private boolean writeSnapshotFile(TaskStore snapshot, long snapshotSeq) {
+        Path target = Paths.get(filePath);
+        Path temp = Paths.get(filePath + ".tmp");
+
+        synchronized (fileLock) {
+            try {
+                TaskCodec.write(temp, snapshot, snapshotSeq, true);
+                if (Files.exists(target)) {
+                    Files.move(target, previousGeneration(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    previousSnapshotSeq = currentSnapshotSeq;
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                currentSnapshotSeq = snapshotSeq;
+                syncDirectory(target.toAbsolutePath().getParent());
+                return true;
+            } catch (IOException e) {
+                System.err.println("Failed to write snapshot: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Forces the renames in a directory to disk
+     * Not every platform can open a directory; the renames are atomic there anyway
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
         } catch (IOException e) {
-            System.err.println("Failed to save tasks: " + e.getMessage());
+            //directories cannot be forced on this platform
+        }
+    }
+
+    /**
+     * Logs a mutation in journal mode and starts a background compaction once the active segment is large enough
+     * @param record the journal write to perform
+     */
+    private void logMutation(JournalWrite record) {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            record.write(journal);
+            if (!inBatch) {
+                compactIfNeeded();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to log task change: " + e.getMessage());
             e.printStackTrace();
-            return false;
         }
     }
 
+    /**
+     * Starts a background compaction if the active journal segment is large enough
+     * Never called inside a batch, so a snapshot never holds part of a batch
+     */
+    private void compactIfNeeded() throws IOException {
+        if (journal.recordCount() >= COMPACTION_THRESHOLD && (pendingCompaction == null || pendingCompaction.isDone())) {
+            long snapshotSeq = journal.roll();
+            TaskStore snapshot = tasks.copy();
+            pendingCompaction = compactor().submit(() -> compactJournal(snapshot, snapshotSeq));
+        }
+    }
+
+    /**
+     * Runs several changes with the write lock held, logging them as one journal record
+     * @param changes the changes to run
+     * @return the result of the changes
+     */
+    private <T> T writeBatch(Supplier<T> changes) {
+        return timed(TaskMetrics.Operation.BATCH, () -> write(() -> {
+            if (journal == null) {
+                return changes.get();
+            }
+
+            journal.beginBatch();
+            inBatch = true;
+            try {
+                return changes.get();
+            } finally {
+                inBatch = false;
+                try {
+                    journal.endBatch();
+                    compactIfNeeded();
+                } catch (IOException e) {
+                    System.err.println("Failed to log task changes: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Runs an operation and records its duration, including the time spent waiting for the lock
+     * @param operation the operation being timed
+     * @param work the operation
+     * @return the result of the operation
+     */
+    private <T> T timed(TaskMetrics.Operation operation, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            metrics.record(operation, start);
+        }
+    }
+
+    private ExecutorService compactor() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return compactor;
+    }
+
+    /**
+     * A single write to the journal
+     */
+    private interface JournalWrite {
+        void write(TaskJournal journal) throws IOException;
+    }
+
+    /**
+     * Runs a read while holding the read lock, so it can overlap with other reads
+     * If the store still has lazy work to do before it can be read safely, the read runs under the write lock instead
+     * @param isReady tells whether the store can serve the read without changing
+     * @param read the read to run
+     * @return the result of the read
+     */
+    private <T> T read(Predicate<TaskStore> isReady, Supplier<T> read) {
+        lock.readLock().lock();
+        try {
+            if (isReady.test(tasks)) {
+                return read.get();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return write(() -> {
+            tasks.prepareReads(); //later reads can share the read lock
+            return read.get();
+        });
+    }
+
+    private <T> T read(Supplier<T> read) {
+        return read(TaskStore::isReadable, read);
+    }
+
+    /**
+     * Runs a change while holding the write lock
+     * @param write the change to run
+     * @return the result of the change
+     */
+    private <T> T write(Supplier<T> write) {
+        lock.writeLock().lock();
+        try {
+            return write.get();
+        } finally {
+            if (lock.writeLock().getHoldCount() == 1) {
+                history.endChange(); //the outermost write closes the undo step, like the events
+                if (snapshot != workingSnapshot) {
+                    snapshot = workingSnapshot; //readers never see part of a batch
+                    isSnapshotRead = false;
+                }
+            }
+            if (!changes.isEmpty() && lock.writeLock().getHoldCount() == 1) {
+                List<TaskEvent> events = changes;
+                changes = new ArrayList<>();
+                eventBus.publish(events); //the outermost write publishes, so nested writes form one change
+            }
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the files and threads of this manager; save the tasks first, and make no changes afterwards
+     * Waits for a running journal compaction and closes the active journal segment
+     */
+    public void close() {
+        ExecutorService running = write(() -> {
+            ExecutorService current = compactor;
+            compactor = null;
+            return current;
+        });
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close task journal: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the event bus that reports every change to the tasks
+     * The events of a change are published before the change releases the lock, so listeners get them in the order
+     * of the changes, and a batch arrives as one list
+     * @return the event bus
+     */
+    public TaskEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Retrieves the metrics of this manager: durations of changes, loads and saves, and the number of tasks
+     * @return the metrics
+     */
+    public TaskMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Runs a change of a single task under the read lock and the lock of the task's stripe when the change touches
+     * nothing but the task, so changes of different tasks run side by side; otherwise under the write lock
+     * @param id ID of the task
+     * @param change the change, which reports itself through recordUndo, changed and logMutation as usual
+     * @return the result of the change
+     */
+    private boolean writeTask(long id, BooleanSupplier change) {
+        lock.readLock().lock();
+        try {
+            if (journal == null && versions == null && workingSnapshot == null && tasks.canChangeInPlace()) {
+                synchronized (taskLocks[(int) (id ^ (id >>> 32)) & (TASK_STRIPES - 1)]) {
+                    return change.getAsBoolean();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return write(change::getAsBoolean);
+    }
+
+    /**
+     * Records an event of the change being made, called with the write lock held, or by a change of a single task run
+     * by writeTask, whose event is published at once
+     * @param kind what changed
+     * @param id ID of the changed task
+     * @param task the task after the change, or null
+     */
+    private void changed(TaskEvent.Kind kind, long id, Task task) {
+        if (!lock.isWriteLockedByCurrentThread()) {
+            if (eventBus.hasSubscribers()) {
+                eventBus.publish(List.of(new TaskEvent(kind, id, task))); //a change of a single task made by writeTask
+            }
+            return; //writeTask only runs changes that have nothing else to update
+        }
+        if (eventBus.hasSubscribers()) {
+            changes.add(new TaskEvent(kind, id, task));
+        }
+        if (kind == TaskEvent.Kind.RESET) {
+            history.clear(); //the steps refer to the list that was replaced
+        }
+        if (workingSnapshot != null && workingSnapshot == snapshot && !isSnapshotRead) {
+            workingSnapshot = null; //nobody read the last snapshot, so stop paying for its upkeep
+        }
+        if (workingSnapshot != null) {
+            workingSnapshot = switch (kind) {
+                case ADDED -> workingSnapshot.withAdded(task, tasks.idAfter(id));
+                case UPDATED, COMPLETED -> workingSnapshot.withReplaced(task);
+                case DELETED -> workingSnapshot.withRemoved(id);
+                case RESET -> null; //made again from the new list when it is next asked for
+            };
+        }
+        if (versions != null && !applyingRemote) {
+            if (kind == TaskEvent.Kind.RESET) {
+                versions.reconcile(tasks);
+            } else {
+                versions.localChange(kind, id, task);
+            }
+        }
+    }
+
+    /**
+     * Records how to revert part of the change being made, unless the change comes from another replica
+     * @param revert the reverting change
+     */
+    private void recordUndo(TaskBatch.Operation revert) {
+        if (!lock.isWriteLockedByCurrentThread()) {
+            history.recordStep(revert); //a change of a single task made by writeTask is a step of its own
+        } else if (!applyingRemote) {
+            history.record(revert);
+        }
+    }
+
+    /**
+     * Starts recording a version for every change, for synchronizing with other replicas
+     * The current tasks are reconciled with the versions first, so changes made while they were not tracked count
+     * as local changes
+     * @param versions the versions, as last saved
+     */
+    void trackVersions(TaskVersions versions) {
+        write(() -> {
+            versions.reconcile(tasks);
+            this.versions = versions;
+            return null;
+        });
+    }
+
+    /**
+     * Applies changes received from another replica as one batch; the caller records their versions
+     * @param changes the changes, made through the public methods of this manager
+     * @return the result of the changes
+     */
+    <T> T applyRemote(Supplier<T> changes) {
+        return writeBatch(() -> {
+            applyingRemote = true;
+            try {
+                return changes.get();
+            } finally {
+                applyingRemote = false;
+            }
+        });
+    }
+
+    /**
+     * Works with the versions while no change can happen, such as listing or saving them
+     * @param action the work
+     * @return the result of the work
+     */
+    <T> T withVersions(Supplier<T> action) {
+        return write(action);
+    }
+
     /**
      * Retrieves all tasks
-     * @return A new list containing all tasks
+     * @return an unmodifiable list of all tasks as they are now, which later changes do not affect
      */
     public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks); //return a copy of the tasks list
+        return snapshot();
+    }
+
+    /**
+     * Retrieves the tasks as they are after the last whole change, without taking a lock or copying the list
+     * With heap storage a snapshot is made from the list when none is kept; while snapshots are read, every change
+     * makes a new snapshot that shares most of the previous one, in logarithmic time. A change made after the last
+     * snapshot went unread stops that upkeep. With mapped or off-heap storage every call makes a new snapshot, so the
+     * decoded tasks do not stay on the heap. Readers of a snapshot never hold up changes
+     * @return the snapshot
+     */
+    public TaskSnapshot snapshot() {
+        if (storage != Storage.HEAP) {
+            return read(() -> TaskSnapshot.of(tasks));
+        }
+        TaskSnapshot current = snapshot;
+        if (current == null) {
+            current = write(() -> {
+                if (workingSnapshot == null) {
+                    workingSnapshot = TaskSnapshot.of(tasks); //published when the lock is released
+                }
+                return workingSnapshot;
+            });
+        }
+        isSnapshotRead = true;
+        return current;
+    }
+
+    /**
+     * Passes every task to the action in list order without copying the list
+     * No task can be added or removed while the tasks are visited; a task completed or replaced by ID at the same time
+     * may be seen before or after the change, but never in part. The action must not change the tasks through this
+     * manager
+     * @param action receives the tasks
+     */
+    public void forEachTask(Consumer<Task> action) {
+        read(() -> {
+            for (int i = 0; i < tasks.size(); i++) {
+                action.accept(tasks.get(i));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Retrieves the number of tasks without copying the list
+     * @return number of tasks
+     */
+    public int getTaskCount() {
+        return read(store -> true, () -> tasks.size()); //the count never needs lazy work
+    }
+
+    /**
+     * Retrieves a single task
+     * @param index index of the task
+     * @return the task, or null if the index is invalid
+     */
+    public Task getTask(int index) {
+        return read(() -> index < 0 || index >= tasks.size() ? null : tasks.get(index));
+    }
+
+    /**
+     * Retrieves the ID of the task at an index
+     * @param index index of the task
+     * @return the task's ID, or 0 if the index is invalid
+     */
+    public long getTaskId(int index) {
+        return read(() -> index < 0 || index >= tasks.size() ? 0 : tasks.idAt(index));
+    }
+
+    /**
+     * Finds the current index of a task
+     * @param id ID of the task
+     * @return index of the task, or -1 if there is no task with the ID
+     */
+    public int indexOfTask(long id) {
+        return read(() -> tasks.indexOf(id));
+    }
+
+    /**
+     * Retrieves a task by its ID
+     * @param id ID of the task
+     * @return the task, or null if there is no task with the ID
+     */
+    public Task getTaskById(long id) {
+        return read(() -> tasks.getById(id));
+    }
+
+    /**
+     * Finds the tasks matching a query without scanning the whole list
+     * The first query builds indexes on due date, category, priority and completion status
+     * @param query criteria to match
+     * @return the matching tasks, ordered by due date if the query restricts the due date
+     */
+    public List<Task> findTasks(TaskQuery query) {
+        return read(store -> store.isReadable() && store.hasQueryIndex(), () -> tasks.find(query));
+    }
+
+    /**
+     * Searches the titles and descriptions of the tasks
+     * All words of the query must match unless they are joined by "OR"; a word ending with '*', and the last word
+     * while it is still being typed, also matches longer words starting with it
+     * @param query the search text
+     * @param limit maximum number of results
+     * @return IDs of the matching tasks, tasks matching in the title first
+     */
+    public long[] searchTasks(String query, int limit) {
+        return read(store -> store.isReadable() && store.hasTextIndex(), () -> tasks.search(query, limit));
+    }
+
+    /**
+     * Counts the tasks shown by a view
+     * The first use of a sort key orders all tasks by it; from then on every change keeps the order up to date
+     * @param view the view
+     * @return number of tasks in the view
+     */
+    public int getViewSize(TaskView view) {
+        return readView(view, () -> tasks.viewSize(view));
+    }
+
+    /**
+     * Retrieves the ID of the task in a row of a view
+     * @param view the view
+     * @param row row of the view
+     * @return the task's ID, or 0 if the row is invalid
+     */
+    public long getViewTaskId(TaskView view, int row) {
+        return readView(view, () -> row < 0 || row >= tasks.viewSize(view) ? 0 : tasks.viewIdAt(view, row));
+    }
+
+    /**
+     * Retrieves the task in a row of a view
+     * @param view the view
+     * @param row row of the view
+     * @return the task, or null if the row is invalid
+     */
+    public Task getViewTask(TaskView view, int row) {
+        return readView(view, () -> row < 0 || row >= tasks.viewSize(view) ? null : tasks.getById(tasks.viewIdAt(view, row)));
+    }
+
+    /**
+     * Finds the row of a task in a view
+     * @param view the view
+     * @param id ID of the task
+     * @return row of the task, or -1 if the view does not show it
+     */
+    public int viewRowOfTask(TaskView view, long id) {
+        return readView(view, () -> tasks.viewRowOf(view, id));
+    }
+
+    /**
+     * Sorts task IDs, such as search results, in the order of a view and drops the ones the view does not show
+     * @param ids task IDs, sorted in place
+     * @param count number of IDs to sort
+     * @param view the view
+     * @return number of IDs kept, at the start of the array
+     */
+    public int sortTaskIds(long[] ids, int count, TaskView view) {
+        return read(() -> tasks.sortIds(ids, count, view));
+    }
+
+    private <T> T readView(TaskView view, Supplier<T> read) {
+        return read(store -> store.isReadable() && store.hasOrder(view.getKey()), read); //the order is built under the write lock
     }
 
     /**
@@ -57,48 +808,273 @@ public class TaskManager {
      * @return true if task is marked as complete
      */
     public boolean markTaskAsCompleted(int index) {
-        if (index < 0 || index >= tasks.size()) {
-            return false;
-        }
-        Task task = tasks.get(index);
+        return write(() -> index >= 0 && index < tasks.size() && markTaskAsCompletedById(tasks.idAt(index)));
+    }
 
-        if (task != null) {
-            task.setCompleted(true); //update the completed status of the task
-            return true;
-        }
-        return false;
+    /**
+     * Marks a task as completed based on its ID
+     * @param id ID of the task to be marked as completed
+     * @return true if task is marked as complete
+     */
+    public boolean markTaskAsCompletedById(long id) {
+        return timed(TaskMetrics.Operation.COMPLETE, () -> writeTask(id, () -> {
+            Task old = tasks.getById(id);
+            Task task = tasks.markCompleted(id); //update the completed status of the task
+
+            if (task != null) {
+                if (!old.isCompleted()) {
+                    recordUndo(new TaskBatch.Operation(TaskBatch.Kind.UPDATE, id, old));
+                }
+                changed(TaskEvent.Kind.COMPLETED, id, task);
+                logMutation(j -> j.appendCompleted(id));
+                return true;
+            }
+            return false;
+        }));
     }
 
     /**
      * Adds a new task to the list
+     * A task without an ID is given a new one; the stored task is available through getTaskById
      * @param task task to be added
      * @return true if task is added
      */
     public boolean addTask(Task task) {
+        return storeTask(task) != null;
+    }
+
+    /**
+     * Adds a new task to the list and returns it as stored
+     * @param task task to be added
+     * @return the stored task with its ID, or null if the task was not added
+     */
+    public Task storeTask(Task task) {
         if (task == null) {
-            return false; //task is null, cannot be added
+            return null; //task is null, cannot be added
         }
         if (task.getTitle() == null || task.getTitle().isBlank()) {
-            return false;
+            return null;
+        }
+
+        return timed(TaskMetrics.Operation.ADD, () -> write(() -> {
+            Task stored = tasks.add(task); //add task to the list
+            if (stored == null) {
+                return null; //a task with the same ID already exists
+            }
+            recordUndo(new TaskBatch.Operation(TaskBatch.Kind.DELETE, stored.getId(), null));
+            changed(TaskEvent.Kind.ADDED, stored.getId(), stored);
+            logMutation(j -> j.appendAdd(stored));
+            return stored;
+        }));
+    }
+
+    /**
+     * Adds several tasks to the end of the list as one change
+     * The write lock is taken once for the whole batch, so readers see either none or all of the tasks
+     * @param batch tasks to be added
+     * @return number of tasks added; tasks that are null, have no title or reuse an existing ID are skipped
+     */
+    public int addTasks(List<Task> batch) {
+        return writeBatch(() -> {
+            int added = 0;
+            for (Task task : batch) {
+                if (task == null || task.getTitle() == null || task.getTitle().isBlank()) {
+                    continue;
+                }
+                Task stored = tasks.add(task);
+                if (stored != null) {
+                    recordUndo(new TaskBatch.Operation(TaskBatch.Kind.DELETE, stored.getId(), null));
+                    changed(TaskEvent.Kind.ADDED, stored.getId(), stored);
+                    logMutation(j -> j.appendAdd(stored));
+                    added++;
+                }
+            }
+            return added;
+        });
+    }
+
+    /**
+     * Applies all changes of a batch as one change, or none of them if any cannot be applied
+     * A batch cannot be applied if it adds a task without a title or with an ID already in use, or changes a task
+     * that does not exist (including one deleted earlier in the same batch)
+     * @param batch the changes to apply
+     * @return true if the batch was applied
+     */
+    public boolean applyBatch(TaskBatch batch) {
+        return writeBatch(() -> {
+            if (!canApply(batch)) {
+                return false;
+            }
+
+            for (TaskBatch.Operation operation : batch.operations()) {
+                long id = operation.id();
+                switch (operation.kind()) {
+                    case ADD -> {
+                        Task stored = tasks.add(operation.task());
+                        recordUndo(new TaskBatch.Operation(TaskBatch.Kind.DELETE, stored.getId(), null));
+                        changed(TaskEvent.Kind.ADDED, stored.getId(), stored);
+                        logMutation(j -> j.appendAdd(stored));
+                    }
+                    case UPDATE -> {
+                        recordUndo(new TaskBatch.Operation(TaskBatch.Kind.UPDATE, id, tasks.getById(id)));
+                        Task stored = tasks.replace(id, operation.task());
+                        changed(TaskEvent.Kind.UPDATED, id, stored);
+                        logMutation(j -> j.appendUpdate(stored));
+                    }
+                    case COMPLETE -> {
+                        Task old = tasks.getById(id);
+                        if (!old.isCompleted()) {
+                            recordUndo(new TaskBatch.Operation(TaskBatch.Kind.UPDATE, id, old));
+                        }
+                        changed(TaskEvent.Kind.COMPLETED, id, tasks.markCompleted(id));
+                        logMutation(j -> j.appendCompleted(id));
+                    }
+                    case DELETE -> {
+                        long nextId = tasks.idAfter(id);
+                        Task removed = tasks.remove(id);
+                        recordUndo(new TaskBatch.Operation(TaskBatch.Kind.RESTORE, nextId, removed));
+                        changed(TaskEvent.Kind.DELETED, id, null);
+                        logMutation(j -> j.appendDelete(id));
+                    }
+                    case RESTORE -> {
+                        Task stored = tasks.insert(operation.task(), id);
+                        recordUndo(new TaskBatch.Operation(TaskBatch.Kind.DELETE, stored.getId(), null));
+                        changed(TaskEvent.Kind.ADDED, stored.getId(), stored);
+                        logMutation(j -> j.appendRestore(stored, id));
+                    }
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Checks every change of a batch against the tasks as they will be when the change runs
+     */
+    private boolean canApply(TaskBatch batch) {
+        Set<Long> deleted = new HashSet<>();
+        Set<Long> added = new HashSet<>();
+
+        for (TaskBatch.Operation operation : batch.operations()) {
+            Task task = operation.task();
+            if (operation.kind() != TaskBatch.Kind.COMPLETE && operation.kind() != TaskBatch.Kind.DELETE) {
+                if (task == null || task.getTitle() == null || task.getTitle().isBlank()) {
+                    return false;
+                }
+            }
+
+            if (operation.kind() == TaskBatch.Kind.ADD || operation.kind() == TaskBatch.Kind.RESTORE) {
+                long id = task.getId();
+                if (id != 0 && ((tasks.getById(id) != null && !deleted.contains(id)) || !added.add(id))) {
+                    return false; //the ID is already in use
+                }
+                deleted.remove(id);
+            } else {
+                long id = operation.id();
+                boolean exists = (tasks.getById(id) != null || added.contains(id)) && !deleted.contains(id);
+                if (!exists) {
+                    return false;
+                }
+                if (operation.kind() == TaskBatch.Kind.DELETE) {
+                    deleted.add(id);
+                    added.remove(id);
+                }
+            }
         }
-        
-        tasks.add(task); //add task to the list
         return true;
     }
 
+    /**
+     * Replaces the contents of a task, keeping its ID and position
+     * @param id ID of the task
+     * @param task new contents of the task
+     * @return true if the task is updated
+     */
+    public boolean updateTaskById(long id, Task task) {
+        if (task == null || task.getTitle() == null || task.getTitle().isBlank()) {
+            return false;
+        }
+
+        return timed(TaskMetrics.Operation.UPDATE, () -> writeTask(id, () -> {
+            Task old = tasks.getById(id);
+            if (old == null) {
+                return false; //there is no task with the ID
+            }
+            Task stored = tasks.replace(id, task);
+            recordUndo(new TaskBatch.Operation(TaskBatch.Kind.UPDATE, id, old));
+            changed(TaskEvent.Kind.UPDATED, id, stored);
+            logMutation(j -> j.appendUpdate(stored));
+            return true;
+        }));
+    }
+
     /**
      * Deletes a task from the list based on its index
      * @param index The index of the task to be deleted
      * @return true if task is deleted
      */
     public boolean deleteTask(int index) {
-        if (index < 0 || index >= tasks.size()) {
-            return false; //index is invalid
-        }
+        return write(() -> index >= 0 && index < tasks.size() && deleteTaskById(tasks.idAt(index))); //false if the index is invalid
+    }
 
-        //remove the task from  the list
-        tasks.remove(index);
-        return true;
+    /**
+     * Deletes a task from the list based on its ID
+     * The positions of the remaining tasks are updated lazily, so deleting many tasks in a row stays cheap
+     * @param id ID of the task to be deleted
+     * @return true if task is deleted
+     */
+    public boolean deleteTaskById(long id) {
+        return timed(TaskMetrics.Operation.DELETE, () -> write(() -> {
+            long nextId = tasks.idAfter(id);
+            Task removed = tasks.remove(id);
+            if (removed == null) {
+                return false; //there is no task with the ID
+            }
+            recordUndo(new TaskBatch.Operation(TaskBatch.Kind.RESTORE, nextId, removed));
+            changed(TaskEvent.Kind.DELETED, id, null);
+            logMutation(j -> j.appendDelete(id));
+            return true;
+        }));
+    }
+
+    /**
+     * Reverts the latest change that has not been undone, as one change that is saved and published like any other
+     * A batch is undone as a whole, and deleted tasks come back with their IDs in their previous place. Changes from
+     * other replicas are not undone. A step that no longer fits the list, e.g. because a sync deleted its task, is
+     * dropped
+     * @return true if a change was undone
+     */
+    public boolean undo() {
+        return write(() -> {
+            TaskBatch step = history.takeUndo();
+            return step != null && applyBatch(step);
+        });
+    }
+
+    /**
+     * Makes the latest undone change again
+     * A new change other than an undo or redo drops the changes that can be redone
+     * @return true if a change was made again
+     */
+    public boolean redo() {
+        return write(() -> {
+            TaskBatch step = history.takeRedo();
+            return step != null && applyBatch(step);
+        });
+    }
+
+    /**
+     * @return true if there is a change to undo
+     */
+    public boolean canUndo() {
+        return read(store -> true, history::canUndo);
+    }
+
+    /**
+     * @return true if there is an undone change to make again
+     */
+    public boolean canRedo() {
+        return read(store -> true, history::canRedo);
     }
 
 }
@@ -0,0 +1,251 @@
+package Controller;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Latency histograms and counters of a task manager
+ * The task manager times its own operations, loads and saves; the table model times its refreshes. The metrics can
+ * be read through JMX once registered, and written as a JSON line at a fixed interval. A background thread also
+ * measures how long work posted to the event dispatch thread waits, which shows when the user interface is blocked
+ */
+public final class TaskMetrics implements TaskMetricsMXBean {
+    private static final String OBJECT_NAME = "todo:type=TaskMetrics";
+    private static final long EDT_PROBE_MILLIS = 100; //interval of the event dispatch thread probe
+
+    /**
+     * Operations whose duration is recorded
+     */
+    public enum Operation {
+        ADD,
+        UPDATE,
+        COMPLETE,
+        DELETE,
+        BATCH, //a batch of changes or a batch of added tasks
+        LOAD,
+        SAVE,
+        TABLE_REFRESH,
+        EDT_BLOCKING //time a probe posted to the event dispatch thread waited
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+    private final IntSupplier taskCount;
+    private final AtomicLong lastLoadBytes = new AtomicLong();
+    private final AtomicLong lastSaveBytes = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong saveFailures = new AtomicLong();
+    private ScheduledExecutorService reporter; //null unless reporting, guarded by this
+
+    /**
+     * Creates empty metrics
+     * @param taskCount supplies the current number of tasks
+     */
+    TaskMetrics(IntSupplier taskCount) {
+        this.taskCount = taskCount;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records the duration of an operation that started at the given time
+     * @param operation the operation
+     * @param startNanos value of System.nanoTime() when the operation started
+     */
+    public void record(Operation operation, long startNanos) {
+        histograms[operation.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a load of the task file
+     * @param startNanos value of System.nanoTime() when the load started
+     * @param bytes size of the file read
+     * @param succeeded true if the tasks were loaded
+     */
+    void recordLoad(long startNanos, long bytes, boolean succeeded) {
+        record(Operation.LOAD, startNanos);
+        lastLoadBytes.set(bytes);
+        if (!succeeded) {
+            loadFailures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records a save of the tasks
+     * @param startNanos value of System.nanoTime() when the save started
+     * @param bytes size of the file written, or 0 if only the journal was flushed
+     * @param succeeded true if the tasks were saved
+     */
+    void recordSave(long startNanos, long bytes, boolean succeeded) {
+        record(Operation.SAVE, startNanos);
+        if (succeeded) {
+            lastSaveBytes.set(bytes);
+        } else {
+            saveFailures.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param operation the operation
+     * @return summary of the durations recorded for the operation
+     */
+    public LatencySnapshot latency(Operation operation) {
+        return histograms[operation.ordinal()].snapshot();
+    }
+
+    @Override
+    public int getTaskCount() {
+        return taskCount.getAsInt();
+    }
+
+    @Override
+    public LatencySnapshot getAddLatency() {
+        return latency(Operation.ADD);
+    }
+
+    @Override
+    public LatencySnapshot getUpdateLatency() {
+        return latency(Operation.UPDATE);
+    }
+
+    @Override
+    public LatencySnapshot getCompleteLatency() {
+        return latency(Operation.COMPLETE);
+    }
+
+    @Override
+    public LatencySnapshot getDeleteLatency() {
+        return latency(Operation.DELETE);
+    }
+
+    @Override
+    public LatencySnapshot getBatchLatency() {
+        return latency(Operation.BATCH);
+    }
+
+    @Override
+    public LatencySnapshot getLoadLatency() {
+        return latency(Operation.LOAD);
+    }
+
+    @Override
+    public LatencySnapshot getSaveLatency() {
+        return latency(Operation.SAVE);
+    }
+
+    @Override
+    public LatencySnapshot getTableRefreshLatency() {
+        return latency(Operation.TABLE_REFRESH);
+    }
+
+    @Override
+    public LatencySnapshot getEdtBlockingLatency() {
+        return latency(Operation.EDT_BLOCKING);
+    }
+
+    @Override
+    public long getLastLoadBytes() {
+        return lastLoadBytes.get();
+    }
+
+    @Override
+    public long getLastSaveBytes() {
+        return lastSaveBytes.get();
+    }
+
+    @Override
+    public long getLoadFailures() {
+        return loadFailures.get();
+    }
+
+    @Override
+    public long getSaveFailures() {
+        return saveFailures.get();
+    }
+
+    @Override
+    public String getJson() {
+        StringBuilder json = new StringBuilder("{\"time\":").append(System.currentTimeMillis())
+                .append(",\"taskCount\":").append(getTaskCount())
+                .append(",\"lastLoadBytes\":").append(getLastLoadBytes())
+                .append(",\"lastSaveBytes\":").append(getLastSaveBytes())
+                .append(",\"loadFailures\":").append(getLoadFailures())
+                .append(",\"saveFailures\":").append(getSaveFailures());
+        for (Operation operation : Operation.values()) {
+            json.append(",\"").append(operation.name().toLowerCase()).append("\":").append(latency(operation).toJson());
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, replacing metrics registered before
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.unregisterMBean(name);
+            } catch (InstanceNotFoundException e) {
+                //nothing was registered yet
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Failed to register task metrics: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts measuring the event dispatch thread and, if an interval is given, writing the metrics periodically
+     * @param uiThread executor that runs work on the event dispatch thread
+     * @param dumpSeconds seconds between two dumps, or 0 for none
+     * @param output receives each dump as one line of JSON
+     */
+    public synchronized void startReporting(Executor uiThread, long dumpSeconds, Consumer<String> output) {
+        if (reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicBoolean probePending = new AtomicBoolean(); //at most one probe waits, so a blocked thread is not flooded
+        reporter.scheduleAtFixedRate(() -> {
+            if (probePending.compareAndSet(false, true)) {
+                long posted = System.nanoTime();
+                uiThread.execute(() -> {
+                    record(Operation.EDT_BLOCKING, posted);
+                    probePending.set(false);
+                });
+            }
+        }, EDT_PROBE_MILLIS, EDT_PROBE_MILLIS, TimeUnit.MILLISECONDS);
+
+        if (dumpSeconds > 0) {
+            reporter.scheduleAtFixedRate(() -> output.accept(getJson()), dumpSeconds, dumpSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops the probe and the periodic dumps
+     */
+    public synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdown();
+            reporter = null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package Controller;
+
+/**
+ * Management interface of the task metrics, registered as todo:type=TaskMetrics
+ */
+public interface TaskMetricsMXBean {
+
+    int getTaskCount();
+
+    LatencySnapshot getAddLatency();
+
+    LatencySnapshot getUpdateLatency();
+
+    LatencySnapshot getCompleteLatency();
+
+    LatencySnapshot getDeleteLatency();
+
+    LatencySnapshot getBatchLatency();
+
+    LatencySnapshot getLoadLatency();
+
+    LatencySnapshot getSaveLatency();
+
+    LatencySnapshot getTableRefreshLatency();
+
+    /**
+     * @return how long work posted to the event dispatch thread waited before it ran
+     */
+    LatencySnapshot getEdtBlockingLatency();
+
+    long getLastLoadBytes();
+
+    long getLastSaveBytes();
+
+    long getLoadFailures();
+
+    long getSaveFailures();
+
+    /**
+     * @return all metrics as one JSON object
+     */
+    String getJson();
+}
@@ -0,0 +1,240 @@
+package Controller;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of numbers that can also be read by position, used to keep the tasks ordered by a sort key
+ * The numbers are kept in a treap: a binary search tree whose nodes also carry random priorities that keep it
+ * balanced. Every node knows the size of its subtree, so adding, removing, finding the position of a number and
+ * finding the number at a position all take logarithmic time. Nodes are stored in parallel arrays, so the tree
+ * creates no objects per number. Reading does not change the tree, so several threads may read it at once
+ */
+final class TaskOrder {
+    private static final int NIL = 0; //node 0 stands for the empty tree and always has size 0
+
+    private long[] values;
+    private int[] left;
+    private int[] right;
+    private int[] sizes; //number of nodes in the subtree of each node
+    private int[] priorities; //a node's priority is never lower than its children's
+    private int root = NIL;
+    private int nodeCount = 1; //nodes in use or free, including NIL
+    private int[] freeNodes = new int[0];
+    private int freeCount;
+    private int seed = 0x2545F491; //state of the priority generator
+
+    private int splitLeft; //results of split
+    private int splitRight;
+    private boolean removed; //result of remove
+
+    /**
+     * Creates an empty order
+     * @param capacity number of values to make room for
+     */
+    TaskOrder(int capacity) {
+        values = new long[capacity + 1];
+        left = new int[capacity + 1];
+        right = new int[capacity + 1];
+        sizes = new int[capacity + 1];
+        priorities = new int[capacity + 1];
+    }
+
+    /**
+     * Builds an order from sorted values in linear time
+     * @param sorted distinct values in ascending order
+     * @param count number of values to use
+     * @return the order
+     */
+    static TaskOrder of(long[] sorted, int count) {
+        TaskOrder order = new TaskOrder(count);
+        int[] spine = new int[count]; //right spine of the tree built so far
+        int top = 0;
+
+        for (int i = 0; i < count; i++) {
+            int node = order.newNode(sorted[i]);
+            int last = NIL;
+            while (top > 0 && order.priorities[spine[top - 1]] < order.priorities[node]) {
+                last = spine[--top];
+            }
+            order.left[node] = last;
+            if (top > 0) {
+                order.right[spine[top - 1]] = node;
+            }
+            spine[top++] = node;
+        }
+        order.root = top > 0 ? spine[0] : NIL;
+        order.computeSizes(order.root);
+        return order;
+    }
+
+    /**
+     * @return number of values
+     */
+    int size() {
+        return sizes[root];
+    }
+
+    /**
+     * Adds a value that is not in the order yet
+     * @param value the value
+     */
+    void add(long value) {
+        int node = newNode(value);
+        split(root, value);
+        int lower = splitLeft;
+        int higher = splitRight;
+        root = merge(merge(lower, node), higher);
+    }
+
+    /**
+     * Removes a value
+     * @param value the value
+     * @return true if the value was in the order
+     */
+    boolean remove(long value) {
+        removed = false;
+        root = remove(root, value);
+        return removed;
+    }
+
+    /**
+     * @param index position between 0 and size() - 1
+     * @return the value at the position
+     */
+    long get(int index) {
+        int node = root;
+        while (true) {
+            int leftSize = sizes[left[node]];
+            if (index < leftSize) {
+                node = left[node];
+            } else if (index == leftSize) {
+                return values[node];
+            } else {
+                index -= leftSize + 1;
+                node = right[node];
+            }
+        }
+    }
+
+    /**
+     * @param value any value
+     * @return number of values lower than the given one
+     */
+    int rank(long value) {
+        int rank = 0;
+        int node = root;
+        while (node != NIL) {
+            if (values[node] < value) {
+                rank += sizes[left[node]] + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Splits a subtree into the values lower than the given one (splitLeft) and the others (splitRight)
+     */
+    private void split(int node, long value) {
+        if (node == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+            return;
+        }
+        if (values[node] < value) {
+            split(right[node], value);
+            right[node] = splitLeft;
+            splitLeft = node;
+        } else {
+            split(left[node], value);
+            left[node] = splitRight;
+            splitRight = node;
+        }
+        sizes[node] = sizes[left[node]] + sizes[right[node]] + 1;
+    }
+
+    /**
+     * Joins two subtrees whose values are all lower in the first one
+     * @return the joined subtree
+     */
+    private int merge(int lower, int higher) {
+        if (lower == NIL) {
+            return higher;
+        }
+        if (higher == NIL) {
+            return lower;
+        }
+        if (priorities[lower] > priorities[higher]) {
+            right[lower] = merge(right[lower], higher);
+            sizes[lower] = sizes[left[lower]] + sizes[right[lower]] + 1;
+            return lower;
+        }
+        left[higher] = merge(lower, left[higher]);
+        sizes[higher] = sizes[left[higher]] + sizes[right[higher]] + 1;
+        return higher;
+    }
+
+    private int remove(int node, long value) {
+        if (node == NIL) {
+            return NIL;
+        }
+        if (values[node] == value) {
+            int joined = merge(left[node], right[node]);
+            freeNode(node);
+            removed = true;
+            return joined;
+        }
+        if (value < values[node]) {
+            left[node] = remove(left[node], value);
+        } else {
+            right[node] = remove(right[node], value);
+        }
+        sizes[node] = sizes[left[node]] + sizes[right[node]] + 1;
+        return node;
+    }
+
+    private int computeSizes(int node) {
+        if (node == NIL) {
+            return 0;
+        }
+        sizes[node] = computeSizes(left[node]) + computeSizes(right[node]) + 1;
+        return sizes[node];
+    }
+
+    private int newNode(long value) {
+        int node;
+        if (freeCount > 0) {
+            node = freeNodes[--freeCount];
+        } else {
+            if (nodeCount == values.length) {
+                int capacity = values.length + (values.length >> 1) + 1;
+                values = Arrays.copyOf(values, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                priorities = Arrays.copyOf(priorities, capacity);
+            }
+            node = nodeCount++;
+        }
+
+        //xorshift, so priorities are random without a Random object
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        values[node] = value;
+        left[node] = NIL;
+        right[node] = NIL;
+        sizes[node] = 1;
+        priorities[node] = seed;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        if (freeCount == freeNodes.length) {
+            freeNodes = Arrays.copyOf(freeNodes, Math.max(16, freeCount * 2));
+        }
+        freeNodes[freeCount++] = node;
+    }
+}
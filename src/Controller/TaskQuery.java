@@ -0,0 +1,112 @@
+package Controller;
+
+import Model.DueDate;
+import Model.Task;
+import Model.TaskCategory;
+import Model.TaskPriority;
+
+/**
+ * Criteria for finding tasks through the task manager's secondary indexes
+ * Every criterion is optional; a task matches when it meets all criteria that are set
+ */
+public class TaskQuery {
+    private TaskCategory category; //required category, or null for any
+    private TaskPriority priority; //required priority, or null for any
+    private Boolean completed; //required completion status, or null for any
+    private int dueFrom = DueDate.NONE; //earliest due day (inclusive), or NONE for no lower bound
+    private int dueTo = DueDate.NONE; //latest due day (exclusive), or NONE for no upper bound
+
+    /**
+     * Creates a query for unfinished tasks whose due date has passed
+     * @param today the current date in the format YYYY-MM-DD
+     * @return the query
+     */
+    public static TaskQuery overdue(String today) {
+        return new TaskQuery().completed(false).dueBefore(today);
+    }
+
+    public TaskQuery category(TaskCategory category) {
+        this.category = category;
+        return this;
+    }
+
+    public TaskQuery priority(TaskPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    public TaskQuery completed(boolean completed) {
+        this.completed = completed;
+        return this;
+    }
+
+    /**
+     * Restricts the query to tasks due before a date
+     * @param date due date in the format YYYY-MM-DD, exclusive
+     * @return this query
+     * @throws IllegalArgumentException if the date is not a valid date
+     */
+    public TaskQuery dueBefore(String date) {
+        this.dueTo = parseDate(date);
+        return this;
+    }
+
+    /**
+     * Restricts the query to tasks due on or after a date
+     * @param date due date in the format YYYY-MM-DD, inclusive
+     * @return this query
+     * @throws IllegalArgumentException if the date is not a valid date
+     */
+    public TaskQuery dueOnOrAfter(String date) {
+        this.dueFrom = parseDate(date);
+        return this;
+    }
+
+    TaskCategory getCategory() {
+        return category;
+    }
+
+    TaskPriority getPriority() {
+        return priority;
+    }
+
+    Boolean getCompleted() {
+        return completed;
+    }
+
+    int getDueFrom() {
+        return dueFrom;
+    }
+
+    int getDueTo() {
+        return dueTo;
+    }
+
+    /**
+     * Checks a single task against the query without using the indexes
+     * @param task the task
+     * @return true if the task meets every criterion that is set
+     */
+    boolean matches(Task task) {
+        return (category == null || category == task.getTaskCategory())
+                && (priority == null || priority == task.getTaskPriority())
+                && (completed == null || completed == task.isCompleted())
+                && (dueFrom == DueDate.NONE || (task.getDueDay() != DueDate.NONE && task.getDueDay() >= dueFrom))
+                && (dueTo == DueDate.NONE || (task.getDueDay() != DueDate.NONE && task.getDueDay() < dueTo));
+    }
+
+    /**
+     * @return true if the query restricts the due date
+     */
+    boolean hasDueRange() {
+        return dueFrom != DueDate.NONE || dueTo != DueDate.NONE;
+    }
+
+    private static int parseDate(String date) {
+        int day = DueDate.parse(date);
+        if (day == DueDate.NONE) {
+            throw new IllegalArgumentException("Not a valid date: " + date);
+        }
+        return day;
+    }
+}
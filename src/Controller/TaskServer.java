@@ -0,0 +1,427 @@
+package Controller;
+
+import Model.Task;
+import Model.TaskCategory;
+import Model.TaskPriority;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server exposing the task manager as a JSON API, for running without a window
+ * Tasks are sent and returned as JSON objects with the fields id, title, description, dueDate, category, priority and
+ * completed. The endpoints are:
+ * GET /tasks lists tasks, with the optional parameters search, category, priority, completed, dueFrom, dueBefore,
+ * sort (dueDate, priority, category or status), order (asc or desc), offset and limit;
+ * POST /tasks adds a task; GET, PUT and DELETE /tasks/{id} read, replace and delete one; POST /tasks/{id}/complete
+ * marks one as completed; GET /metrics returns the metrics of the task manager.
+ * Requests run in parallel on virtual threads when the Java version has them, or on a fixed pool otherwise; the task
+ * manager serializes the changes and every change is saved through the shared save scheduler
+ */
+public class TaskServer {
+    private static final int DEFAULT_LIMIT = 100; //tasks returned by a list request without a limit
+    private static final int MAX_LIMIT = 10_000;
+    private static final int MAX_BODY_SIZE = 1 << 20;
+
+    private final TaskManager taskManager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server listening on the loopback address; requests are only served once it is started
+     * @param taskManager the tasks to serve
+     * @param port port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public TaskServer(TaskManager taskManager, int port) throws IOException {
+        this.taskManager = taskManager;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = requestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/tasks", this::handleTasks);
+        server.createContext("/metrics", exchange -> handle(exchange, () -> {
+            requireMethod(exchange, "GET");
+            return new Response(200, taskManager.getMetrics().getJson());
+        }));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits up to a second for running ones
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Creates the executor for requests: a virtual thread per request on Java 21 and later, a fixed pool before
+     */
+    private static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "task-server-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Routes the requests below /tasks
+     */
+    private void handleTasks(HttpExchange exchange) {
+        handle(exchange, () -> {
+            String[] parts = exchange.getRequestURI().getPath().split("/"); //"", "tasks", id, action
+            String method = exchange.getRequestMethod();
+            if (parts.length <= 2) {
+                return switch (method) {
+                    case "GET" -> listTasks(queryParameters(exchange));
+                    case "POST" -> addTask(readBody(exchange));
+                    default -> throw new RequestException(405, "Method not allowed: " + method);
+                };
+            }
+
+            long id = parseId(parts[2]);
+            if (parts.length == 4 && parts[3].equals("complete")) {
+                requireMethod(exchange, "POST");
+                if (!taskManager.markTaskAsCompletedById(id)) {
+                    throw notFound(id);
+                }
+                return taskResponse(200, id);
+            }
+            if (parts.length > 3) {
+                throw new RequestException(404, "Unknown path: " + exchange.getRequestURI().getPath());
+            }
+            return switch (method) {
+                case "GET" -> taskResponse(200, id);
+                case "PUT" -> updateTask(id, readBody(exchange));
+                case "DELETE" -> deleteTask(id);
+                default -> throw new RequestException(405, "Method not allowed: " + method);
+            };
+        });
+    }
+
+    /**
+     * Lists tasks, using the search index, the query indexes or a sorted view depending on the parameters
+     */
+    private Response listTasks(Map<String, String> parameters) throws RequestException {
+        TaskQuery query = new TaskQuery();
+        boolean isFiltered = false;
+        try {
+            if (parameters.containsKey("category")) {
+                TaskCategory category = TaskImporter.parseCategory(parameters.get("category"));
+                if (category == null) {
+                    throw new RequestException(400, "Unknown category: " + parameters.get("category"));
+                }
+                query.category(category);
+                isFiltered = true;
+            }
+            if (parameters.containsKey("priority")) {
+                TaskPriority priority = TaskPriority.fromString(parameters.get("priority"));
+                if (priority == null) {
+                    throw new RequestException(400, "Unknown priority: " + parameters.get("priority"));
+                }
+                query.priority(priority);
+                isFiltered = true;
+            }
+            if (parameters.containsKey("completed")) {
+                query.completed(Boolean.parseBoolean(parameters.get("completed")));
+                isFiltered = true;
+            }
+            if (parameters.containsKey("dueFrom")) {
+                query.dueOnOrAfter(parameters.get("dueFrom"));
+                isFiltered = true;
+            }
+            if (parameters.containsKey("dueBefore")) {
+                query.dueBefore(parameters.get("dueBefore"));
+                isFiltered = true;
+            }
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, e.getMessage());
+        }
+
+        TaskView view = parseView(parameters.get("sort"), parameters.get("order"));
+        int offset = Math.max(0, parseInt(parameters, "offset", 0));
+        int limit = Math.min(MAX_LIMIT, Math.max(0, parseInt(parameters, "limit", DEFAULT_LIMIT)));
+        String search = parameters.get("search");
+
+        List<Task> page = new ArrayList<>(Math.min(limit, 1024));
+        int total;
+        if (search != null && !search.isBlank()) {
+            long[] ids = taskManager.searchTasks(search, Integer.MAX_VALUE);
+            int count = view != null ? taskManager.sortTaskIds(ids, ids.length, view) : ids.length;
+            List<Task> matches = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Task task = taskManager.getTaskById(ids[i]);
+                if (task != null && query.matches(task)) {
+                    matches.add(task);
+                }
+            }
+            total = matches.size();
+            page.addAll(matches.subList(Math.min(offset, total), pageEnd(offset, limit, total)));
+        } else if (isFiltered) {
+            List<Task> matches = taskManager.findTasks(query);
+            if (view != null) {
+                long[] ids = matches.stream().mapToLong(Task::getId).toArray();
+                int count = taskManager.sortTaskIds(ids, ids.length, view);
+                matches = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    Task task = taskManager.getTaskById(ids[i]);
+                    if (task != null) {
+                        matches.add(task);
+                    }
+                }
+            }
+            total = matches.size();
+            page.addAll(matches.subList(Math.min(offset, total), pageEnd(offset, limit, total)));
+        } else {
+            //pages of the whole list are read row by row, so a request never copies the list
+            total = view != null ? taskManager.getViewSize(view) : taskManager.getTaskCount();
+            for (int row = offset, end = pageEnd(offset, limit, total); row < end; row++) {
+                Task task = view != null ? taskManager.getViewTask(view, row) : taskManager.getTask(row);
+                if (task != null) {
+                    page.add(task);
+                }
+            }
+        }
+
+        StringBuilder json = new StringBuilder(64 + 128 * page.size());
+        json.append("{\"total\":").append(total).append(",\"offset\":").append(offset).append(",\"tasks\":[");
+        for (int i = 0; i < page.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(toJson(page.get(i)));
+        }
+        return new Response(200, json.append("]}").toString());
+    }
+
+    private Response addTask(String body) throws RequestException {
+        Task stored = taskManager.storeTask(parseTask(body));
+        if (stored == null) {
+            throw new RequestException(400, "The task could not be added");
+        }
+        return new Response(201, toJson(stored));
+    }
+
+    private Response updateTask(long id, String body) throws RequestException {
+        if (!taskManager.updateTaskById(id, parseTask(body))) {
+            throw notFound(id);
+        }
+        return taskResponse(200, id);
+    }
+
+    private Response deleteTask(long id) throws RequestException {
+        if (!taskManager.deleteTaskById(id)) {
+            throw notFound(id);
+        }
+        return new Response(204, null);
+    }
+
+    /**
+     * Turns a request body into a task, applying the same rules as tasks added through the user interface
+     */
+    private static Task parseTask(String body) throws RequestException {
+        Map<String, String> fields;
+        try {
+            fields = TaskFileFormat.JSONL.parse(body.strip());
+        } catch (IOException e) {
+            throw new RequestException(400, "Invalid JSON: " + e.getMessage());
+        }
+
+        TaskValidator.Input input = new TaskValidator.Input(fields.get("title"), fields.get("description"), fields.get("dueDate"),
+                fields.get("priority"), TaskImporter.parseCategory(fields.get("category")), Boolean.parseBoolean(fields.get("completed")));
+        TaskValidator.Outcome outcome = TaskValidator.validate(input);
+        if (outcome.problem() != null) {
+            throw new RequestException(400, outcome.problem().getMessage());
+        }
+        return outcome.task();
+    }
+
+    private static TaskView parseView(String sort, String order) throws RequestException {
+        if (sort == null) {
+            return null;
+        }
+        boolean ascending = order == null || !order.equalsIgnoreCase("desc");
+        return switch (sort.toLowerCase(Locale.ROOT)) {
+            case "duedate", "due_date" -> TaskView.sortedBy(TaskView.SortKey.DUE_DATE, ascending);
+            case "priority" -> TaskView.sortedBy(TaskView.SortKey.PRIORITY, ascending);
+            case "category" -> TaskView.sortedBy(TaskView.SortKey.CATEGORY, ascending);
+            case "status" -> TaskView.sortedBy(TaskView.SortKey.STATUS, ascending);
+            default -> throw new RequestException(400, "Unknown sort key: " + sort);
+        };
+    }
+
+    private Response taskResponse(int status, long id) throws RequestException {
+        Task task = taskManager.getTaskById(id);
+        if (task == null) {
+            throw notFound(id); //deleted by another request meanwhile
+        }
+        return new Response(status, toJson(task));
+    }
+
+    private static RequestException notFound(long id) {
+        return new RequestException(404, "No task with ID " + id);
+    }
+
+    /**
+     * @return the task as a JSON object, in the JSON Lines export format with its ID added
+     */
+    static String toJson(Task task) {
+        return "{\"id\":" + task.getId() + "," + TaskFileFormat.JSONL.format(task).substring(1);
+    }
+
+    /**
+     * Runs a request and writes its response, turning failures into JSON error responses
+     */
+    private static void handle(HttpExchange exchange, RequestHandler handler) {
+        Response response;
+        try {
+            response = handler.handle();
+        } catch (RequestException e) {
+            response = new Response(e.status, errorJson(e.getMessage()));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to handle request " + exchange.getRequestURI() + ": " + e.getMessage());
+            e.printStackTrace();
+            response = new Response(500, errorJson("Internal error"));
+        }
+
+        try (exchange) {
+            byte[] body = response.body() != null ? response.body().getBytes(StandardCharsets.UTF_8) : null;
+            if (body != null) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            }
+            exchange.sendResponseHeaders(response.status(), body != null ? body.length : -1);
+            if (body != null) {
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to send response: " + e.getMessage()); //the client went away
+        }
+    }
+
+    private static String errorJson(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        TaskFileFormat.appendJson(json, message);
+        return json.append('}').toString();
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) throws RequestException {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new RequestException(405, "Method not allowed: " + exchange.getRequestMethod());
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException, RequestException {
+        try (InputStream input = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = input.read(buffer)) > 0; ) {
+                body.write(buffer, 0, read);
+                if (body.size() > MAX_BODY_SIZE) {
+                    throw new RequestException(413, "Request body is larger than " + MAX_BODY_SIZE + " bytes");
+                }
+            }
+            return body.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals >= 0 ? pair.substring(0, equals) : pair, StandardCharsets.UTF_8);
+            String value = equals >= 0 ? URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8) : "";
+            parameters.put(name, value);
+        }
+        return parameters;
+    }
+
+    /**
+     * @param offset first row of the page, not negative
+     * @param limit most rows on the page, not negative
+     * @param total rows there are
+     * @return the row after the last row of the page, which offset + limit would overflow for huge offsets
+     */
+    private static int pageEnd(int offset, int limit, int total) {
+        return offset >= total ? total : offset + Math.min(limit, total - offset);
+    }
+
+    private static long parseId(String text) throws RequestException {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new RequestException(404, "Not a task ID: " + text);
+        }
+    }
+
+    private static int parseInt(Map<String, String> parameters, String name, int defaultValue) throws RequestException {
+        String text = parameters.get(name);
+        if (text == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, "Not a number: " + name + "=" + text);
+        }
+    }
+
+    private interface RequestHandler {
+        Response handle() throws IOException, RequestException;
+    }
+
+    /**
+     * Status and JSON body of a response; a null body sends no content
+     */
+    private record Response(int status, String body) {
+    }
+
+    /**
+     * A request that cannot be served, answered with the given status and message
+     */
+    private static final class RequestException extends Exception {
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package Controller;
+
+import Model.Task;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * The task list as it was at one point in time, which never changes afterwards
+ * Reading a snapshot takes no lock, so a long read such as an export does not hold up changes, and it always sees the
+ * state between two whole changes. A snapshot is made of two persistent trees that the next snapshot shares except
+ * for the paths a change touches, so every change makes a new snapshot in logarithmic time without copying the list:
+ * a weight-balanced tree holds the tasks in list order, keyed by an order key and counting the tasks below every node
+ * so that rows are found by position, and a hash array mapped trie maps task IDs to their order keys
+ */
+public final class TaskSnapshot extends AbstractList<Task> {
+    private static final long GAP = 1L << 20; //distance between the order keys of appended tasks, leaves room for restored ones
+    private static final int DELTA = 3; //a subtree may hold up to this many times the tasks of its sibling
+    private static final int RATIO = 2; //decides between a single and a double rotation
+    private static final int BITS = 5; //ID bits consumed by each level of the trie
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root; //tasks by order key, null if there are none
+    private final Object ids; //trie of order keys by task ID: null, a Leaf or a Branch
+
+    /**
+     * Node of the list tree
+     */
+    private static final class Node {
+        private final long key;
+        private final Task task;
+        private final Node left;
+        private final Node right;
+        private final int size; //tasks in this subtree
+
+        Node(long key, Task task, Node left, Node right) {
+            this.key = key;
+            this.task = task;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    /**
+     * Entry of the ID trie
+     */
+    private record Leaf(long id, long key) {
+    }
+
+    /**
+     * Inner node of the ID trie, holding only the children that exist
+     * @param bitmap bit i is set if the child for the ID bits i exists
+     * @param children the children in order of their bits
+     */
+    private record Branch(int bitmap, Object[] children) {
+    }
+
+    private TaskSnapshot(Node root, Object ids) {
+        this.root = root;
+        this.ids = ids;
+    }
+
+    /**
+     * Makes a snapshot of a task store in list order, taking linear time
+     * @param tasks the store, which must not change meanwhile
+     * @return the snapshot
+     */
+    static TaskSnapshot of(TaskStore tasks) {
+        Task[] list = new Task[tasks.size()];
+        for (int row = 0; row < list.length; row++) {
+            list[row] = tasks.get(row);
+        }
+        return of(list);
+    }
+
+    private static TaskSnapshot of(Task[] list) {
+        Object ids = null;
+        for (int row = 0; row < list.length; row++) {
+            ids = put(ids, 0, list[row].getId(), row * GAP);
+        }
+        return new TaskSnapshot(build(list, 0, list.length), ids);
+    }
+
+    /**
+     * @return number of tasks
+     */
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * @param row row index, between 0 and size() - 1
+     * @return the task in the row
+     */
+    @Override
+    public Task get(int row) {
+        if (row < 0 || row >= size()) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size());
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (row < leftSize) {
+                node = node.left;
+            } else if (row == leftSize) {
+                return node.task;
+            } else {
+                row -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * @param id task ID
+     * @return the task with the ID, or null if there is none
+     */
+    public Task getById(long id) {
+        Leaf leaf = find(ids, id);
+        return leaf != null ? find(root, leaf.key()).task : null;
+    }
+
+    /**
+     * @param id task ID
+     * @return row index of the task with the ID, or -1 if there is none
+     */
+    public int rowOf(long id) {
+        Leaf leaf = find(ids, id);
+        if (leaf == null) {
+            return -1;
+        }
+        int row = 0;
+        Node node = root;
+        while (node.key != leaf.key()) {
+            if (leaf.key() < node.key) {
+                node = node.left;
+            } else {
+                row += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return row + size(node.left);
+    }
+
+    /**
+     * Visits the tasks in list order without looking any of them up by row
+     */
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<>() {
+            private final Deque<Node> path = new ArrayDeque<>(); //nodes whose task and right subtree are still to come
+            {
+                descend(root);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public Task next() {
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node node = path.pop();
+                descend(node.right);
+                return node.task;
+            }
+
+            private void descend(Node node) {
+                for (; node != null; node = node.left) {
+                    path.push(node);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super Task> action) {
+        forEach(root, action);
+    }
+
+    /**
+     * Adds a task in front of another one
+     * @param task the added task, with its ID
+     * @param beforeId ID of the task it goes in front of, or 0 (or an ID not in the snapshot) to append it
+     * @return the new snapshot
+     */
+    TaskSnapshot withAdded(Task task, long beforeId) {
+        Leaf before = find(ids, beforeId);
+        long key;
+        if (before == null) {
+            Node last = root;
+            while (last != null && last.right != null) {
+                last = last.right;
+            }
+            if (last != null && last.key > Long.MAX_VALUE - GAP) {
+                return renumbered().withAdded(task, beforeId);
+            }
+            key = last != null ? last.key + GAP : 0;
+        } else {
+            Node previous = lowerNode(root, before.key());
+            long lower = previous != null ? previous.key : before.key() - 2 * GAP;
+            if (lower > before.key()) {
+                return renumbered().withAdded(task, beforeId); //the keys ran out below the first task
+            }
+            key = lower + (before.key() - lower) / 2;
+            if (key == lower) {
+                return renumbered().withAdded(task, beforeId); //no key is left between the neighbours
+            }
+        }
+        return new TaskSnapshot(insert(root, key, task), put(ids, 0, task.getId(), key));
+    }
+
+    /**
+     * Replaces the contents of a task, keeping its row
+     * @param task the new contents, carrying the task's ID
+     * @return the new snapshot, or this one if the task is not in it
+     */
+    TaskSnapshot withReplaced(Task task) {
+        Leaf leaf = find(ids, task.getId());
+        return leaf != null ? new TaskSnapshot(insert(root, leaf.key(), task), ids) : this;
+    }
+
+    /**
+     * Removes a task
+     * @param id task ID
+     * @return the new snapshot, or this one if the task is not in it
+     */
+    TaskSnapshot withRemoved(long id) {
+        Leaf leaf = find(ids, id);
+        return leaf != null ? new TaskSnapshot(delete(root, leaf.key()), remove(ids, 0, id)) : this;
+    }
+
+    /**
+     * Gives the tasks evenly spaced order keys again, taking linear time; only needed after many tasks were put back
+     * in the same place
+     */
+    private TaskSnapshot renumbered() {
+        return of(toArray(new Task[0]));
+    }
+
+    //list tree, a weight-balanced tree whose nodes are copied along the path of every change
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static Node build(Task[] list, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(middle * GAP, list[middle], build(list, from, middle), build(list, middle + 1, to));
+    }
+
+    private static void forEach(Node node, Consumer<? super Task> action) {
+        while (node != null) {
+            forEach(node.left, action);
+            action.accept(node.task);
+            node = node.right;
+        }
+    }
+
+    private static Node find(Node node, long key) {
+        while (node.key != key) {
+            node = key < node.key ? node.left : node.right;
+        }
+        return node;
+    }
+
+    /**
+     * @return the node with the highest key below the given one, or null if there is none
+     */
+    private static Node lowerNode(Node node, long key) {
+        Node lower = null;
+        while (node != null) {
+            if (node.key < key) {
+                lower = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return lower;
+    }
+
+    /**
+     * Adds a task under a key, or replaces the task under it
+     */
+    private static Node insert(Node node, long key, Task task) {
+        if (node == null) {
+            return new Node(key, task, null, null);
+        }
+        if (key < node.key) {
+            return balance(node.key, node.task, insert(node.left, key, task), node.right);
+        }
+        if (key > node.key) {
+            return balance(node.key, node.task, node.left, insert(node.right, key, task));
+        }
+        return new Node(key, task, node.left, node.right);
+    }
+
+    private static Node delete(Node node, long key) {
+        if (key < node.key) {
+            return balance(node.key, node.task, delete(node.left, key), node.right);
+        }
+        if (key > node.key) {
+            return balance(node.key, node.task, node.left, delete(node.right, key));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node next = node.right;
+        while (next.left != null) {
+            next = next.left;
+        }
+        return balance(next.key, next.task, node.left, delete(node.right, next.key));
+    }
+
+    /**
+     * Joins two subtrees under a task, rotating if one has become too heavy for the other
+     */
+    private static Node balance(long key, Task task, Node left, Node right) {
+        int leftSize = size(left);
+        int rightSize = size(right);
+        if (leftSize + rightSize > 1) {
+            if (rightSize > DELTA * leftSize) {
+                return size(right.left) < RATIO * size(right.right)
+                        ? new Node(right.key, right.task, new Node(key, task, left, right.left), right.right)
+                        : new Node(right.left.key, right.left.task, new Node(key, task, left, right.left.left),
+                                new Node(right.key, right.task, right.left.right, right.right));
+            }
+            if (leftSize > DELTA * rightSize) {
+                return size(left.right) < RATIO * size(left.left)
+                        ? new Node(left.key, left.task, left.left, new Node(key, task, left.right, right))
+                        : new Node(left.right.key, left.right.task, new Node(left.key, left.task, left.left, left.right.left),
+                                new Node(key, task, left.right.right, right));
+            }
+        }
+        return new Node(key, task, left, right);
+    }
+
+    //ID trie, consuming five bits of the ID per level from the lowest up, so consecutive IDs share few nodes
+
+    private static Leaf find(Object node, long id) {
+        for (int shift = 0; node instanceof Branch branch; shift += BITS) {
+            int bit = 1 << ((id >>> shift) & MASK);
+            if ((branch.bitmap() & bit) == 0) {
+                return null;
+            }
+            node = branch.children()[Integer.bitCount(branch.bitmap() & (bit - 1))];
+        }
+        return node instanceof Leaf leaf && leaf.id() == id ? leaf : null;
+    }
+
+    private static Object put(Object node, int shift, long id, long key) {
+        if (node == null) {
+            return new Leaf(id, key);
+        }
+        if (node instanceof Leaf leaf) {
+            return leaf.id() == id ? new Leaf(id, key) : join(leaf, new Leaf(id, key), shift);
+        }
+
+        Branch branch = (Branch) node;
+        int bit = 1 << ((id >>> shift) & MASK);
+        int index = Integer.bitCount(branch.bitmap() & (bit - 1));
+        Object[] children = branch.children();
+        if ((branch.bitmap() & bit) == 0) {
+            Object[] added = new Object[children.length + 1];
+            System.arraycopy(children, 0, added, 0, index);
+            added[index] = new Leaf(id, key);
+            System.arraycopy(children, index, added, index + 1, children.length - index);
+            return new Branch(branch.bitmap() | bit, added);
+        }
+        Object[] replaced = children.clone();
+        replaced[index] = put(children[index], shift + BITS, id, key);
+        return new Branch(branch.bitmap(), replaced);
+    }
+
+    /**
+     * Makes the smallest subtrie holding two leaves whose IDs match below the given shift
+     */
+    private static Object join(Leaf first, Leaf second, int shift) {
+        int firstBits = (int) (first.id() >>> shift) & MASK;
+        int secondBits = (int) (second.id() >>> shift) & MASK;
+        if (firstBits == secondBits) {
+            return new Branch(1 << firstBits, new Object[] {join(first, second, shift + BITS)});
+        }
+        Object[] children = firstBits < secondBits ? new Object[] {first, second} : new Object[] {second, first};
+        return new Branch((1 << firstBits) | (1 << secondBits), children);
+    }
+
+    private static Object remove(Object node, int shift, long id) {
+        if (!(node instanceof Branch branch)) {
+            return node instanceof Leaf leaf && leaf.id() == id ? null : node;
+        }
+
+        int bit = 1 << ((id >>> shift) & MASK);
+        if ((branch.bitmap() & bit) == 0) {
+            return branch;
+        }
+        int index = Integer.bitCount(branch.bitmap() & (bit - 1));
+        Object[] children = branch.children();
+        Object child = remove(children[index], shift + BITS, id);
+        if (child == children[index]) {
+            return branch;
+        }
+        if (child == null) {
+            if (children.length == 2 && children[1 - index] instanceof Leaf other) {
+                return other; //a single leaf needs no branch above it
+            }
+            Object[] removed = new Object[children.length - 1];
+            System.arraycopy(children, 0, removed, 0, index);
+            System.arraycopy(children, index + 1, removed, index, children.length - index - 1);
+            return removed.length > 0 ? new Branch(branch.bitmap() & ~bit, removed) : null;
+        }
+        if (children.length == 1 && child instanceof Leaf) {
+            return child;
+        }
+        Object[] replaced = children.clone();
+        replaced[index] = child;
+        return new Branch(branch.bitmap(), replaced);
+    }
+}
@@ -0,0 +1,829 @@
+package Controller;
+
+import Model.Task;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Task storage addressed both by row and by stable task ID
+ * Every task lives in a slot and an ID index maps task IDs to slots, so lookups by ID take constant time.
+ * Rows refer to slots; deleting a task only marks its row, and the marked rows are squeezed out in a single
+ * pass the next time rows are read by position, so deleting many tasks does not shift the list once per task.
+ * Slots can be backed by a memory-mapped task file, in which case a task is decoded the first time it is accessed
+ * and the ID index is built from the file's record index the first time a task is looked up by ID.
+ * Slots can also live in off-heap columns, in which case a task is decoded on every access and never kept on the heap.
+ * Secondary indexes for queries, the text index for searches and the sort orders of views are built on first use and
+ * kept up to date from then on.
+ * The store is not thread-safe by itself: once prepareReads has run, any number of threads may read it at the same
+ * time, but every other method needs exclusive access. The exception is replace and markCompleted while
+ * canChangeInPlace holds: they then only write the task's slot, so changes of different tasks may run alongside each
+ * other and alongside reads
+ */
+final class TaskStore {
+    private static final int NO_SLOT = -1;
+    private static final int DECODE_STRIPES = 64; //locks shared by mapped slots, so concurrent readers rarely wait for each other
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Task[].class);
+
+    private final ByteBuffer data; //mapping of the task file, null if every task lives on the heap
+    private final int indexOffset; //file position of the record index
+    private final int storedCount; //slots below this number start out as records in the mapped file
+
+    private Task[] slots; //task by slot, null for free slots and for mapped slots that have not been decoded; null if off-heap
+    private final TaskColumns columns; //off-heap storage of the tasks, null if the tasks live on the heap
+    private int slotCount; //slots in use or free
+    private final BitSet freeSlots; //slots that hold no task
+    private int[] freeStack; //free slots to reuse
+    private int freeCount;
+
+    private int[] rows; //slot by row, NO_SLOT for deleted rows, null while row i is slot i
+    private int rowCount; //rows including deleted ones
+    private int deletedRows; //deleted rows that have not been squeezed out yet
+    private int[] skip; //by deleted row, a later row with only deleted rows in between, so the next task is found without a scan
+    private int[] rowOfSlot; //row by slot, null until a task is located by ID
+    private LongIntMap slotById; //null until a task is looked up by ID
+    private TaskIndex index; //null until the first query
+    private TextIndex textIndex; //null until the first search
+    private final TaskOrder[] orders = new TaskOrder[TaskView.SortKey.values().length]; //slots by sort key, null until a view uses the key
+    private long nextId; //ID given to the next task added without one
+    private final Object[] decodeLocks; //guard the decoding of mapped slots during concurrent reads
+
+    /**
+     * Creates an empty store
+     */
+    TaskStore() {
+        this(null, 0, 0, new Task[16], null, 1);
+    }
+
+    private TaskStore(ByteBuffer data, int indexOffset, int storedCount, Task[] slots, TaskColumns columns, long nextId) {
+        this.data = data;
+        this.indexOffset = indexOffset;
+        this.storedCount = storedCount;
+        this.slots = slots;
+        this.columns = columns;
+        this.slotCount = storedCount;
+        this.rowCount = storedCount;
+        this.freeSlots = new BitSet();
+        this.freeStack = new int[0];
+        this.nextId = nextId;
+        this.decodeLocks = new Object[data != null ? DECODE_STRIPES : 0];
+        for (int i = 0; i < decodeLocks.length; i++) {
+            decodeLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Creates a store holding the given tasks in order
+     * Tasks without an ID (read from files saved before IDs existed) get new ones after the highest existing ID
+     * @param tasks tasks to store
+     * @param nextId lowest ID that may be given to new tasks
+     * @return the store
+     */
+    static TaskStore of(List<Task> tasks, long nextId) {
+        return of(tasks, nextId, false);
+    }
+
+    /**
+     * Creates a store holding the given tasks in order, on or off the heap
+     * Tasks without an ID (read from files saved before IDs existed) get new ones after the highest existing ID
+     * @param tasks tasks to store
+     * @param nextId lowest ID that may be given to new tasks
+     * @param offHeap true to keep the tasks in off-heap columns
+     * @return the store
+     */
+    static TaskStore of(List<Task> tasks, long nextId, boolean offHeap) {
+        for (Task task : tasks) {
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+
+        TaskStore store = empty(tasks.size(), nextId, offHeap);
+        for (Task task : tasks) {
+            store.add(task);
+        }
+        return store;
+    }
+
+    /**
+     * Creates an empty store
+     * @param capacity number of tasks to make room for
+     * @param nextId lowest ID that may be given to new tasks
+     * @param offHeap true to keep the tasks in off-heap columns
+     * @return the store
+     */
+    static TaskStore empty(int capacity, long nextId, boolean offHeap) {
+        capacity = Math.max(16, capacity);
+        return offHeap ? new TaskStore(null, 0, 0, null, new TaskColumns(capacity), nextId)
+                : new TaskStore(null, 0, 0, new Task[capacity], null, nextId);
+    }
+
+    /**
+     * Creates a store over a memory-mapped task file without decoding any task
+     * @param data mapping of the whole file
+     * @param indexOffset file position of the record index
+     * @param storedCount number of records in the file
+     * @param nextId lowest ID that may be given to new tasks
+     * @return the store
+     */
+    static TaskStore mapped(ByteBuffer data, int indexOffset, int storedCount, long nextId) {
+        return new TaskStore(data, indexOffset, storedCount, new Task[Math.max(16, storedCount)], null, nextId);
+    }
+
+    /**
+     * @return number of tasks
+     */
+    int size() {
+        return rowCount - deletedRows;
+    }
+
+    /**
+     * @param row row index, between 0 and size() - 1
+     * @return the task in the row
+     */
+    Task get(int row) {
+        return task(slotAt(row));
+    }
+
+    /**
+     * @param row row index, between 0 and size() - 1
+     * @return ID of the task in the row
+     */
+    long idAt(int row) {
+        return idOf(slotAt(row));
+    }
+
+    /**
+     * @param id task ID
+     * @return the task with the ID, or null if there is none
+     */
+    Task getById(long id) {
+        int slot = slotOf(id);
+        return slot == NO_SLOT ? null : task(slot);
+    }
+
+    /**
+     * @param id task ID
+     * @return row index of the task with the ID, or -1 if there is none
+     */
+    int indexOf(long id) {
+        int slot = slotOf(id);
+        if (slot == NO_SLOT) {
+            return -1;
+        }
+        squeeze();
+        return rowOf(slot);
+    }
+
+    /**
+     * Appends a task, giving it a new ID if it has none
+     * @param task task to add
+     * @return the stored task, or null if a task with the same ID is already stored
+     */
+    Task add(Task task) {
+        long id = task.getId();
+        if (id == 0) {
+            task = task.withId(nextId++); //a new ID cannot collide, so the ID index is not needed
+        } else if (slotOf(id) != NO_SLOT) {
+            return null;
+        } else {
+            nextId = Math.max(nextId, id + 1);
+        }
+
+        int slot = allocateSlot();
+        store(slot, task);
+        if (slotById != null) {
+            slotById.put(task.getId(), slot);
+        }
+        if (index != null) {
+            index.add(slot, task);
+        }
+        if (textIndex != null) {
+            textIndex.add(task);
+        }
+        updateOrders(slot, null, task);
+        appendRow(slot);
+        return task;
+    }
+
+    /**
+     * Adds a task in front of another one, keeping the ID it carries
+     * The rows after it move down by one
+     * @param task task to add
+     * @param beforeId ID of the task it goes in front of; if there is no such task it is appended
+     * @return the stored task, or null if a task with the same ID is already stored
+     */
+    Task insert(Task task, long beforeId) {
+        int before = slotOf(beforeId);
+        squeeze(); //the rows after the task move, so no deleted row may lie among them
+        Task stored = add(task);
+        if (stored == null || before == NO_SLOT) {
+            return stored;
+        }
+
+        int row = rowOf(before);
+        int last = rowCount - 1; //the row add appended
+        materializeRows();
+        int slot = rows[last];
+        System.arraycopy(rows, row, rows, row + 1, last - row);
+        rows[row] = slot;
+        for (int moved = row; moved <= last; moved++) {
+            if (rows[moved] != NO_SLOT) {
+                rowOfSlot[rows[moved]] = moved;
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Finds the task that follows a task in the list, so that the task can be put back in front of it later
+     * @param id task ID
+     * @return ID of the next task, or 0 if the task is the last one or does not exist
+     */
+    long idAfter(long id) {
+        int slot = slotOf(id);
+        if (slot == NO_SLOT) {
+            return 0;
+        }
+        int row = nextLiveRow(rowOf(slot) + 1);
+        return row < rowCount ? idOf(rows != null ? rows[row] : row) : 0;
+    }
+
+    /**
+     * Finds the first row at or after a row that is not deleted, following the skip pointers of the deleted rows
+     * Every pointer followed is pointed further ahead, so a run of deletions from the bottom up stays linear in total
+     * @param row row index
+     * @return the row, or rowCount if every row from it on is deleted
+     */
+    private int nextLiveRow(int row) {
+        while (row < rowCount && rows != null && rows[row] == NO_SLOT) {
+            int next = skip[row];
+            if (next < rowCount && rows[next] == NO_SLOT) {
+                skip[row] = skip[next]; //halves the path for the next search
+            }
+            row = next;
+        }
+        return row;
+    }
+
+    /**
+     * Replaces the task stored under an ID, keeping its row
+     * @param id task ID
+     * @param task new contents of the task, stored under the same ID
+     * @return the stored task, or null if there is no task with the ID
+     */
+    Task replace(long id, Task task) {
+        int slot = slotOf(id);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        task = task.getId() == id ? task : task.withId(id);
+        Task old = index != null || textIndex != null || hasOrders() ? task(slot) : null; //only decoded if an index needs it
+        if (index != null) {
+            index.remove(slot, old);
+            index.add(slot, task);
+        }
+        if (textIndex != null) {
+            textIndex.remove(old);
+            textIndex.add(task);
+        }
+        updateOrders(slot, old, task);
+        store(slot, task);
+        return task;
+    }
+
+    /**
+     * Marks the task with the given ID as completed
+     * The task is replaced by a completed copy, so tasks already handed to readers never change
+     * @param id task ID
+     * @return the completed task, or null if there is no task with the ID
+     */
+    Task markCompleted(long id) {
+        int slot = slotOf(id);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        Task task = task(slot);
+        if (!task.isCompleted()) {
+            Task old = task;
+            task = task.withCompleted(true);
+            updateOrders(slot, old, task);
+            if (columns != null) {
+                columns.setCompleted(slot, true);
+            } else {
+                SLOT.setRelease(slots, slot, task); //readers of other slots may be running
+            }
+        }
+        if (index != null) {
+            index.setCompleted(slot, true);
+        }
+        return task;
+    }
+
+    /**
+     * @return true if the store can be read by several threads at once, false if prepareReads has to run first
+     */
+    boolean isReadable() {
+        return deletedRows == 0 && slotById != null && rowOfSlot != null;
+    }
+
+    /**
+     * @return true if replacing or completing a task only writes its slot, because the store is readable, keeps the
+     * tasks on the heap and has no secondary index, text index or sort order to update
+     */
+    boolean canChangeInPlace() {
+        return isReadable() && columns == null && index == null && textIndex == null && !hasOrders();
+    }
+
+    /**
+     * @return true if the query indexes are built
+     */
+    boolean hasQueryIndex() {
+        return index != null;
+    }
+
+    /**
+     * @return true if the text index is built
+     */
+    boolean hasTextIndex() {
+        return textIndex != null;
+    }
+
+    /**
+     * Squeezes out deleted rows and builds the lookup tables, so that reading no longer changes the store
+     */
+    void prepareReads() {
+        squeeze();
+        slotOf(nextId); //builds the ID index
+        rowOf(0); //builds the reverse row index
+    }
+
+    /**
+     * Removes the task with the given ID
+     * @param id task ID
+     * @return the removed task, or null if there is none
+     */
+    Task remove(long id) {
+        int slot = slotOf(id);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+
+        Task task = task(slot);
+        if (index != null) {
+            index.remove(slot, task);
+        }
+        if (textIndex != null) {
+            textIndex.remove(task);
+        }
+        updateOrders(slot, task, null);
+        int row = rowOf(slot);
+        materializeRows();
+        rows[row] = NO_SLOT;
+        if (skip == null || skip.length < rows.length) {
+            skip = skip == null ? new int[rows.length] : Arrays.copyOf(skip, rows.length);
+        }
+        skip[row] = row + 1;
+        deletedRows++;
+        while (rowCount > 0 && rows[rowCount - 1] == NO_SLOT) {
+            rowCount--; //deleted rows at the end need no squeezing
+            deletedRows--;
+        }
+
+        slotById.remove(id);
+        rowOfSlot[slot] = NO_SLOT;
+        freeSlot(slot);
+        return task;
+    }
+
+    /**
+     * Finds the tasks matching a query using the secondary indexes, building them on first use
+     * Only the matching tasks are decoded from a mapped file
+     * @param query criteria to match
+     * @return the matching tasks, in due date order if the query restricts the due date and in slot order otherwise
+     */
+    List<Task> find(TaskQuery query) {
+        if (index == null) {
+            index = new TaskIndex();
+            if (columns != null) {
+                //only the small columns are read, the text is not decoded
+                for (int slot = 0; slot < slotCount; slot++) {
+                    if (!freeSlots.get(slot)) {
+                        index.add(slot, columns.dueDay(slot), columns.category(slot), columns.priority(slot),
+                                columns.isCompleted(slot));
+                    }
+                }
+            } else {
+                forEachTask((task, slot) -> index.add(slot, task));
+            }
+        }
+
+        List<Task> matches = new ArrayList<>();
+        index.forEachMatch(query, slot -> matches.add(task(slot)));
+        return matches;
+    }
+
+    /**
+     * Searches task titles and descriptions, building the text index on first use
+     * @param query the search text, see TextIndex.search
+     * @param limit maximum number of results
+     * @return IDs of the matching tasks, best matches first
+     */
+    long[] search(String query, int limit) {
+        if (textIndex == null) {
+            textIndex = new TextIndex();
+            forEachTask((task, slot) -> textIndex.add(task));
+        }
+        return textIndex.search(query, limit);
+    }
+
+    /**
+     * @param key a sort key
+     * @return true if the tasks are already ordered by the key
+     */
+    boolean hasOrder(TaskView.SortKey key) {
+        return orders[key.ordinal()] != null;
+    }
+
+    /**
+     * @param view a view of the tasks
+     * @return number of tasks the view shows
+     */
+    int viewSize(TaskView view) {
+        TaskOrder order = order(view.getKey());
+        return view.isFiltered() ? order.rank(view.upperBound()) - order.rank(view.lowerBound()) : order.size();
+    }
+
+    /**
+     * @param view a view of the tasks
+     * @param row row of the view, between 0 and viewSize(view) - 1
+     * @return ID of the task in the row
+     */
+    long viewIdAt(TaskView view, int row) {
+        TaskOrder order = order(view.getKey());
+        int first = view.isFiltered() ? order.rank(view.lowerBound()) : 0;
+        int index = view.isAscending() ? first + row : first + viewSize(view) - 1 - row;
+        return idOf((int) order.get(index)); //the low half of an order value is the slot
+    }
+
+    /**
+     * @param view a view of the tasks
+     * @param id task ID
+     * @return row of the task in the view, or -1 if the view does not show it
+     */
+    int viewRowOf(TaskView view, long id) {
+        int slot = slotOf(id);
+        if (slot == NO_SLOT) {
+            return -1;
+        }
+        int value = TaskView.sortValue(view.getKey(), task(slot));
+        if (!view.contains(value)) {
+            return -1;
+        }
+
+        TaskOrder order = order(view.getKey());
+        int index = order.rank(TaskView.pack(value, slot)) - (view.isFiltered() ? order.rank(view.lowerBound()) : 0);
+        return view.isAscending() ? index : viewSize(view) - 1 - index;
+    }
+
+    /**
+     * Sorts task IDs in the order of a view and drops the IDs the view does not show
+     * Tasks with the same sort value keep their relative order
+     * @param ids task IDs, sorted in place
+     * @param count number of IDs to sort
+     * @param view the view
+     * @return number of IDs kept, at the start of the array
+     */
+    int sortIds(long[] ids, int count, TaskView view) {
+        long[] keys = new long[count];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = slotOf(ids[i]);
+            if (slot != NO_SLOT) {
+                int value = TaskView.sortValue(view.getKey(), task(slot));
+                if (view.contains(value)) {
+                    keys[kept++] = TaskView.pack(value, i);
+                }
+            }
+        }
+        Arrays.sort(keys, 0, kept);
+
+        long[] sorted = new long[kept];
+        for (int i = 0; i < kept; i++) {
+            sorted[view.isAscending() ? i : kept - 1 - i] = ids[(int) keys[i]];
+        }
+        System.arraycopy(sorted, 0, ids, 0, kept);
+        return kept;
+    }
+
+    /**
+     * @return true if the store is backed by a memory-mapped file
+     */
+    boolean isMapped() {
+        return data != null;
+    }
+
+    /**
+     * Returns the stored bytes of a row whose task has not been decoded
+     * @param row row index, between 0 and size() - 1
+     * @return the record body, or null if the task is on the heap
+     */
+    ByteBuffer storedRecord(int row) {
+        int slot = slotAt(row);
+        if (slot >= storedCount || slots[slot] != null) {
+            return null;
+        }
+        return TaskCodec.recordAt(data, recordOffset(slot));
+    }
+
+    /**
+     * @return lowest ID that may be given to new tasks
+     */
+    long nextId() {
+        return nextId;
+    }
+
+    /**
+     * Copies the store without decoding any task, so that it can be written while this store keeps changing
+     * @return an independent store holding the same tasks
+     */
+    TaskStore copy() {
+        squeeze();
+        TaskStore copy = new TaskStore(data, indexOffset, storedCount, slots != null ? Arrays.copyOf(slots, slots.length) : null,
+                columns != null ? columns.copy() : null, nextId);
+        copy.slotCount = slotCount;
+        copy.freeSlots.or(freeSlots);
+        copy.freeStack = Arrays.copyOf(freeStack, freeCount);
+        copy.freeCount = freeCount;
+        copy.rows = rows != null ? Arrays.copyOf(rows, rowCount) : null;
+        copy.rowCount = rowCount;
+        return copy;
+    }
+
+    /**
+     * Finds the slot of a live row, squeezing out deleted rows first
+     */
+    private int slotAt(int row) {
+        squeeze();
+        return rows != null ? rows[row] : row;
+    }
+
+    /**
+     * Returns the task in a slot, decoding it from the mapped file on first access
+     * Concurrent readers decoding the same slot are serialized by a striped lock, so every slot is decoded once.
+     * Off-heap tasks are decoded on every access instead
+     */
+    private Task task(int slot) {
+        if (columns != null) {
+            return columns.get(slot);
+        }
+        Task task = (Task) SLOT.getAcquire(slots, slot);
+        if (task == null) {
+            synchronized (decodeLocks[slot % DECODE_STRIPES]) {
+                task = slots[slot];
+                if (task == null) {
+                    task = decode(slot);
+                    SLOT.setRelease(slots, slot, task);
+                }
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Passes every stored task to the action without caching the tasks it decodes, so building an index
+     * does not load the whole mapped file onto the heap
+     */
+    private void forEachTask(ObjIntConsumer<Task> action) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!freeSlots.get(slot)) {
+                action.accept(columns != null ? columns.get(slot) : slots[slot] != null ? slots[slot] : decode(slot), slot);
+            }
+        }
+    }
+
+    /**
+     * Decodes the task of a mapped slot without caching it
+     */
+    private Task decode(int slot) {
+        Task task;
+        try {
+            task = TaskCodec.decode(TaskCodec.recordAt(data, recordOffset(slot)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return task.getId() == idOf(slot) ? task : task.withId(idOf(slot));
+    }
+
+    private long idOf(int slot) {
+        if (columns != null) {
+            return columns.id(slot);
+        }
+        Task task = slots[slot];
+        return task != null ? task.getId() : data.getLong(indexOffset + slot * TaskCodec.INDEX_ENTRY_SIZE + Long.BYTES);
+    }
+
+    private int recordOffset(int slot) {
+        return (int) data.getLong(indexOffset + slot * TaskCodec.INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * Looks up the slot of a task ID, building the ID index on first use
+     */
+    private int slotOf(long id) {
+        if (id == 0) {
+            return NO_SLOT;
+        }
+        if (slotById == null) {
+            slotById = new LongIntMap(slotCount);
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (!freeSlots.get(slot)) {
+                    slotById.put(idOf(slot), slot);
+                }
+            }
+        }
+        int slot = slotById.get(id);
+        return slot == LongIntMap.MISSING ? NO_SLOT : slot;
+    }
+
+    /**
+     * Finds the row of a slot (counting deleted rows), building the reverse row index on first use
+     */
+    private int rowOf(int slot) {
+        if (rowOfSlot == null) {
+            rowOfSlot = new int[capacity()];
+            Arrays.fill(rowOfSlot, NO_SLOT);
+            for (int row = 0; row < rowCount; row++) {
+                int rowSlot = rows != null ? rows[row] : row;
+                if (rowSlot != NO_SLOT) {
+                    rowOfSlot[rowSlot] = row;
+                }
+            }
+        }
+        return rowOfSlot[slot];
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            int slot = freeStack[--freeCount];
+            freeSlots.clear(slot);
+            return slot;
+        }
+
+        if (slotCount == capacity()) {
+            int capacity = capacity() + (capacity() >> 1) + 1;
+            if (columns != null) {
+                columns.ensureCapacity(capacity);
+                capacity = columns.capacity();
+            } else {
+                slots = Arrays.copyOf(slots, capacity);
+            }
+            if (rowOfSlot != null) {
+                int oldLength = rowOfSlot.length;
+                rowOfSlot = Arrays.copyOf(rowOfSlot, capacity);
+                Arrays.fill(rowOfSlot, oldLength, capacity, NO_SLOT);
+            }
+        }
+        return slotCount++;
+    }
+
+    private void freeSlot(int slot) {
+        if (columns != null) {
+            columns.clear(slot);
+        } else {
+            slots[slot] = null;
+        }
+        freeSlots.set(slot);
+        if (freeCount == freeStack.length) {
+            freeStack = Arrays.copyOf(freeStack, Math.max(16, freeCount * 2));
+        }
+        freeStack[freeCount++] = slot;
+    }
+
+    /**
+     * Returns the slots ordered by a sort key, building the order on first use
+     * Each order value holds the sort value in its high half and the slot in its low half
+     */
+    private TaskOrder order(TaskView.SortKey key) {
+        TaskOrder order = orders[key.ordinal()];
+        if (order == null) {
+            long[] values = new long[size()];
+            int[] count = {0};
+            forEachTask((task, slot) -> values[count[0]++] = TaskView.pack(TaskView.sortValue(key, task), slot));
+            Arrays.sort(values, 0, count[0]);
+            order = TaskOrder.of(values, count[0]);
+            orders[key.ordinal()] = order;
+        }
+        return order;
+    }
+
+    private boolean hasOrders() {
+        for (TaskOrder order : orders) {
+            if (order != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves a task within the sort orders that have been built
+     * @param slot slot of the task
+     * @param old the task before the change, null if it is added
+     * @param task the task after the change, null if it is removed
+     */
+    private void updateOrders(int slot, Task old, Task task) {
+        for (TaskView.SortKey key : TaskView.SortKey.values()) {
+            TaskOrder order = orders[key.ordinal()];
+            if (order == null) {
+                continue;
+            }
+            int oldValue = old != null ? TaskView.sortValue(key, old) : 0;
+            int newValue = task != null ? TaskView.sortValue(key, task) : 0;
+            if (old != null && task != null && oldValue == newValue) {
+                continue; //the task keeps its place
+            }
+            if (old != null) {
+                order.remove(TaskView.pack(oldValue, slot));
+            }
+            if (task != null) {
+                order.add(TaskView.pack(newValue, slot));
+            }
+        }
+    }
+
+    /**
+     * Puts a task into a slot, on or off the heap
+     */
+    private void store(int slot, Task task) {
+        if (columns != null) {
+            columns.set(slot, task);
+        } else {
+            SLOT.setRelease(slots, slot, task);
+        }
+    }
+
+    /**
+     * @return number of slots there is room for
+     */
+    private int capacity() {
+        return columns != null ? columns.capacity() : slots.length;
+    }
+
+    private void appendRow(int slot) {
+        if (rows == null && slot == rowCount) {
+            rowCount++; //row i is still slot i
+        } else {
+            materializeRows();
+            if (rowCount == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length + (rows.length >> 1) + 1);
+            }
+            rows[rowCount++] = slot;
+        }
+
+        if (rowOfSlot != null) {
+            rowOfSlot[slot] = rowCount - 1;
+        }
+    }
+
+    /**
+     * Switches from the implicit row order to an explicit one the first time a task is removed
+     */
+    private void materializeRows() {
+        if (rows == null) {
+            rows = new int[Math.max(16, rowCount + (rowCount >> 1))];
+            for (int row = 0; row < rowCount; row++) {
+                rows[row] = row;
+            }
+        }
+    }
+
+    /**
+     * Moves the live rows together, dropping deleted ones
+     */
+    private void squeeze() {
+        if (deletedRows == 0) {
+            return;
+        }
+
+        int live = 0;
+        for (int row = 0; row < rowCount; row++) {
+            int slot = rows[row];
+            if (slot != NO_SLOT) {
+                rows[live] = slot;
+                if (rowOfSlot != null) {
+                    rowOfSlot[slot] = live;
+                }
+                live++;
+            }
+        }
+        rowCount = live;
+        deletedRows = 0;
+    }
+}
@@ -0,0 +1,478 @@
+package Controller;
+
+import Model.Task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32C;
+
+/**
+ * Synchronizes the tasks of a task manager with copies of the list on other machines
+ * Each copy is a replica that records a version for every change (see TaskVersions). Replicas exchange deltas: the
+ * latest change of every task the other replica has not seen, found through its version vector, so the cost of a
+ * sync grows with the number of changes rather than with the size of the list. Changes made on both sides since the
+ * last sync are resolved the same way on every replica: the later change wins, a deletion wins over an edit, and a
+ * task completed on either side stays completed.
+ * Deltas travel through a file or a socket. The versions are kept in a state file next to the task file, which is
+ * appended to after every merge and rewritten once it holds mostly replaced entries
+ */
+public class TaskSync {
+    private static final int STATE_MAGIC = 0x54444F53; //"TDOS"
+    private static final int DELTA_MAGIC = 0x54444F44; //"TDOD"
+    private static final int HELLO_MAGIC = 0x54444F48; //"TDOH"
+    private static final int MIN_COMPACTION_ENTRIES = 1024; //entries logged before the state file is worth rewriting
+    private static final int MAX_STATE_RECORD = 1 << 30;
+
+    private final TaskManager taskManager;
+    private final TaskVersions versions;
+    private final Path stateFile;
+    private final Map<Long, Map<Long, Long>> peers = new HashMap<>(); //last version vector received from every replica, guarded by this
+    private long loggedEntries; //entries in the state file, including replaced ones, guarded by this
+    private boolean isMergeChangingTasks; //the merge being made changed a local task, guarded by this
+
+    /**
+     * Changes of one replica that another replica has not seen
+     */
+    public static final class Delta {
+        private final long replica; //replica that sent the changes
+        private final Map<Long, Long> vector; //version vector of the sender when the delta was made
+        private final List<TaskVersions.Change> changes;
+
+        private Delta(long replica, Map<Long, Long> vector, List<TaskVersions.Change> changes) {
+            this.replica = replica;
+            this.vector = vector;
+            this.changes = changes;
+        }
+
+        /**
+         * @return ID of the replica that sent the changes
+         */
+        public long getReplica() {
+            return replica;
+        }
+
+        /**
+         * @return number of changed tasks
+         */
+        public int size() {
+            return changes.size();
+        }
+
+        private void write(DataOutputStream output) throws IOException {
+            output.writeInt(DELTA_MAGIC);
+            output.writeLong(replica);
+            TaskVersions.writeVector(output, vector);
+            output.writeInt(changes.size());
+            ByteBuffer scratch = ByteBuffer.allocate(256);
+            for (TaskVersions.Change change : changes) {
+                output.writeLong(change.key().replica());
+                output.writeLong(change.key().clock());
+                output.writeLong(change.replica());
+                output.writeLong(change.clock());
+                if (change.task() == null) {
+                    output.writeInt(-1); //deleted
+                    continue;
+                }
+                scratch = TaskCodec.encode(change.task(), scratch);
+                output.writeInt(scratch.remaining());
+                output.write(scratch.array(), scratch.arrayOffset(), scratch.remaining());
+            }
+            output.flush();
+        }
+
+        private static Delta read(DataInputStream input) throws IOException {
+            if (input.readInt() != DELTA_MAGIC) {
+                throw new IOException("Not a task delta");
+            }
+            long replica = input.readLong();
+            Map<Long, Long> vector = TaskVersions.readVector(input);
+            int count = input.readInt();
+            if (count < 0) {
+                throw new IOException("Malformed task delta");
+            }
+            List<TaskVersions.Change> changes = new ArrayList<>(Math.min(count, 1 << 16));
+            for (int i = 0; i < count; i++) {
+                TaskVersions.TaskKey key = new TaskVersions.TaskKey(input.readLong(), input.readLong());
+                long changeReplica = input.readLong();
+                long clock = input.readLong();
+                int length = input.readInt();
+                Task task = null;
+                if (length >= 0) {
+                    byte[] record = new byte[length];
+                    input.readFully(record);
+                    task = TaskCodec.decode(ByteBuffer.wrap(record));
+                }
+                changes.add(new TaskVersions.Change(key, changeReplica, clock, task));
+            }
+            return new Delta(replica, vector, changes);
+        }
+    }
+
+    /**
+     * Outcome of merging or exchanging changes
+     * @param sent number of changed tasks sent to the other replica
+     * @param received number of changed tasks received that were applied
+     * @param conflicts number of tasks changed on both sides that had to be resolved
+     */
+    public record Result(int sent, int received, int conflicts) {
+    }
+
+    /**
+     * Starts tracking the versions of a task manager's tasks
+     * Load the tasks first: changes made to the list while it was not tracked are found and count as local changes.
+     * The first time, the current tasks are taken as the common starting point of all replicas, so every replica
+     * should start from a copy of the same task file
+     * @param taskManager the tasks
+     * @param stateFile file holding the versions, created if it does not exist
+     * @throws IOException if the state file exists but cannot be read
+     */
+    public TaskSync(TaskManager taskManager, Path stateFile) throws IOException {
+        this.taskManager = taskManager;
+        this.stateFile = stateFile;
+        this.versions = Files.exists(stateFile) ? readState() : new TaskVersions(newReplicaId());
+        taskManager.trackVersions(versions);
+        saveState();
+    }
+
+    /**
+     * @return ID of this replica
+     */
+    public long getReplicaId() {
+        return versions.replicaId();
+    }
+
+    /**
+     * @return the highest change seen from every replica
+     */
+    public Map<Long, Long> getVersionVector() {
+        return taskManager.withVersions(versions::vector);
+    }
+
+    /**
+     * Collects the changes that a replica with the given version vector has not seen
+     * @param since version vector of the other replica; an empty map collects every task
+     * @return the changes
+     */
+    public Delta changesSince(Map<Long, Long> since) {
+        return taskManager.withVersions(() -> new Delta(versions.replicaId(), versions.vector(),
+                versions.changesSince(since, taskManager::getTaskById)));
+    }
+
+    /**
+     * Applies the changes of another replica as one batch and saves the result
+     * The tasks are only saved if the merge changed any of them, so a replica that is up to date is not rewritten
+     * @param delta the changes
+     * @return how many changes were applied and how many conflicts were resolved
+     * @throws IOException if the tasks or the versions cannot be saved
+     */
+    public synchronized Result merge(Delta delta) throws IOException {
+        isMergeChangingTasks = false;
+        Result result = taskManager.applyRemote(() -> mergeChanges(delta));
+        peers.merge(delta.replica, delta.vector, TaskSync::latest);
+        //the tasks are saved before the versions, so a crash in between can only make merged tasks look new
+        if (isMergeChangingTasks && !taskManager.saveTasks()) {
+            throw new IOException("Failed to save merged tasks");
+        }
+        saveState();
+        return result;
+    }
+
+    /**
+     * Writes the changes a replica has not seen to a file, judging by what was last received from it
+     * @param file the file
+     * @param peerReplicaId ID of the replica the file is for; an unknown replica gets every task
+     * @throws IOException if the file cannot be written
+     */
+    public void exportChanges(Path file, long peerReplicaId) throws IOException {
+        Map<Long, Long> since;
+        synchronized (this) {
+            since = peers.getOrDefault(peerReplicaId, Collections.emptyMap());
+        }
+        Delta delta = changesSince(since);
+        Path temp = Paths.get(file + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            delta.write(output);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Merges the changes written to a file by another replica
+     * @param file the file
+     * @return how many changes were applied and how many conflicts were resolved
+     * @throws IOException if the file cannot be read or the result cannot be saved
+     */
+    public Result importChanges(Path file) throws IOException {
+        Delta delta;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            delta = Delta.read(input);
+        }
+        return merge(delta);
+    }
+
+    /**
+     * Exchanges changes with another replica over a connected socket, in both directions
+     * One side starts the exchange and the other answers: the starting side sends its version vector, receives the
+     * changes it has not seen and merges them, then sends back the changes the answering side has not seen
+     * @param socket the connection; it is left open
+     * @param initiator true on the side that starts the exchange
+     * @return how many changes were sent, applied and resolved on this side
+     * @throws IOException if the connection fails or the result cannot be saved
+     */
+    public Result sync(Socket socket, boolean initiator) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        return initiator ? startExchange(input, output) : answerExchange(input, output);
+    }
+
+    private Result startExchange(DataInputStream input, DataOutputStream output) throws IOException {
+        output.writeInt(HELLO_MAGIC);
+        TaskVersions.writeVector(output, getVersionVector());
+        output.flush();
+
+        Delta received = Delta.read(input);
+        Result merged = merge(received);
+        Delta reply = changesSince(received.vector); //what was just merged is covered by the other side's vector
+        reply.write(output);
+        return new Result(reply.size(), merged.received(), merged.conflicts());
+    }
+
+    private Result answerExchange(DataInputStream input, DataOutputStream output) throws IOException {
+        if (input.readInt() != HELLO_MAGIC) {
+            throw new IOException("Not a task sync request");
+        }
+        Delta reply = changesSince(TaskVersions.readVector(input));
+        reply.write(output);
+
+        Result merged = merge(Delta.read(input));
+        return new Result(reply.size(), merged.received(), merged.conflicts());
+    }
+
+    /**
+     * Applies the changes of a delta, called with the task manager's write lock held
+     */
+    private Result mergeChanges(Delta delta) {
+        int received = 0;
+        int conflicts = 0;
+        for (TaskVersions.Change change : delta.changes) {
+            if (versions.hasSeen(change.replica(), change.clock())) {
+                continue; //this change, or a later one, is already here
+            }
+            TaskVersions.Entry entry = versions.entry(change.key());
+            if (entry == null || delta.vector.getOrDefault(entry.replica(), 0L) >= entry.clock()) {
+                apply(change); //the other replica had seen the local version, so its change replaces it
+                received++;
+            } else if (resolve(entry, change)) {
+                conflicts++;
+            }
+        }
+        versions.observe(delta.vector);
+        return new Result(0, received, conflicts);
+    }
+
+    /**
+     * Resolves a change made on another replica while the local version was changed too
+     * Both replicas get the same result: a deletion wins, otherwise the later change wins (the higher clock, then the
+     * higher replica ID, then the higher contents hash for tasks both replicas started with) and the task is
+     * completed if either change completed it
+     * @return true if the contents differed
+     */
+    private boolean resolve(TaskVersions.Entry entry, TaskVersions.Change change) {
+        Task local = entry.isDeleted() ? null : taskManager.getTaskById(entry.localId());
+        Task remote = change.task();
+        if (local == null || remote == null) {
+            if (remote == null && local != null) {
+                apply(change);
+            } //otherwise the local deletion stays and is sent to the other replica
+            return local != remote;
+        }
+        if (TaskVersions.contents(local) == TaskVersions.contents(remote)) {
+            return false;
+        }
+
+        boolean remoteWins = change.clock() != entry.clock() ? change.clock() > entry.clock()
+                : change.replica() != entry.replica() ? change.replica() > entry.replica()
+                : TaskVersions.contents(remote) > TaskVersions.contents(local);
+        Task winner = remoteWins ? remote : local;
+        boolean isCompleted = local.isCompleted() || remote.isCompleted();
+        if (winner.isCompleted() == isCompleted) {
+            if (remoteWins) {
+                apply(change);
+            } //otherwise the local version stays and is sent to the other replica
+            return true;
+        }
+
+        //the result matches neither side, so it becomes a new local change that both replicas end up with
+        Task merged = new Task(0, winner.getTitle(), winner.getDescription(), winner.getDueDay(), winner.getTaskCategory(),
+                winner.getTaskPriority(), true);
+        taskManager.updateTaskById(entry.localId(), merged);
+        isMergeChangingTasks = true;
+        versions.observe(Map.of(change.replica(), change.clock()));
+        versions.setMergedVersion(entry.key(), entry.localId(), merged);
+        return true;
+    }
+
+    /**
+     * Makes the local list match a change from another replica and records its version
+     */
+    private void apply(TaskVersions.Change change) {
+        TaskVersions.Entry entry = versions.entry(change.key());
+        long localId = entry != null ? entry.localId() : 0;
+        Task task = change.task();
+        Task stored = null;
+        isMergeChangingTasks = true;
+        if (task == null) {
+            if (localId != 0) {
+                taskManager.deleteTaskById(localId);
+            }
+            localId = 0;
+        } else {
+            Task contents = new Task(0, task.getTitle(), task.getDescription(), task.getDueDay(), task.getTaskCategory(),
+                    task.getTaskPriority(), task.isCompleted()); //IDs are local to each replica
+            if (localId == 0 || !taskManager.updateTaskById(localId, contents)) {
+                stored = taskManager.storeTask(contents);
+                localId = stored != null ? stored.getId() : 0;
+            } else {
+                stored = taskManager.getTaskById(localId);
+            }
+        }
+        //the hash is taken from the task as stored, which is what the list holds after the next start
+        versions.setRemoteVersion(change.key(), change.replica(), change.clock(), localId, stored);
+    }
+
+    private static Map<Long, Long> latest(Map<Long, Long> known, Map<Long, Long> received) {
+        Map<Long, Long> vector = new HashMap<>(known);
+        received.forEach((replica, clock) -> vector.merge(replica, clock, Math::max));
+        return vector;
+    }
+
+    private static long newReplicaId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == TaskVersions.INITIAL_REPLICA);
+        return id;
+    }
+
+    /**
+     * Appends the versions changed since the last save to the state file, or rewrites the file once most of its
+     * entries have been replaced
+     * The task file must already hold the tasks the versions describe: versions of tasks missing from it would be
+     * taken as deletions on the next start
+     * @throws IOException if the state file cannot be written
+     */
+    private synchronized void saveState() throws IOException {
+        boolean rewrite = !Files.exists(stateFile)
+                || loggedEntries > 2L * Math.max(MIN_COMPACTION_ENTRIES, taskManager.withVersions(versions::size));
+        byte[] record = taskManager.withVersions(() -> encodeState(rewrite));
+
+        if (!rewrite) {
+            try (FileChannel channel = FileChannel.open(stateFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                writeFully(channel, ByteBuffer.wrap(record));
+                channel.force(false);
+            }
+            return;
+        }
+
+        Path temp = Paths.get(stateFile + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.allocate(Integer.BYTES + Long.BYTES).putInt(STATE_MAGIC).putLong(versions.replicaId()).flip());
+            writeFully(channel, ByteBuffer.wrap(record));
+            channel.force(true);
+        }
+        Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        loggedEntries = taskManager.withVersions(versions::size);
+    }
+
+    /**
+     * Encodes a state record: length, checksum, then the versions and the peers' version vectors
+     * Called with the task manager's write lock held
+     */
+    private byte[] encodeState(boolean all) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(bytes);
+            loggedEntries += versions.writeChanges(payload, all);
+            payload.writeInt(peers.size());
+            for (Map.Entry<Long, Map<Long, Long>> peer : peers.entrySet()) {
+                payload.writeLong(peer.getKey());
+                TaskVersions.writeVector(payload, peer.getValue());
+            }
+            byte[] body = bytes.toByteArray();
+            CRC32C crc = new CRC32C();
+            crc.update(body);
+            return ByteBuffer.allocate(2 * Integer.BYTES + body.length).putInt(body.length).putInt((int) crc.getValue())
+                    .put(body).array();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); //a byte array stream does not fail
+        }
+    }
+
+    /**
+     * Reads the state file, stopping at a record that was only partly written or is damaged
+     */
+    private TaskVersions readState() throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            if (input.readInt() != STATE_MAGIC) {
+                throw new IOException("Not a task sync state file: " + stateFile);
+            }
+            TaskVersions state = new TaskVersions(input.readLong());
+            while (true) {
+                byte[] body;
+                int checksum;
+                try {
+                    int length = input.readInt();
+                    checksum = input.readInt();
+                    if (length < 0 || length > MAX_STATE_RECORD) {
+                        throw new EOFException(); //a damaged length
+                    }
+                    body = new byte[length];
+                    input.readFully(body);
+                } catch (EOFException e) {
+                    break; //the last record was cut short by a crash, or there are no more
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) {
+                    System.err.println("Ignoring damaged records at the end of " + stateFile);
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+                loggedEntries += state.readChanges(record);
+                int peerCount = record.readInt();
+                for (int i = 0; i < peerCount; i++) {
+                    peers.put(record.readLong(), TaskVersions.readVector(record));
+                }
+            }
+            return state;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
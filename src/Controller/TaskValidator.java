@@ -0,0 +1,192 @@
+package Controller;
+
+import Model.DueDate;
+import Model.Task;
+import Model.TaskCategory;
+import Model.TaskPriority;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rules a task has to follow before it is added
+ * Shared by the controller and by anything else that creates tasks from user input. Checking a task creates no
+ * objects and keeps no state, so the checks can run on any number of threads at once
+ */
+public final class TaskValidator {
+    private static final int BATCH_SLICE = 2048; //inputs checked by one fork-join task without splitting further
+
+    private TaskValidator() {
+    }
+
+    /**
+     * Reasons a task can be rejected
+     */
+    public enum Problem {
+        BLANK_TITLE("Title cannot be null or blank!"),
+        INVALID_DATE("Due date must be a valid date in the format YYYY-MM-DD!"),
+        INVALID_PRIORITY("Task priority must be low, medium, or high!"),
+        MISSING_CATEGORY("Task category cannot be null!");
+
+        private final String message; //text shown to the user
+
+        Problem(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * The values of a task as entered by the user or read from a file
+     * @param title task title
+     * @param description task description
+     * @param dueDate due date text
+     * @param priority priority text
+     * @param category task category
+     * @param isCompleted completion status
+     */
+    public record Input(String title, String description, String dueDate, String priority, TaskCategory category,
+                        boolean isCompleted) {
+    }
+
+    /**
+     * Result of checking one input: either the parsed task or the reason it was rejected
+     * @param task the task, with its due date and priority parsed, or null if the input was rejected
+     * @param problem why the input was rejected, or null if it is valid
+     */
+    public record Outcome(Task task, Problem problem) {
+    }
+
+    /**
+     * Method that validates the task
+     * @param title task title
+     * @param dueDate tasks due date
+     * @param priority task priority
+     * @param category task category
+     * @return info about the validity of the task, or null if the task is valid
+     */
+    public static String validateTask(String title, String dueDate, String priority, TaskCategory category) {
+        Problem problem = check(title, dueDate, priority, category);
+        return problem != null ? problem.getMessage() : null;
+    }
+
+    /**
+     * Checks a task without creating any objects
+     * @param title task title
+     * @param dueDate tasks due date
+     * @param priority task priority
+     * @param category task category
+     * @return the first problem found, or null if the task is valid
+     */
+    public static Problem check(String title, String dueDate, String priority, TaskCategory category) {
+        if (title == null || title.isBlank()) {
+            return Problem.BLANK_TITLE;
+        }
+
+        if (!isValidDate(dueDate)) {
+            return Problem.INVALID_DATE;
+        }
+
+        if (!isValidPriority(priority)) {
+            return Problem.INVALID_PRIORITY;
+        }
+
+        if (category == null) {
+            return Problem.MISSING_CATEGORY;
+        }
+
+        return null;
+    }
+
+    /**
+     * Check if priority is valid
+     * @param priority the task priority
+     * @return true if valid
+     */
+    public static boolean isValidPriority(String priority) {
+        return TaskPriority.fromString(priority) != null;
+    }
+
+    /**
+     * Checks if date format is valid
+     * @param dueDate the task due date
+     * @return true if due date is a real date in the format YYYY-MM-DD
+     */
+    public static boolean isValidDate(String dueDate) {
+        return DueDate.parse(dueDate) != DueDate.NONE;
+    }
+
+    /**
+     * Checks an input by the same rules as check and turns it into a task, parsing the due date and priority once
+     * @param input the values of the task
+     * @return the task or the reason it was rejected
+     */
+    public static Outcome validate(Input input) {
+        if (input.title() == null || input.title().isBlank()) {
+            return new Outcome(null, Problem.BLANK_TITLE);
+        }
+
+        int dueDay = DueDate.parse(input.dueDate()); //parsed once, both to check it and to build the task
+        if (dueDay == DueDate.NONE) {
+            return new Outcome(null, Problem.INVALID_DATE);
+        }
+
+        TaskPriority priority = TaskPriority.fromString(input.priority());
+        if (priority == null) {
+            return new Outcome(null, Problem.INVALID_PRIORITY);
+        }
+
+        if (input.category() == null) {
+            return new Outcome(null, Problem.MISSING_CATEGORY);
+        }
+
+        Task task = new Task(0, input.title(), input.description(), dueDay, input.category(), priority,
+                input.isCompleted());
+        return new Outcome(task, null);
+    }
+
+    /**
+     * Checks many inputs at once on the common fork-join pool
+     * @param inputs the values of the tasks
+     * @return the outcome for every input, in the same order
+     */
+    public static Outcome[] validateAll(List<Input> inputs) {
+        Outcome[] outcomes = new Outcome[inputs.size()];
+        ForkJoinPool.commonPool().invoke(new ValidateSlice(inputs, outcomes, 0, inputs.size()));
+        return outcomes;
+    }
+
+    /**
+     * Checks a range of inputs, splitting it in halves until it is small enough
+     */
+    private static final class ValidateSlice extends RecursiveAction {
+        private final List<Input> inputs;
+        private final Outcome[] outcomes;
+        private final int from;
+        private final int to;
+
+        ValidateSlice(List<Input> inputs, Outcome[] outcomes, int from, int to) {
+            this.inputs = inputs;
+            this.outcomes = outcomes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SLICE) {
+                for (int i = from; i < to; i++) {
+                    outcomes[i] = validate(inputs.get(i));
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new ValidateSlice(inputs, outcomes, from, middle), new ValidateSlice(inputs, outcomes, middle, to));
+        }
+    }
+}
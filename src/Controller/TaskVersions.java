@@ -0,0 +1,357 @@
+package Controller;
+
+import Model.Task;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.LongFunction;
+
+/**
+ * Versions of the tasks of one replica, used to synchronize task lists kept on several machines
+ * Every task has a key that is the same on every replica (the replica that created it and the clock value of the
+ * creation) and a version: the replica that made the latest change and the value of that replica's Lamport clock at
+ * the time. Deleted tasks keep their entry as a tombstone. The version vector holds, for every replica, the highest
+ * clock value whose changes this replica has seen. Entries are indexed by replica and clock, so the changes another
+ * replica has not seen are found in time proportional to their number.
+ * Only used with the task manager's write lock held
+ */
+final class TaskVersions {
+    static final long INITIAL_REPLICA = 0; //stands for the file the replicas were copied from
+
+    private final long replicaId;
+    private long clock; //Lamport clock: higher than every version seen so far
+    private final Map<Long, Long> vector = new HashMap<>(); //highest clock value seen from every replica
+    private final Map<TaskKey, Entry> entries = new HashMap<>();
+    private final Map<Long, Entry> byLocalId = new HashMap<>(); //entries of the tasks in the list, by local task ID
+    private final Map<Long, TreeMap<Long, Entry>> byVersion = new HashMap<>(); //entries by replica and clock of their version
+    private final Set<Entry> dirty = new HashSet<>(); //entries changed since they were last written to the state log
+
+    /**
+     * Identity of a task on every replica
+     * @param replica replica that created the task
+     * @param clock clock value of the creation
+     */
+    record TaskKey(long replica, long clock) {
+    }
+
+    /**
+     * A change another replica has not seen
+     * @param key the task
+     * @param replica replica that made the change
+     * @param clock clock value of the change
+     * @param task contents of the task, or null if it is deleted
+     */
+    record Change(TaskKey key, long replica, long clock, Task task) {
+    }
+
+    /**
+     * Version of one task
+     */
+    static final class Entry {
+        private final TaskKey key;
+        private long localId; //ID of the task in the local list, 0 once deleted
+        private long replica; //replica of the latest change
+        private long clock; //clock value of the latest change
+        private int contents; //hash of the contents at the latest change, to notice changes made while not tracked
+
+        private Entry(TaskKey key) {
+            this.key = key;
+        }
+
+        TaskKey key() {
+            return key;
+        }
+
+        long localId() {
+            return localId;
+        }
+
+        long replica() {
+            return replica;
+        }
+
+        long clock() {
+            return clock;
+        }
+
+        boolean isDeleted() {
+            return localId == 0;
+        }
+    }
+
+    /**
+     * Creates the versions of a new replica without any tasks
+     * @param replicaId ID of this replica, unique among all replicas
+     */
+    TaskVersions(long replicaId) {
+        this.replicaId = replicaId;
+    }
+
+    long replicaId() {
+        return replicaId;
+    }
+
+    /**
+     * @return copy of the version vector
+     */
+    Map<Long, Long> vector() {
+        return new HashMap<>(vector);
+    }
+
+    /**
+     * @return number of entries, including tombstones
+     */
+    int size() {
+        return entries.size();
+    }
+
+    Entry entry(TaskKey key) {
+        return entries.get(key);
+    }
+
+    Entry entryOfTask(long localId) {
+        return byLocalId.get(localId);
+    }
+
+    /**
+     * Records a change made to the local list
+     * @param kind what changed
+     * @param id local ID of the changed task
+     * @param task the task after the change, or null
+     */
+    void localChange(TaskEvent.Kind kind, long id, Task task) {
+        Entry entry = byLocalId.get(id);
+        switch (kind) {
+            case ADDED -> {
+                long version = tick();
+                entry = new Entry(new TaskKey(replicaId, version));
+                entries.put(entry.key, entry);
+                setVersion(entry, replicaId, version, id, task);
+            }
+            case UPDATED, COMPLETED -> {
+                if (entry != null) {
+                    setVersion(entry, replicaId, tick(), id, task);
+                }
+            }
+            case DELETED -> {
+                if (entry != null) {
+                    setVersion(entry, replicaId, tick(), 0, null);
+                }
+            }
+            case RESET -> {
+                //the owner reconciles the whole list instead
+            }
+        }
+    }
+
+    /**
+     * Compares the list with the entries after it was loaded or replaced, recording every difference as a local change
+     * Tasks without an entry were added, tasks whose contents differ were updated and entries without a task were
+     * deleted while the versions were not tracked. The first time, the tasks are taken as the common starting point
+     * @param tasks the list
+     */
+    void reconcile(TaskStore tasks) {
+        boolean isFirst = clock == 0 && entries.isEmpty(); //nothing was tracked yet
+        Set<Long> present = new HashSet<>();
+        for (int row = 0; row < tasks.size(); row++) {
+            Task task = tasks.get(row);
+            present.add(task.getId());
+            Entry entry = byLocalId.get(task.getId());
+            if (entry == null && isFirst) {
+                //replicas start from copies of the same file, so a task that was there before tracking started has
+                //its ID as key and version on every replica
+                entry = new Entry(new TaskKey(INITIAL_REPLICA, task.getId()));
+                entries.put(entry.key, entry);
+                observe(INITIAL_REPLICA, task.getId());
+                setVersion(entry, INITIAL_REPLICA, task.getId(), task.getId(), task);
+            } else if (entry == null) {
+                localChange(TaskEvent.Kind.ADDED, task.getId(), task);
+            } else if (entry.contents != contents(task)) {
+                localChange(TaskEvent.Kind.UPDATED, task.getId(), task);
+            }
+        }
+        for (Entry entry : new ArrayList<>(byLocalId.values())) {
+            if (!present.contains(entry.localId)) {
+                localChange(TaskEvent.Kind.DELETED, entry.localId, null);
+            }
+        }
+        if (isFirst) {
+            tick(); //the starting point is only taken once
+        }
+    }
+
+    /**
+     * Lists the changes that a replica with the given version vector has not seen
+     * Only the latest change of each task is listed, since it replaces the earlier ones
+     * @param since version vector of the other replica
+     * @param lookup finds a task of the local list by its ID
+     * @return the changes, oldest first for each replica
+     */
+    List<Change> changesSince(Map<Long, Long> since, LongFunction<Task> lookup) {
+        List<Change> changes = new ArrayList<>();
+        for (Map.Entry<Long, TreeMap<Long, Entry>> replica : byVersion.entrySet()) {
+            for (Entry entry : replica.getValue().tailMap(since.getOrDefault(replica.getKey(), 0L), false).values()) {
+                Task task = entry.isDeleted() ? null : lookup.apply(entry.localId);
+                changes.add(new Change(entry.key, entry.replica, entry.clock, task));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * @return true if a change with the given version has been seen, so it or a later one is already applied
+     */
+    boolean hasSeen(long replica, long clock) {
+        return vector.getOrDefault(replica, 0L) >= clock;
+    }
+
+    /**
+     * Records the version of an entry after a change from another replica was applied or merged
+     * @param key the task, which gets an entry if it has none
+     * @param replica replica of the change
+     * @param clock clock value of the change
+     * @param localId local ID of the task, or 0 if it is deleted
+     * @param task contents of the task, or null if it is deleted
+     */
+    void setRemoteVersion(TaskKey key, long replica, long clock, long localId, Task task) {
+        Entry entry = entries.computeIfAbsent(key, Entry::new);
+        observe(replica, clock);
+        setVersion(entry, replica, clock, localId, task);
+    }
+
+    /**
+     * Records a change made locally while merging, such as the combination of two conflicting changes
+     * @param key the task
+     * @param localId local ID of the task, or 0 if it is deleted
+     * @param task contents of the task, or null if it is deleted
+     */
+    void setMergedVersion(TaskKey key, long localId, Task task) {
+        setVersion(entries.get(key), replicaId, tick(), localId, task);
+    }
+
+    /**
+     * Takes in the version vector of a replica whose changes were all applied
+     * @param other version vector of the other replica
+     */
+    void observe(Map<Long, Long> other) {
+        for (Map.Entry<Long, Long> seen : other.entrySet()) {
+            observe(seen.getKey(), seen.getValue());
+        }
+    }
+
+    private void observe(long replica, long clock) {
+        vector.merge(replica, clock, Math::max);
+        this.clock = Math.max(this.clock, clock);
+    }
+
+    private long tick() {
+        clock++;
+        vector.put(replicaId, clock);
+        return clock;
+    }
+
+    private void setVersion(Entry entry, long replica, long clock, long localId, Task task) {
+        TreeMap<Long, Entry> previous = byVersion.get(entry.replica);
+        if (previous != null && previous.get(entry.clock) == entry) {
+            previous.remove(entry.clock);
+        }
+        if (entry.localId != 0) {
+            byLocalId.remove(entry.localId);
+        }
+
+        entry.replica = replica;
+        entry.clock = clock;
+        entry.localId = localId;
+        entry.contents = task != null ? contents(task) : 0;
+        byVersion.computeIfAbsent(replica, r -> new TreeMap<>()).put(clock, entry);
+        if (localId != 0) {
+            byLocalId.put(localId, entry);
+        }
+        dirty.add(entry);
+    }
+
+    /**
+     * @return hash of everything a replica can change about a task
+     */
+    static int contents(Task task) {
+        return Objects.hash(task.getTitle(), task.getDescription(), task.getDueDay(), task.getCategory(), task.getPriority(),
+                task.isCompleted());
+    }
+
+    /**
+     * Writes the clock, the version vector and the entries changed since the last call
+     * @param output where to write
+     * @param all true to write every entry instead of only the changed ones
+     * @return number of entries written
+     * @throws IOException if the output fails
+     */
+    int writeChanges(DataOutput output, boolean all) throws IOException {
+        output.writeLong(clock);
+        writeVector(output, vector);
+        Iterable<Entry> written = all ? entries.values() : dirty;
+        int count = all ? entries.size() : dirty.size();
+        output.writeInt(count);
+        for (Entry entry : written) {
+            output.writeLong(entry.key.replica());
+            output.writeLong(entry.key.clock());
+            output.writeLong(entry.localId);
+            output.writeLong(entry.replica);
+            output.writeLong(entry.clock);
+            output.writeInt(entry.contents);
+        }
+        dirty.clear();
+        return count;
+    }
+
+    /**
+     * Applies what writeChanges wrote; later records replace the entries of earlier ones
+     * @param input where to read
+     * @return number of entries read
+     * @throws IOException if the input fails or ends early
+     */
+    int readChanges(DataInput input) throws IOException {
+        clock = Math.max(clock, input.readLong());
+        vector.putAll(readVector(input));
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            Entry entry = entries.computeIfAbsent(new TaskKey(input.readLong(), input.readLong()), Entry::new);
+            long localId = input.readLong();
+            long replica = input.readLong();
+            long version = input.readLong();
+            int contents = input.readInt();
+            setVersion(entry, replica, version, localId, null);
+            entry.contents = contents;
+        }
+        dirty.clear();
+        return count;
+    }
+
+    static void writeVector(DataOutput output, Map<Long, Long> vector) throws IOException {
+        output.writeInt(vector.size());
+        for (Map.Entry<Long, Long> seen : vector.entrySet()) {
+            output.writeLong(seen.getKey());
+            output.writeLong(seen.getValue());
+        }
+    }
+
+    static Map<Long, Long> readVector(DataInput input) throws IOException {
+        int size = input.readInt();
+        if (size < 0) {
+            throw new IOException("Malformed version vector");
+        }
+        Map<Long, Long> vector = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            vector.put(input.readLong(), input.readLong());
+        }
+        return vector;
+    }
+}
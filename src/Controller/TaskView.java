@@ -0,0 +1,157 @@
+package Controller;
+
+import Model.DueDate;
+import Model.Task;
+import Model.TaskCategory;
+import Model.TaskPriority;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A sorted and optionally filtered view of the task list
+ * The task manager keeps the tasks ordered by every sort key that has been used, and updates the order on every
+ * change, so reading a row of a view takes logarithmic time however many tasks there are. A filter keeps only the
+ * tasks with one value of the sort key, for example only completed tasks. Tasks with the same value stay in a fixed
+ * order that does not depend on the sort direction of the view
+ */
+public final class TaskView {
+    private static final int[] CATEGORY_RANKS = categoryRanks();
+    private static final int MISSING = Integer.MAX_VALUE; //sort value of a task without a valid value, sorted last
+
+    private final SortKey key;
+    private final boolean ascending;
+    private final int from; //lowest sort value shown
+    private final int to; //sort value after the highest one shown
+
+    /**
+     * Values the tasks of a view can be sorted by
+     */
+    public enum SortKey {
+        DUE_DATE, //earliest first, tasks without a due date last
+        PRIORITY, //highest first
+        CATEGORY, //alphabetical
+        STATUS //pending first
+    }
+
+    private TaskView(SortKey key, boolean ascending, int from, int to) {
+        this.key = key;
+        this.ascending = ascending;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Creates a view of all tasks
+     * @param key value to sort by
+     * @param ascending true for the natural order of the key, false for the reverse
+     * @return the view
+     */
+    public static TaskView sortedBy(SortKey key, boolean ascending) {
+        return new TaskView(key, ascending, Integer.MIN_VALUE, MISSING);
+    }
+
+    /**
+     * Creates a view of the tasks with the given status
+     * @param completed true for completed tasks, false for pending ones
+     * @return the view
+     */
+    public static TaskView withStatus(boolean completed) {
+        int value = completed ? 1 : 0;
+        return new TaskView(SortKey.STATUS, true, value, value + 1);
+    }
+
+    /**
+     * Creates a view of the tasks in a category
+     * @param category the category
+     * @return the view
+     */
+    public static TaskView withCategory(TaskCategory category) {
+        int value = CATEGORY_RANKS[category.ordinal()];
+        return new TaskView(SortKey.CATEGORY, true, value, value + 1);
+    }
+
+    /**
+     * Creates a view of the tasks with a priority
+     * @param priority the priority
+     * @return the view
+     */
+    public static TaskView withPriority(TaskPriority priority) {
+        return new TaskView(SortKey.PRIORITY, true, priority.ordinal(), priority.ordinal() + 1);
+    }
+
+    public SortKey getKey() {
+        return key;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * @return true if the view leaves out some tasks
+     */
+    boolean isFiltered() {
+        return from != Integer.MIN_VALUE || to != MISSING;
+    }
+
+    /**
+     * @param value sort value of a task
+     * @return true if the view shows tasks with this value
+     */
+    boolean contains(int value) {
+        return !isFiltered() || (value >= from && value < to);
+    }
+
+    /**
+     * @return the order position of the first task the view can show
+     */
+    long lowerBound() {
+        return pack(from, 0);
+    }
+
+    /**
+     * @return the order position after the last task the view can show
+     */
+    long upperBound() {
+        return pack(to, 0);
+    }
+
+    /**
+     * Computes the value a task is sorted by
+     * @param key the sort key
+     * @param task the task
+     * @return the sort value, smaller values first
+     */
+    static int sortValue(SortKey key, Task task) {
+        return switch (key) {
+            case DUE_DATE -> task.getDueDay() != DueDate.NONE ? task.getDueDay() : MISSING;
+            case PRIORITY -> task.getTaskPriority() != null ? task.getTaskPriority().ordinal() : MISSING;
+            case CATEGORY -> task.getTaskCategory() != null ? CATEGORY_RANKS[task.getTaskCategory().ordinal()] : MISSING;
+            case STATUS -> task.isCompleted() ? 1 : 0;
+        };
+    }
+
+    /**
+     * Combines a sort value and a tie breaker into one number that orders both
+     * @param value sort value
+     * @param tieBreaker non-negative number ordering tasks with the same value
+     * @return the combined number
+     */
+    static long pack(int value, int tieBreaker) {
+        return ((long) value << 32) | tieBreaker;
+    }
+
+    /**
+     * @return position of every category in alphabetical order, by ordinal
+     */
+    private static int[] categoryRanks() {
+        TaskCategory[] sorted = TaskCategory.values();
+        Arrays.sort(sorted, Comparator.comparing(TaskCategory::name));
+        int[] ranks = new int[sorted.length];
+        for (int rank = 0; rank < sorted.length; rank++) {
+            ranks[sorted[rank].ordinal()] = rank;
+        }
+        return ranks;
+    }
+}
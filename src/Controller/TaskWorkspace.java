@@ -0,0 +1,295 @@
+package Controller;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * A directory of task lists, each kept in its own file and loaded only when it is opened
+ * Every list is a shard with its own task manager, save scheduler and lock, so changes to one list never wait for
+ * another. A list is loaded the first time it is opened; when the estimated memory of the loaded lists exceeds the
+ * budget, the least recently used lists that nobody has open are saved and unloaded. All lists share one
+ * persistence thread
+ */
+public class TaskWorkspace implements AutoCloseable {
+    private static final String FILE_SUFFIX = ".tasks";
+    private static final long ESTIMATED_TASK_BYTES = 256; //rough heap use of a loaded task with its strings and index entries
+
+    private final Path directory;
+    private final boolean journalMode;
+    private final TaskManager.Storage storage;
+    private final long memoryBudget; //estimated bytes the loaded lists may use before unused ones are unloaded
+    private final long saveWindowMillis;
+    private final ScheduledExecutorService writer = SaveScheduler.newWriter(); //persistence thread of all lists
+    private final Map<String, Shard> shards = new LinkedHashMap<>(16, 0.75f, true); //every list opened so far, least recently used first
+
+    /**
+     * A list and, while it is loaded, its task manager
+     * The loaded state is changed with the shard's monitor held, so a list is never loaded while it is being saved
+     * and unloaded
+     */
+    private static final class Shard {
+        private final String name;
+        private volatile TaskManager taskManager; //null while the list is not loaded
+        private SaveScheduler saveScheduler;
+        private int leases; //open leases, guarded by the workspace
+
+        Shard(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * An open list; the list stays loaded until the lease is closed
+     */
+    public final class Lease implements AutoCloseable {
+        private final Shard shard;
+        private boolean closed;
+
+        private Lease(Shard shard) {
+            this.shard = shard;
+        }
+
+        /**
+         * @return name of the list
+         */
+        public String getName() {
+            return shard.name;
+        }
+
+        /**
+         * @return the tasks of the list
+         */
+        public TaskManager getTaskManager() {
+            return shard.taskManager;
+        }
+
+        /**
+         * Releases the list; it may be unloaded from now on
+         */
+        @Override
+        public void close() {
+            synchronized (TaskWorkspace.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                shard.leases--;
+            }
+            evictOverBudget();
+        }
+    }
+
+    /**
+     * Creates a workspace; no list is read until it is opened
+     * @param directory directory holding one file per list
+     * @param journalMode true to log each change of a list instead of rewriting its file
+     * @param storage how the tasks of a loaded list are held in memory
+     * @param memoryBudget estimated bytes the loaded lists may use before unused ones are unloaded
+     * @param saveWindowMillis how long changes to a list are collected before they are written
+     * @throws IOException if the directory cannot be created
+     */
+    public TaskWorkspace(Path directory, boolean journalMode, TaskManager.Storage storage, long memoryBudget,
+                         long saveWindowMillis) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.journalMode = journalMode;
+        this.storage = storage;
+        this.memoryBudget = memoryBudget;
+        this.saveWindowMillis = saveWindowMillis;
+    }
+
+    /**
+     * Lists the names of the lists in the workspace without loading any of them
+     * @return names of the lists that have a file or are open, in alphabetical order
+     * @throws IOException if the directory cannot be read
+     */
+    public List<String> getListNames() throws IOException {
+        TreeSet<String> names = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                names.add(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()));
+            }
+        }
+        synchronized (this) {
+            for (Shard shard : shards.values()) {
+                if (shard.taskManager != null) {
+                    names.add(shard.name); //a new list has no file until it is first saved
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Opens a list, loading it if it is not loaded yet; a list that does not exist yet starts out empty
+     * Only the requested list is read. Close the lease when done so the list can be unloaded again
+     * @param name name of the list: letters, digits, '-' and '_'
+     * @return lease on the list
+     * @throws IOException if the list exists but cannot be loaded
+     */
+    public Lease open(String name) throws IOException {
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Invalid list name: " + name);
+        }
+
+        Shard shard;
+        synchronized (this) {
+            shard = shards.computeIfAbsent(name, Shard::new); //also marks the list as most recently used
+            shard.leases++;
+        }
+        try {
+            load(shard);
+        } catch (IOException e) {
+            synchronized (this) {
+                shard.leases--;
+            }
+            throw e;
+        }
+        evictOverBudget();
+        return new Lease(shard);
+    }
+
+    /**
+     * Runs an action on a list, keeping it open only while the action runs
+     * @param name name of the list
+     * @param action the action
+     * @return the result of the action
+     * @throws IOException if the list exists but cannot be loaded
+     */
+    public <T> T withList(String name, Function<TaskManager, T> action) throws IOException {
+        try (Lease lease = open(name)) {
+            return action.apply(lease.getTaskManager());
+        }
+    }
+
+    /**
+     * @return number of lists that are loaded
+     */
+    public synchronized int getLoadedCount() {
+        int count = 0;
+        for (Shard shard : shards.values()) {
+            if (shard.taskManager != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Saves and unloads every list and stops the persistence thread
+     */
+    @Override
+    public void close() {
+        List<Shard> all;
+        synchronized (this) {
+            all = new ArrayList<>(shards.values());
+        }
+        for (Shard shard : all) {
+            unload(shard, true);
+        }
+        writer.shutdown();
+    }
+
+    /**
+     * Loads a list unless it is loaded already; other lists stay usable meanwhile
+     */
+    private void load(Shard shard) throws IOException {
+        synchronized (shard) {
+            if (shard.taskManager != null) {
+                return;
+            }
+
+            Path file = directory.resolve(shard.name + FILE_SUFFIX);
+            TaskManager taskManager = new TaskManager(journalMode, storage, file.toString());
+            if (!taskManager.loadTasks() && hasFiles(shard.name)) {
+                taskManager.close();
+                throw new IOException("Failed to load list " + shard.name); //saving the empty list would overwrite it
+            }
+
+            SaveScheduler saveScheduler = new SaveScheduler(taskManager::prepareSave, Runnable::run,
+                    message -> System.err.println(shard.name + ": " + message), saveWindowMillis, writer);
+            taskManager.getEventBus().subscribe(events -> saveScheduler.requestSave(), TaskEventBus.DIRECT);
+            shard.saveScheduler = saveScheduler;
+            shard.taskManager = taskManager;
+        }
+    }
+
+    /**
+     * Saves and unloads a list
+     * @param force true to unload it even if it is open
+     */
+    private void unload(Shard shard, boolean force) {
+        synchronized (shard) {
+            synchronized (this) {
+                if (shard.taskManager == null || (shard.leases > 0 && !force)) {
+                    return; //opened again since it was picked
+                }
+            }
+            shard.saveScheduler.shutdown();
+            shard.taskManager.close();
+            shard.taskManager = null;
+            shard.saveScheduler = null;
+        }
+    }
+
+    /**
+     * Unloads the least recently used lists that are not open until the loaded lists fit in the memory budget
+     */
+    private void evictOverBudget() {
+        List<Shard> evicted = new ArrayList<>();
+        synchronized (this) {
+            long used = 0;
+            for (Shard shard : shards.values()) {
+                used += estimatedBytes(shard);
+            }
+            Iterator<Shard> leastRecent = shards.values().iterator();
+            while (used > memoryBudget && leastRecent.hasNext()) {
+                Shard shard = leastRecent.next();
+                if (shard.leases == 0 && shard.taskManager != null) {
+                    used -= estimatedBytes(shard);
+                    evicted.add(shard);
+                }
+            }
+        }
+        for (Shard shard : evicted) {
+            unload(shard, false); //the save runs without the workspace lock, so other lists can be opened meanwhile
+        }
+    }
+
+    private static long estimatedBytes(Shard shard) {
+        TaskManager taskManager = shard.taskManager;
+        return taskManager != null ? (long) taskManager.getTaskCount() * ESTIMATED_TASK_BYTES : 0;
+    }
+
+    /**
+     * @return true if the list has a task file or journal segments
+     */
+    private boolean hasFiles(String name) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, name + FILE_SUFFIX + "*")) {
+            return files.iterator().hasNext();
+        }
+    }
+
+    private static boolean isValidName(String name) {
+        if (name == null || name.isEmpty() || name.length() > 128) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
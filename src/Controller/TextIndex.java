@@ -0,0 +1,410 @@
+package Controller;
+
+import Model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Inverted index over the words of task titles and descriptions
+ * Every word maps to the IDs of the tasks containing it, kept sorted so that lists can be intersected and merged
+ * in a single pass. Each entry also records whether the word is in the title, the description or both, which is
+ * used to rank the results
+ */
+final class TextIndex {
+    private static final int IN_DESCRIPTION = 1; //weight of a word found in the description
+    private static final int IN_TITLE = 2; //weight of a word found in the title
+
+    private final Map<String, Postings> postingsByWord = new HashMap<>();
+    private final NavigableSet<String> sortedWords = new TreeSet<>(); //the same words in order, for prefix lookups
+
+    /**
+     * Adds the words of a task to the index
+     * @param task task with an ID
+     */
+    void add(Task task) {
+        for (var entry : wordsOf(task).entrySet()) {
+            Postings postings = postingsByWord.get(entry.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                postingsByWord.put(entry.getKey(), postings);
+                sortedWords.add(entry.getKey());
+            }
+            postings.add(task.getId(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes the words of a task from the index
+     * @param task the task as it was indexed
+     */
+    void remove(Task task) {
+        for (String word : wordsOf(task).keySet()) {
+            Postings postings = postingsByWord.get(word);
+            if (postings != null && postings.remove(task.getId()) && postings.isEmpty()) {
+                postingsByWord.remove(word);
+                sortedWords.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Finds the tasks matching a query, best matches first
+     * Words in the query must all appear in a task; "OR" between words accepts either side instead.
+     * A word ending with '*' matches every word starting with it, and so does the last word unless the query
+     * ends with a space, so results can be shown while the user is still typing.
+     * Tasks matching in the title rank above tasks matching only in the description; equal ranks keep ID order
+     * @param query the search text
+     * @param limit maximum number of results
+     * @return IDs of the matching tasks
+     */
+    long[] search(String query, int limit) {
+        List<List<String>> groups = parse(query);
+        boolean lastIsPrefix = !query.isEmpty() && Character.isLetterOrDigit(query.charAt(query.length() - 1));
+
+        Hits result = null;
+        for (int g = 0; g < groups.size(); g++) {
+            List<String> terms = groups.get(g);
+            Hits group = null;
+            for (int t = 0; t < terms.size(); t++) {
+                String term = terms.get(t);
+                boolean isPrefix = term.endsWith("*") || (lastIsPrefix && g == groups.size() - 1 && t == terms.size() - 1);
+                Hits hits = termHits(isPrefix ? strip(term) : term, isPrefix);
+                group = group == null ? hits : group.intersect(hits);
+                if (group.size == 0) {
+                    break; //no task can match the rest of the group
+                }
+            }
+            if (group != null) {
+                result = result == null ? group : result.union(group);
+            }
+        }
+        return result == null ? new long[0] : result.ranked(limit);
+    }
+
+    /**
+     * Splits a query into groups of words joined by "OR"
+     */
+    private static List<List<String>> parse(String query) {
+        List<List<String>> groups = new ArrayList<>();
+        List<String> group = new ArrayList<>();
+        for (String part : query.trim().split("\\s+")) {
+            if (part.equals("OR")) {
+                if (!group.isEmpty()) {
+                    groups.add(group);
+                    group = new ArrayList<>();
+                }
+                continue;
+            }
+
+            boolean isPrefix = part.endsWith("*");
+            List<String> words = tokenize(part);
+            for (int i = 0; i < words.size(); i++) {
+                group.add(isPrefix && i == words.size() - 1 ? words.get(i) + "*" : words.get(i));
+            }
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Collects the tasks containing a word, or with prefix set, any word starting with it
+     */
+    private Hits termHits(String term, boolean isPrefix) {
+        if (!isPrefix) {
+            Postings postings = postingsByWord.get(term);
+            return postings == null ? new Hits(0) : postings.toHits();
+        }
+
+        List<Hits> lists = new ArrayList<>();
+        for (String word : sortedWords.subSet(term, true, term + Character.MAX_VALUE, false)) {
+            lists.add(postingsByWord.get(word).toHits());
+        }
+        return Hits.unionAll(lists, 0, lists.size());
+    }
+
+    private static String strip(String term) {
+        return term.endsWith("*") ? term.substring(0, term.length() - 1) : term;
+    }
+
+    /**
+     * Maps each word of a task to where it appears
+     */
+    private static Map<String, Integer> wordsOf(Task task) {
+        Map<String, Integer> words = new HashMap<>();
+        for (String word : tokenize(task.getTitle())) {
+            words.merge(word, IN_TITLE, (a, b) -> a | b);
+        }
+        for (String word : tokenize(task.getDescription())) {
+            words.merge(word, IN_DESCRIPTION, (a, b) -> a | b);
+        }
+        return words;
+    }
+
+    /**
+     * Splits text into lower case words made of letters and digits
+     * @param text text to split, may be null
+     * @return the words in order
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isWordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Task IDs containing one word, in ascending order, with the weight of the word in each task
+     * No change shifts the whole list: a removed task leaves a tombstone, a weight of 0, which a later add of the same
+     * ID reuses, and a task older than the last one in the list goes to a short sorted list of its own. Tombstones are
+     * dropped once they outnumber the tasks, and the short list is merged in once it holds more than the square root
+     * of the tasks, so both cost a constant or square root time per change on average
+     */
+    private static final class Postings {
+        private static final int REMOVED = 0; //weight of a tombstone; real weights are IN_DESCRIPTION, IN_TITLE or both
+
+        private long[] ids = new long[2];
+        private int[] weights = new int[2];
+        private int size; //entries in ids, tombstones included
+        private int removed; //tombstones in ids
+        private long[] lateIds = new long[0]; //tasks added below the last ID in ids
+        private int[] lateWeights = new int[0];
+        private int lateSize;
+
+        void add(long id, int weight) {
+            int i = size > 0 && ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id); //new tasks have the highest ID
+            if (i >= 0) {
+                if (weights[i] == REMOVED) {
+                    removed--;
+                }
+                weights[i] = weight;
+                return;
+            }
+            if (-i - 1 == size) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    weights = Arrays.copyOf(weights, size * 2);
+                }
+                ids[size] = id;
+                weights[size++] = weight;
+                return;
+            }
+
+            i = Arrays.binarySearch(lateIds, 0, lateSize, id);
+            if (i >= 0) {
+                lateWeights[i] = weight;
+                return;
+            }
+            i = -i - 1;
+            if (lateSize == lateIds.length) {
+                lateIds = Arrays.copyOf(lateIds, lateSize * 2 + 2);
+                lateWeights = Arrays.copyOf(lateWeights, lateSize * 2 + 2);
+            }
+            System.arraycopy(lateIds, i, lateIds, i + 1, lateSize - i);
+            System.arraycopy(lateWeights, i, lateWeights, i + 1, lateSize - i);
+            lateIds[i] = id;
+            lateWeights[i] = weight;
+            lateSize++;
+            if ((long) lateSize * lateSize > size) {
+                compact();
+            }
+        }
+
+        boolean remove(long id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) {
+                if (weights[i] == REMOVED) {
+                    return false;
+                }
+                weights[i] = REMOVED;
+                removed++;
+                if (removed > size - removed) {
+                    compact();
+                }
+                return true;
+            }
+
+            i = Arrays.binarySearch(lateIds, 0, lateSize, id);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(lateIds, i + 1, lateIds, i, lateSize - i - 1);
+            System.arraycopy(lateWeights, i + 1, lateWeights, i, lateSize - i - 1);
+            lateSize--;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return size - removed + lateSize == 0;
+        }
+
+        /**
+         * Wraps the list without copying it if it has no tombstones or late tasks, and merges it into a copy otherwise,
+         * leaving the list as it is for searches running at the same time; the hits must be used before the index
+         * changes
+         */
+        Hits toHits() {
+            return removed == 0 && lateSize == 0 ? new Hits(ids, weights, size) : merged(size - removed + lateSize);
+        }
+
+        /**
+         * Drops the tombstones and merges the late tasks into the list
+         */
+        private void compact() {
+            int count = size - removed + lateSize;
+            Hits merged = merged(Math.max(2, count + (count >> 1))); //room to append new tasks
+            ids = merged.ids;
+            weights = merged.scores;
+            size = merged.size;
+            removed = 0;
+            lateIds = new long[0];
+            lateWeights = new int[0];
+            lateSize = 0;
+        }
+
+        /**
+         * @param capacity room for at least all tasks of the list
+         * @return the tasks of the list and the late tasks in ID order, without tombstones
+         */
+        private Hits merged(int capacity) {
+            Hits merged = new Hits(capacity);
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                if (weights[i] == REMOVED) {
+                    continue;
+                }
+                while (j < lateSize && lateIds[j] < ids[i]) {
+                    merged.append(lateIds[j], lateWeights[j++]);
+                }
+                merged.append(ids[i], weights[i]);
+            }
+            while (j < lateSize) {
+                merged.append(lateIds[j], lateWeights[j++]);
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * Matching task IDs in ascending order with a score for each
+     */
+    private static final class Hits {
+        private final long[] ids;
+        private final int[] scores;
+        private int size;
+
+        Hits(int capacity) {
+            this(new long[capacity], new int[capacity], 0);
+        }
+
+        Hits(long[] ids, int[] scores, int size) {
+            this.ids = ids;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        /**
+         * Keeps the tasks in both lists, adding their scores
+         */
+        Hits intersect(Hits other) {
+            Hits result = new Hits(Math.min(size, other.size));
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (ids[i] < other.ids[j]) {
+                    i++;
+                } else if (ids[i] > other.ids[j]) {
+                    j++;
+                } else {
+                    result.append(ids[i], scores[i++] + other.scores[j++]);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Keeps the tasks in either list, adding the scores of tasks in both
+         */
+        Hits union(Hits other) {
+            Hits result = new Hits(size + other.size);
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && ids[i] < other.ids[j])) {
+                    result.append(ids[i], scores[i++]);
+                } else if (i == size || ids[i] > other.ids[j]) {
+                    result.append(other.ids[j], other.scores[j++]);
+                } else {
+                    result.append(ids[i], scores[i++] + other.scores[j++]);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Merges lists pairwise, so every entry is copied once per level instead of once per list
+         */
+        static Hits unionAll(List<Hits> lists, int from, int to) {
+            if (to - from == 0) {
+                return new Hits(0);
+            }
+            if (to - from == 1) {
+                return lists.get(from);
+            }
+            int mid = (from + to) >>> 1;
+            return unionAll(lists, from, mid).union(unionAll(lists, mid, to));
+        }
+
+        /**
+         * Orders the IDs by descending score with a counting sort, since scores are small
+         */
+        long[] ranked(int limit) {
+            int maxScore = 0;
+            for (int i = 0; i < size; i++) {
+                maxScore = Math.max(maxScore, scores[i]);
+            }
+
+            int[] starts = new int[maxScore + 2];
+            for (int i = 0; i < size; i++) {
+                starts[maxScore - scores[i] + 1]++;
+            }
+            for (int s = 1; s < starts.length; s++) {
+                starts[s] += starts[s - 1];
+            }
+
+            long[] ranked = new long[Math.min(size, limit)];
+            for (int i = 0; i < size; i++) {
+                int position = starts[maxScore - scores[i]]++;
+                if (position < ranked.length) {
+                    ranked[position] = ids[i];
+                }
+            }
+            return ranked;
+        }
+
+        private void append(long id, int score) {
+            ids[size] = id;
+            scores[size++] = score;
+        }
+    }
+}
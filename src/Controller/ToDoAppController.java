@@ -1,31 +1,84 @@
 package Controller;
 
+import Model.DueDate;
 import Model.Task;
 import Model.TaskCategory;
+import View.TaskListView;
+import View.TaskTableModel;
 import View.ToDoAppView;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Controller class responsible for managing the logic and interactions between the view and the model
  */
 public class ToDoAppController {
+    private static final int IMPORT_BATCH_SIZE = 5_000; //records parsed and added together during an import
+    private static final int MAX_LISTED_REMINDERS = 10; //tasks named in the tooltip of a reminder
+    private static final TaskView.SortKey[] SORT_KEYS = {null, null, TaskView.SortKey.DUE_DATE, TaskView.SortKey.CATEGORY,
+            TaskView.SortKey.PRIORITY, TaskView.SortKey.STATUS}; //sort key of each table column, null if it cannot be sorted
+
     private final TaskManager taskManager; //manages the tasks
-    private final ToDoAppView view; //handles the user interface
+    private final TaskListView view; //handles the user interface
+    private final TaskTableModel tableModel; //rows of the table, which the row indexes refer to
+    private final SaveScheduler saveScheduler; //writes changes off the event dispatch thread
+    private final ReminderScheduler reminderScheduler; //raises reminders for tasks coming due or overdue
+    private String searchText = ""; //text of the search shown
 
     /**
      * Constructor to initialize the controller, set up listeners, and load tasks
      */
     public ToDoAppController() {
-        taskManager = new TaskManager();
-        view = new ToDoAppView();
+        //journal mode is enabled with -Dtodo.journal=true, other storage with -Dtodo.storage=mapped or -Dtodo.storage=offheap
+        this(new TaskManager(Boolean.getBoolean("todo.journal"), storage(System.getProperty("todo.storage"))), new ToDoAppView());
+    }
 
-        //add listeners to buttons
-        view.getAddButton().addActionListener(e -> view.showAddTaskDialog(this));
-        view.getMarkCompletedButton().addActionListener(e -> markTaskAsCompleted(view.getTable().getSelectedRow()));
-        view.getDeleteButton().addActionListener(e -> deleteTask(view.getTable().getSelectedRow()));
+    /**
+     * Initializes the controller for the given task manager and view, sets up listeners, and loads tasks
+     * @param taskManager manages the tasks, not loaded yet
+     * @param view shows the tasks
+     */
+    public ToDoAppController(TaskManager taskManager, TaskListView view) {
+        this.taskManager = taskManager;
+        this.view = view;
+        tableModel = view.getTableModel();
+        tableModel.setTaskManager(taskManager);
+
+        //changes made within the window (-Dtodo.saveWindowMillis, 250 ms by default) are written together
+        saveScheduler = new SaveScheduler(taskManager::prepareSave, SwingUtilities::invokeLater,
+                message -> view.showMessage(message, JOptionPane.ERROR_MESSAGE), Long.getLong("todo.saveWindowMillis", 250));
+
+        //tasks are reminded of a day before they are due (-Dtodo.reminderLeadDays) and again once they are overdue
+        reminderScheduler = new ReminderScheduler(reminders -> SwingUtilities.invokeLater(() -> showReminders(reminders)),
+                Clock.systemDefaultZone(), Integer.getInteger("todo.reminderLeadDays", 1));
+        reminderScheduler.follow(taskManager);
+
+        //search results are refreshed when tasks are added or changed, on the event dispatch thread like the table
+        taskManager.getEventBus().subscribe(this::refreshSearch, SwingUtilities::invokeLater);
+
+        //metrics are available through JMX; -Dtodo.metricsDumpSeconds=<n> also prints them as JSON every n seconds
+        taskManager.getMetrics().registerMBean();
+        taskManager.getMetrics().startReporting(SwingUtilities::invokeLater, Long.getLong("todo.metricsDumpSeconds", 0), System.out::println);
+
+        view.bind(this);
+        view.onClose(() -> {
+            taskManager.getMetrics().stopReporting();
+            reminderScheduler.shutdown();
+            saveScheduler.shutdown(); //write pending changes before the application exits
+        });
+
+        //the undo and redo buttons follow the history, which changes with every change to the tasks
+        taskManager.getEventBus().subscribe(events -> updateUndoButtons(), SwingUtilities::invokeLater);
 
         initialize();
     }
@@ -36,13 +89,31 @@ public class ToDoAppController {
     private void initialize() {
         try {
             loadTasks();
-            view.setVisible(true);
+            //every later change is saved; the listener only opens a save window, so it runs on the changing thread
+            taskManager.getEventBus().subscribe(events -> saveScheduler.requestSave(), TaskEventBus.DIRECT);
+            reminderScheduler.start(); //reminders that became due while the application was closed are shown at once
+            view.open();
         } catch (Exception e) {
             System.out.println("Initialization failed: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    /**
+     * Picks the storage named by the todo.storage property
+     * @param name value of the property, may be null
+     * @return the storage, HEAP unless the name is mapped or offheap
+     */
+    static TaskManager.Storage storage(String name) {
+        if ("mapped".equalsIgnoreCase(name)) {
+            return TaskManager.Storage.MAPPED;
+        }
+        if ("offheap".equalsIgnoreCase(name) || "off_heap".equalsIgnoreCase(name)) {
+            return TaskManager.Storage.OFF_HEAP;
+        }
+        return TaskManager.Storage.HEAP;
+    }
+
     /**
      * Adds a new task to the task manager, updates the table, and saves the tasks
      *
@@ -54,18 +125,16 @@ public class ToDoAppController {
      * @return true if task is added successfully
      */
     public boolean addTask(String title, String description, String dueDate, TaskCategory category, String priority) {
-        String errorMessage = validateTask(title, dueDate, priority, category);
-        if (errorMessage != null) {
-            System.out.println("Failed to add task: " + errorMessage);
+        TaskValidator.Outcome outcome = TaskValidator.validate(new TaskValidator.Input(title, description, dueDate, priority, category, false));
+        if (outcome.problem() != null) {
+            System.out.println("Failed to add task: " + outcome.problem().getMessage());
             return false;
         }
 
-        Task task = new Task(title, description, dueDate, category.name(), priority, false);
+        Task task = outcome.task();
 
         if (taskManager.addTask(task)) {
-            updateTable(); //refresh the table to display the new task
-            taskManager.saveTasks();
-            return true;
+            return true; //the table and the save follow the change event
         }
         else {
             System.out.println("Failed to add task: the task is null!");
@@ -74,56 +143,56 @@ public class ToDoAppController {
     }
 
     /**
-     * Method that validates the task
-     * @param title task title
-     * @param dueDate tasks due date
-     * @param priority task priority
-     * @param category task category
-     * @return info about the validity of the task
+     * Imports the tasks of a CSV or JSON Lines file on a background thread
+     * Each batch is added as one change, so the table is refreshed and a save is requested once per batch rather than
+     * once per task
+     * @param file file to import, or null to do nothing
      */
-    private String validateTask(String title, String dueDate, String priority, TaskCategory category) {
-        if (title == null || title.isBlank()) {
-            return "Title cannot be null or blank!";
-        }
-
-        if (!isValidDate(dueDate)) {
-            return "Due date must be in the format YYYY-MM-DD!";
-        }
-
-        if (!isValidPriority(priority)) {
-            return "Task priority must be low, medium, or high!";
+    public void importTasks(File file) {
+        if (file == null) {
+            return;
         }
 
-        if (category == null) {
-            return "Task category cannot be null1";
-        }
-
-        return null;
-    }
-
-    /**
-     * Check if priority is valid
-     * @param priority the task priority
-     * @return true if valid
-     */
-    private boolean isValidPriority(String priority) {
-        return "Low".equalsIgnoreCase(priority) || "Medium".equalsIgnoreCase(priority) || "High".equalsIgnoreCase(priority);
+        TaskImporter importer = new TaskImporter(taskManager, IMPORT_BATCH_SIZE);
+        runInBackground("task-import", () -> {
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                TaskImporter.Result result = importer.importTasks(reader, TaskFileFormat.fromFileName(file.getName()), null);
+
+                StringBuilder message = new StringBuilder("Imported " + result.imported() + " tasks.");
+                if (result.rejected() > 0) {
+                    message.append("\n").append(result.rejected()).append(" records were skipped:");
+                    result.errors().stream().limit(10).forEach(error -> message.append("\n").append(error));
+                }
+                view.showMessage(message.toString(), result.rejected() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+            } catch (IOException e) {
+                view.showMessage("Failed to import tasks: " + e.getMessage(), JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 
     /**
-     * Checks if date format is valid
-     * @param dueDate the task due date
-     * @return true if due date is valid
+     * Exports all tasks to a CSV or JSON Lines file on a background thread
+     * @param file file to write, or null to do nothing
      */
-    private boolean isValidDate(String dueDate) {
-        if (dueDate == null) {
-            return false;
+    public void exportTasks(File file) {
+        if (file == null) {
+            return;
         }
 
-        //YYYY-MM-DD format
-        String format = "\\d{4}-\\d{2}-\\d{2}";
+        runInBackground("task-export", () -> {
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                int count = TaskExporter.exportTasks(taskManager, writer, TaskFileFormat.fromFileName(file.getName()));
+                view.showMessage("Exported " + count + " tasks.", JOptionPane.INFORMATION_MESSAGE);
+            } catch (IOException e) {
+                view.showMessage("Failed to export tasks: " + e.getMessage(), JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
 
-        return dueDate.matches(format);
+    private void runInBackground(String name, Runnable work) {
+        Thread thread = new Thread(work, name);
+        thread.setDaemon(true);
+        thread.start();
     }
 
     /**
@@ -134,19 +203,18 @@ public class ToDoAppController {
         String errorMessage = validateRowIndex(rowIndex);
 
         if (errorMessage != null) {
-            JOptionPane.showMessageDialog(view, errorMessage, "Error", JOptionPane.ERROR_MESSAGE);
+            view.showError(errorMessage);
             return false;
         }
 
-        boolean isMarked = taskManager.markTaskAsCompleted(rowIndex);
+        long taskId = tableModel.getTaskId(rowIndex); //the task keeps its ID even if the rows change
+        boolean isMarked = taskManager.markTaskAsCompletedById(taskId);
 
         if (isMarked) {
-            taskManager.saveTasks(); //save changes after marking the task
-            updateTable(); //refresh the table to reflect the updated status
-            return true;
+            return true; //the row is redrawn and the change saved when the event arrives
         }
 
-        JOptionPane.showMessageDialog(view, "Failed to mark the task as completed. Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
+        view.showError("Failed to mark the task as completed. Please try again.");
         return false;
     }
 
@@ -158,27 +226,126 @@ public class ToDoAppController {
         String errorMessage = validateRowIndex(rowIndex);
 
         if (errorMessage != null) {
-            JOptionPane.showMessageDialog(view, errorMessage, "Error", JOptionPane.ERROR_MESSAGE);
+            view.showError(errorMessage);
             return false;
         }
 
-        if (taskManager.deleteTask(rowIndex)) {
-            taskManager.saveTasks(); //save changes after deleting the task
-            updateTable(); //refresh the table to remove the task
-            return true;
+        if (taskManager.deleteTaskById(tableModel.getTaskId(rowIndex))) {
+            return true; //the row is removed and the change saved when the event arrives
         }
 
-        JOptionPane.showMessageDialog(view, "Failed to delete the task. Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
+        view.showError("Failed to delete the task. Please try again.");
         return false;
     }
 
+    /**
+     * Marks all selected tasks as completed in one change
+     * The tasks are saved once and the table is redrawn once, however many tasks are selected
+     * @param rowIndexes indexes of the tasks in the table
+     * @return true if the tasks are marked as completed
+     */
+    public boolean markTasksAsCompleted(int[] rowIndexes) {
+        long[] taskIds = selectedTaskIds(rowIndexes);
+        if (taskIds == null) {
+            return false;
+        }
+
+        TaskBatch batch = new TaskBatch();
+        for (long taskId : taskIds) {
+            batch.complete(taskId);
+        }
+
+        if (taskManager.applyBatch(batch)) {
+            return true; //the batch arrives as one list of events, so the rows are redrawn and saved once
+        }
+
+        view.showError("Failed to mark the tasks as completed. Please try again.");
+        return false;
+    }
+
+    /**
+     * Deletes all selected tasks in one change
+     * The tasks are saved once and the table is redrawn once, however many tasks are selected
+     * @param rowIndexes indexes of the tasks in the table
+     * @return true if the tasks are deleted
+     */
+    public boolean deleteTasks(int[] rowIndexes) {
+        long[] taskIds = selectedTaskIds(rowIndexes);
+        if (taskIds == null) {
+            return false;
+        }
+
+        TaskBatch batch = new TaskBatch();
+        Set<Long> deletedIds = new HashSet<>();
+        for (long taskId : taskIds) {
+            if (deletedIds.add(taskId)) {
+                batch.delete(taskId);
+            }
+        }
+
+        if (taskManager.applyBatch(batch)) {
+            return true; //the batch arrives as one list of events, so the rows are removed and saved once
+        }
+
+        view.showError("Failed to delete the tasks. Please try again.");
+        return false;
+    }
+
+    /**
+     * Reverts the latest change to the tasks; an import batch or a multi-row deletion is reverted as a whole
+     * The table and the save follow the change events like for any other change
+     * @return true if a change was undone
+     */
+    public boolean undo() {
+        boolean isUndone = taskManager.undo();
+        updateUndoButtons(); //a step that no longer fits the list is dropped without an event
+        return isUndone;
+    }
+
+    /**
+     * Makes the latest undone change again
+     * @return true if a change was made again
+     */
+    public boolean redo() {
+        boolean isRedone = taskManager.redo();
+        updateUndoButtons();
+        return isRedone;
+    }
+
+    private void updateUndoButtons() {
+        view.showUndoState(taskManager.canUndo(), taskManager.canRedo());
+    }
+
+    /**
+     * Resolves selected rows to task IDs, showing an error if the selection is empty or invalid
+     * @param rowIndexes indexes of the tasks in the table
+     * @return the IDs of the tasks, or null if the selection is not valid
+     */
+    private long[] selectedTaskIds(int[] rowIndexes) {
+        String errorMessage = rowIndexes == null || rowIndexes.length == 0 ? "Please select a valid task!" : null;
+        for (int i = 0; errorMessage == null && i < rowIndexes.length; i++) {
+            errorMessage = validateRowIndex(rowIndexes[i]);
+        }
+
+        if (errorMessage != null) {
+            view.showError(errorMessage);
+            return null;
+        }
+
+        long[] taskIds = new long[rowIndexes.length];
+        for (int i = 0; i < rowIndexes.length; i++) {
+            taskIds[i] = tableModel.getTaskId(rowIndexes[i]); //the tasks keep their IDs even if the rows change
+        }
+        return taskIds;
+    }
+
     /**
      * Method that validates the index
      * @param rowIndex the chosen index
      * @return true if index is valid
      */
     private String validateRowIndex(int rowIndex) {
-        if (rowIndex < 0 || rowIndex >= taskManager.getAllTasks().size()) {
+        if (rowIndex < 0 || rowIndex >= tableModel.getRowCount()) {
             return "Please select a valid task!";
         }
 
@@ -186,29 +353,108 @@ public class ToDoAppController {
     }
 
     /**
-     * Loads tasks from the task manager and populates the table
+     * Sorts the table by a column, or reverses the order if it is already sorted by that column
+     * A third click on the same column goes back to list order. Only the due date, category, priority and status
+     * columns can be sorted
+     * @param column model index of the column
      */
-    private void loadTasks() {
-        if (taskManager.loadTasks()) {
-            updateTable(); //populate the table with loaded tasks
+    public void sortByColumn(int column) {
+        TaskView.SortKey key = column >= 0 && column < SORT_KEYS.length ? SORT_KEYS[column] : null;
+        if (key == null) {
+            return;
+        }
+
+        TaskView current = tableModel.getView();
+        TaskView next;
+        if (current == null || current.getKey() != key) {
+            next = TaskView.sortedBy(key, true);
+        } else if (current.isAscending()) {
+            next = TaskView.sortedBy(key, false);
         } else {
-            JOptionPane.showMessageDialog(view, "Failed to load tasks.", "Error", JOptionPane.ERROR_MESSAGE);
+            next = null;
+        }
+
+        tableModel.setView(next);
+        view.showSortColumn(next != null ? column : -1, next != null && next.isAscending());
+        if (next == null && tableModel.isShowingSearchResults()) {
+            search(searchText); //puts the results back in order of relevance
+        }
+    }
+
+    /**
+     * Searches again after tasks were added or changed, so that the search results include them if they match
+     * @param events the changes, in the order they were made
+     */
+    private void refreshSearch(List<TaskEvent> events) {
+        if (tableModel.isShowingSearchResults()) {
+            for (TaskEvent event : events) {
+                if (event.kind() != TaskEvent.Kind.DELETED && event.kind() != TaskEvent.Kind.COMPLETED) {
+                    search(searchText);
+                    return;
+                }
+            }
         }
     }
 
     /**
-     * Updates the table view to reflect the current list of tasks
+     * Shows the tasks whose title or description matches the search text, or all tasks if the text is blank
+     * @param text the search text
      */
-    private void updateTable() {
-        DefaultTableModel tableModel = view.getTableModel();
-        tableModel.setRowCount(0); //clear the table
-        List<Task> tasks = taskManager.getAllTasks();
+    public void search(String text) {
+        searchText = text;
+        if (text == null || text.isBlank()) {
+            tableModel.clearSearchResults();
+            return;
+        }
 
-        //add each task as a row in the table
-        for (Task task : tasks) {
-            tableModel.addRow(new Object[]{task.getTitle(), task.getDescription(), task.getDueDate(),
-                    task.getCategory(), task.getPriority(), task.isCompleted() ? "Completed" : "Pending"
-            });
+        tableModel.showSearchResults(taskManager.searchTasks(text, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Shows the reminders that became due below the buttons
+     * Reminders of tasks that were completed or deleted in the meantime are left out
+     * @param reminders the reminders, in the order they became due
+     */
+    private void showReminders(List<ReminderScheduler.Reminder> reminders) {
+        int overdue = 0;
+        int dueSoon = 0;
+        String line = null; //text of the last reminder
+        StringBuilder details = new StringBuilder("<html>");
+
+        for (ReminderScheduler.Reminder reminder : reminders) {
+            Task task = taskManager.getTaskById(reminder.taskId());
+            if (task == null || task.isCompleted()) {
+                continue;
+            }
+            if (reminder.kind() == ReminderScheduler.Kind.OVERDUE) {
+                overdue++;
+            } else {
+                dueSoon++;
+            }
+            line = (reminder.kind() == ReminderScheduler.Kind.OVERDUE ? "Overdue: " : "Due soon: ")
+                    + task.getTitle() + " (" + DueDate.format(reminder.dueDay()) + ")";
+            if (overdue + dueSoon <= MAX_LISTED_REMINDERS) {
+                details.append(escapeHtml(line)).append("<br>");
+            }
+        }
+
+        if (overdue + dueSoon == 0) {
+            return;
+        }
+        String message = overdue + dueSoon == 1 ? line : overdue + " tasks overdue, " + dueSoon + " tasks due soon";
+        view.showReminder(message, details.append("</html>").toString());
+    }
+
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * Loads tasks from the task manager; the table is populated when the reset event arrives
+     */
+    private void loadTasks() {
+        if (!taskManager.loadTasks()) {
+            view.showError("Failed to load tasks.");
         }
     }
 }
\ No newline at end of file
@@ -2,16 +2,17 @@ package Model;
 
 import javax.swing.*;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Calendar;
+import java.util.Date;
 
 
 /**
  * Helper class to help format the date
+ * Dates are converted with DueDate, which keeps no state, so one formatter can be used from any thread
  */
 public class DateLabelFormatter extends JFormattedTextField.AbstractFormatter {
-    //date format used for parsing and formatting
-    private final SimpleDateFormat dateFormatter = new SimpleDateFormat("yyyy-MM-dd");
 
     /**
      * Converts a string into a date object
@@ -21,7 +22,11 @@ public class DateLabelFormatter extends JFormattedTextField.AbstractFormatter {
      */
     @Override
     public Object stringToValue(String text) throws ParseException {
-        return dateFormatter.parse(text);
+        int day = DueDate.parse(text);
+        if (day == DueDate.NONE) {
+            throw new ParseException("Not a date in the format YYYY-MM-DD: " + text, 0);
+        }
+        return Date.from(LocalDate.ofEpochDay(day).atStartOfDay(ZoneId.systemDefault()).toInstant());
     }
 
     /**
@@ -33,7 +38,8 @@ public class DateLabelFormatter extends JFormattedTextField.AbstractFormatter {
     public String valueToString(Object value) {
         if (value != null) {
             Calendar calendar = (Calendar) value;
-            return dateFormatter.format(calendar.getTime());
+            LocalDate date = LocalDate.of(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+            return DueDate.format((int) date.toEpochDay());
         }
         return "";
     }
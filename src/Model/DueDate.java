@@ -0,0 +1,106 @@
+package Model;
+
+/**
+ * Converts due dates between the text form YYYY-MM-DD and a day number
+ * A day number counts the days since 1970-01-01, so a date fits in an int and dates compare as numbers.
+ * The conversions are plain arithmetic and create no objects other than the formatted text
+ */
+public final class DueDate {
+    public static final int NONE = Integer.MIN_VALUE; //no due date, or text that is not a valid date
+
+    private static final int DAYS_0000_TO_1970 = 719468; //days from 0000-03-01 to 1970-01-01
+    private static final int DAYS_PER_ERA = 146097; //days in 400 years
+
+    private DueDate() {
+    }
+
+    /**
+     * Parses a due date
+     * @param text date in the format YYYY-MM-DD
+     * @return the day number, or NONE if the text is null or not a valid date
+     */
+    public static int parse(CharSequence text) {
+        if (text == null || text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return NONE;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return NONE;
+        }
+        return toDay(year, month, day);
+    }
+
+    /**
+     * Formats a due date
+     * @param day day number
+     * @return the date in the format YYYY-MM-DD, or null for NONE
+     */
+    public static String format(int day) {
+        if (day == NONE) {
+            return null;
+        }
+
+        //converts the day number back to a date, counting years from March so that February comes last
+        int days = day + DAYS_0000_TO_1970;
+        int era = Math.floorDiv(days, DAYS_PER_ERA);
+        int dayOfEra = days - era * DAYS_PER_ERA;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int dayOfMonth = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] text = new char[10];
+        putDigits(text, 0, 4, year);
+        text[4] = '-';
+        putDigits(text, 5, 7, month);
+        text[7] = '-';
+        putDigits(text, 8, 10, dayOfMonth);
+        return new String(text);
+    }
+
+    /**
+     * @return the day number of a valid date
+     */
+    private static int toDay(int year, int month, int day) {
+        int shiftedYear = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(shiftedYear, 400);
+        int yearOfEra = shiftedYear - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            boolean isLeap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+            return isLeap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * @return the number written in the given characters, or -1 if one of them is not a digit
+     */
+    private static int digits(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void putDigits(char[] text, int start, int end, int value) {
+        for (int i = end - 1; i >= start; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -1,18 +1,50 @@
 package Model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 
 /**
  * Class that represents a task
+ * The due date is kept as a day number and the category, priority and completion status as single bytes, so a task
+ * holds no objects of its own besides the title and description. Values that have no compact form, such as a due
+ * date that is not a valid date, are kept as text and read back unchanged
+ * Tasks are immutable: snapshots and the undo history share them between versions of the list, so a change makes a
+ * new task, e.g. with withCompleted
  */
 public class Task implements Serializable {
+    private static final long serialVersionUID = 3228760220807688061L; //keeps files saved before the ID was added readable
+
+    //the serialized form still has the text fields, so files written by older versions stay readable
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", long.class),
+            new ObjectStreamField("title", String.class),
+            new ObjectStreamField("dueDate", String.class),
+            new ObjectStreamField("category", String.class),
+            new ObjectStreamField("priority", String.class),
+            new ObjectStreamField("description", String.class),
+            new ObjectStreamField("isCompleted", boolean.class)
+    };
+
+    private static final TaskCategory[] CATEGORIES = TaskCategory.values();
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+    private static final byte NO_VALUE = -1; //category or priority that is missing or has no enum value
+    private static final byte FLAG_COMPLETED = 1;
+
+    //task read by readObject, handed to readResolve right after it on the same thread
+    private static final ThreadLocal<Task> DESERIALIZED = new ThreadLocal<>();
+
+    private final long id; //stable identifier, 0 until the task is added to a task manager
     private final String title;
-    private final String dueDate;
-    private final String category;
-    private final String priority;
     private final String description;
-    private boolean isCompleted;
+    private final int dueDay; //due date as a day number, or DueDate.NONE
+    private final byte category; //ordinal of the category, or NO_VALUE
+    private final byte priority; //ordinal of the priority, or NO_VALUE
+    private final byte flags;
+    private final Unencoded unencoded; //text without a compact form, null for almost every task
 
 
     /**
@@ -25,12 +57,93 @@ public class Task implements Serializable {
      * @param isCompleted a boolean to check if a task is completed
      */
     public Task(String title, String description, String dueDate, String category, String priority, boolean isCompleted) {
+        this(0, title, description, dueDate, category, priority, isCompleted);
+    }
+
+    /**
+     * Task constructor
+     * @param id stable identifier of the task, or 0 if none has been assigned yet
+     * @param title the title of the task
+     * @param description task description
+     * @param dueDate due date
+     * @param category task category
+     * @param priority task priority
+     * @param isCompleted a boolean to check if a task is completed
+     */
+    public Task(long id, String title, String description, String dueDate, String category, String priority, boolean isCompleted) {
+        this(id, title, description, dueDate, categoryOf(category), category, TaskPriority.fromString(priority), priority,
+                isCompleted);
+    }
+
+    /**
+     * Task constructor taking the compact values
+     * @param id stable identifier of the task, or 0 if none has been assigned yet
+     * @param title the title of the task
+     * @param description task description
+     * @param dueDay due date as a day number, or DueDate.NONE
+     * @param category task category, may be null
+     * @param priority task priority, may be null
+     * @param isCompleted a boolean to check if a task is completed
+     */
+    public Task(long id, String title, String description, int dueDay, TaskCategory category, TaskPriority priority, boolean isCompleted) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.dueDay = dueDay;
+        this.category = category != null ? (byte) category.ordinal() : NO_VALUE;
+        this.priority = priority != null ? (byte) priority.ordinal() : NO_VALUE;
+        this.flags = isCompleted ? FLAG_COMPLETED : 0;
+        this.unencoded = null;
+    }
+
+    private Task(Task task, long id, boolean isCompleted) {
+        this.id = id;
+        this.title = task.title;
+        this.description = task.description;
+        this.dueDay = task.dueDay;
+        this.category = task.category;
+        this.priority = task.priority;
+        this.flags = isCompleted ? (byte) (task.flags | FLAG_COMPLETED) : (byte) (task.flags & ~FLAG_COMPLETED);
+        this.unencoded = task.unencoded;
+    }
+
+    private Task(long id, String title, String description, String dueDate, TaskCategory categoryValue, String category,
+                 TaskPriority priorityValue, String priority, boolean isCompleted) {
+        this.id = id;
         this.title = title;
         this.description = description;
-        this.dueDate = dueDate;
-        this.category = category;
-        this.priority = priority;
-        this.isCompleted = isCompleted;
+        this.dueDay = DueDate.parse(dueDate);
+        this.category = categoryValue != null ? (byte) categoryValue.ordinal() : NO_VALUE;
+        this.priority = priorityValue != null ? (byte) priorityValue.ordinal() : NO_VALUE;
+        this.flags = isCompleted ? FLAG_COMPLETED : 0;
+
+        String dueDateText = dueDay == DueDate.NONE ? dueDate : null;
+        String categoryText = categoryValue == null ? category : null;
+        String priorityText = priorityValue == null ? priority : null;
+        this.unencoded = dueDateText != null || categoryText != null || priorityText != null
+                ? new Unencoded(dueDateText, categoryText, priorityText) : null;
+    }
+
+    /**
+     * Creates a copy of this task with the given identifier
+     * @param id stable identifier of the task
+     * @return the copy
+     */
+    public Task withId(long id) {
+        return new Task(this, id, isCompleted());
+    }
+
+    /**
+     * Creates a copy of this task with the given completion status
+     * @param isCompleted the new status
+     * @return the copy
+     */
+    public Task withCompleted(boolean isCompleted) {
+        return new Task(this, id, isCompleted);
+    }
+
+    public long getId() {
+        return id;
     }
 
     public String getTitle() {
@@ -41,23 +154,97 @@ public class Task implements Serializable {
         return description;
     }
 
+    /**
+     * @return the due date in the format YYYY-MM-DD, formatted on every call
+     */
     public String getDueDate() {
-        return dueDate;
+        if (dueDay == DueDate.NONE) {
+            return unencoded != null ? unencoded.dueDate() : null;
+        }
+        return DueDate.format(dueDay);
+    }
+
+    /**
+     * @return the due date as a day number, or DueDate.NONE if the task has no valid due date
+     */
+    public int getDueDay() {
+        return dueDay;
     }
 
     public String getCategory() {
-        return category;
+        if (category == NO_VALUE) {
+            return unencoded != null ? unencoded.category() : null;
+        }
+        return CATEGORIES[category].name();
+    }
+
+    /**
+     * @return the category, or null if the task has none or its category is not a TaskCategory
+     */
+    public TaskCategory getTaskCategory() {
+        return category != NO_VALUE ? CATEGORIES[category] : null;
     }
 
     public String getPriority() {
-        return priority;
+        if (priority == NO_VALUE) {
+            return unencoded != null ? unencoded.priority() : null;
+        }
+        return PRIORITIES[priority].getLabel();
+    }
+
+    /**
+     * @return the priority, or null if the task has none or its priority is not a TaskPriority
+     */
+    public TaskPriority getTaskPriority() {
+        return priority != NO_VALUE ? PRIORITIES[priority] : null;
     }
 
     public boolean isCompleted() {
-        return isCompleted;
+        return (flags & FLAG_COMPLETED) != 0;
+    }
+
+    private static TaskCategory categoryOf(String name) {
+        for (TaskCategory value : CATEGORIES) {
+            if (value.name().equals(name)) {
+                return value;
+            }
+        }
+        return null;
     }
 
-    public void setCompleted(boolean completed) {
-        isCompleted = completed;
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id);
+        fields.put("title", title);
+        fields.put("dueDate", getDueDate());
+        fields.put("category", getCategory());
+        fields.put("priority", getPriority());
+        fields.put("description", description);
+        fields.put("isCompleted", isCompleted());
+        out.writeFields();
+    }
+
+    //the fields are final, so the task read from the stream is built here and replaces the empty instance in readResolve
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        DESERIALIZED.set(new Task(fields.get("id", 0L), (String) fields.get("title", null),
+                (String) fields.get("description", null), (String) fields.get("dueDate", null),
+                (String) fields.get("category", null), (String) fields.get("priority", null),
+                fields.get("isCompleted", false)));
+    }
+
+    private Object readResolve() {
+        Task task = DESERIALIZED.get();
+        DESERIALIZED.remove();
+        return task;
+    }
+
+    /**
+     * Text kept for values that have no compact form
+     * @param dueDate due date that is not a valid date, or null
+     * @param category category that is not a TaskCategory, or null
+     * @param priority priority that is not a TaskPriority, or null
+     */
+    private record Unencoded(String dueDate, String category, String priority) {
     }
 }
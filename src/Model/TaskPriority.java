@@ -0,0 +1,34 @@
+package Model;
+
+/**
+ * Represents the different task priorities
+ */
+public enum TaskPriority {
+    HIGH("High"),
+    MEDIUM("Medium"),
+    LOW("Low");
+
+    private final String label; //text shown to the user
+
+    TaskPriority(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Finds the priority matching the given text, ignoring case
+     * @param text priority text such as "High" or "low"
+     * @return the matching priority, or null if there is none
+     */
+    public static TaskPriority fromString(String text) {
+        for (TaskPriority priority : values()) {
+            if (priority.label.equalsIgnoreCase(text)) {
+                return priority;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,66 @@
+package View;
+
+import Controller.ToDoAppController;
+
+/**
+ * What the controller needs from the user interface
+ * The main window implements it; anything else showing the tasks, such as a view in tests, can too
+ */
+public interface TaskListView {
+
+    /**
+     * @return the rows shown, which the row indexes given to the controller refer to
+     */
+    TaskTableModel getTableModel();
+
+    /**
+     * Connects the buttons, keys, table header and search field to the controller
+     * @param controller receives the actions of the user
+     */
+    void bind(ToDoAppController controller);
+
+    /**
+     * Sets what happens when the user closes the view
+     * @param action runs before the view closes
+     */
+    void onClose(Runnable action);
+
+    /**
+     * Shows the view to the user
+     */
+    void open();
+
+    /**
+     * Shows an error and waits until the user has seen it; called on the event dispatch thread
+     * @param message the error
+     */
+    void showError(String message);
+
+    /**
+     * Shows a message without waiting for the user; called on any thread
+     * @param message the message
+     * @param messageType JOptionPane message type, such as JOptionPane.ERROR_MESSAGE
+     */
+    void showMessage(String message, int messageType);
+
+    /**
+     * Enables or disables undo and redo
+     * @param canUndo true if there is a change to undo
+     * @param canRedo true if there is a change to redo
+     */
+    void showUndoState(boolean canUndo, boolean canRedo);
+
+    /**
+     * Marks the column the rows are sorted by
+     * @param column model index of the sorted column, or -1 if the rows are in list order
+     * @param ascending true if sorted in ascending order
+     */
+    void showSortColumn(int column, boolean ascending);
+
+    /**
+     * Shows a reminder, replacing the previous one
+     * @param message text of the reminder
+     * @param details longer text, may be null
+     */
+    void showReminder(String message, String details);
+}
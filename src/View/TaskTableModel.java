@@ -0,0 +1,251 @@
+package View;
+
+import Controller.TaskEvent;
+import Controller.TaskManager;
+import Controller.TaskMetrics;
+import Controller.TaskView;
+import Model.Task;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Table model that reads its cells straight from the task manager
+ * Rows are not copied into the model; the model follows the change events of the task manager and redraws the rows
+ * that changed.
+ * While a search is shown, the rows are the IDs of the search results instead of the whole task list.
+ * While a view is set, the rows follow the view's order, which the task manager keeps up to date, so sorting does
+ * not copy or re-sort the list
+ */
+public class TaskTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"Title", "Description", "Due Date", "Category", "Priority", "Status"};
+
+    private TaskManager taskManager; //source of the rows, null until the controller connects it
+    private long[] resultIds; //IDs of the search results shown, null while the whole list is shown
+    private int resultCount; //number of search results still shown
+    private TaskView view; //order of the rows, null for list order
+
+    /**
+     * Connects the model to the task manager and redraws the whole table
+     * From then on the changes of the task manager are redrawn on the event dispatch thread
+     * @param taskManager source of the rows
+     */
+    public void setTaskManager(TaskManager taskManager) {
+        this.taskManager = taskManager;
+        taskManager.getEventBus().subscribe(this::tasksChanged, SwingUtilities::invokeLater);
+        fireTableDataChanged();
+    }
+
+    /**
+     * Shows only the given tasks, in the given order or in the order of the view if one is set
+     * @param ids IDs of the tasks to show, owned by the model from now on
+     */
+    public void showSearchResults(long[] ids) {
+        resultIds = ids;
+        resultCount = ids.length;
+        if (view != null && taskManager != null) {
+            resultCount = taskManager.sortTaskIds(resultIds, resultCount, view);
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Orders the rows by a view
+     * Search results already shown are sorted as well; going back to list order does not restore their original order
+     * @param view the view, or null for list order
+     */
+    public void setView(TaskView view) {
+        this.view = view;
+        if (view != null && resultIds != null && taskManager != null) {
+            resultCount = taskManager.sortTaskIds(resultIds, resultCount, view);
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * @return the view ordering the rows, or null for list order
+     */
+    public TaskView getView() {
+        return view;
+    }
+
+    /**
+     * Shows the whole task list again
+     */
+    public void clearSearchResults() {
+        if (resultIds != null) {
+            resultIds = null;
+            fireTableDataChanged();
+        }
+    }
+
+    /**
+     * @return true while search results are shown
+     */
+    public boolean isShowingSearchResults() {
+        return resultIds != null;
+    }
+
+    /**
+     * @param row row index in the table
+     * @return ID of the task shown in the row, or 0 if the row is not valid
+     */
+    public long getTaskId(int row) {
+        if (resultIds == null) {
+            if (taskManager == null) {
+                return 0;
+            }
+            return view != null ? taskManager.getViewTaskId(view, row) : taskManager.getTaskId(row);
+        }
+        return row >= 0 && row < resultCount ? resultIds[row] : 0;
+    }
+
+    /**
+     * @param id task ID
+     * @return the row showing the task, or -1 if it is not shown
+     */
+    public int rowOfTask(long id) {
+        if (resultIds == null) {
+            if (taskManager == null) {
+                return -1;
+            }
+            return view != null ? taskManager.viewRowOfTask(view, id) : taskManager.indexOfTask(id);
+        }
+        for (int row = 0; row < resultCount; row++) {
+            if (resultIds[row] == id) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getRowCount() {
+        if (resultIds != null) {
+            return resultCount;
+        }
+        if (taskManager == null) {
+            return 0;
+        }
+        return view != null ? taskManager.getViewSize(view) : taskManager.getTaskCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Task task = null;
+        if (taskManager != null) {
+            if (resultIds != null) {
+                task = taskManager.getTaskById(resultIds[row]);
+            } else {
+                task = view != null ? taskManager.getViewTask(view, row) : taskManager.getTask(row);
+            }
+        }
+        if (task == null) {
+            return null;
+        }
+
+        return switch (column) {
+            case 0 -> task.getTitle();
+            case 1 -> task.getDescription();
+            case 2 -> task.getDueDate();
+            case 3 -> task.getCategory();
+            case 4 -> task.getPriority();
+            case 5 -> task.isCompleted() ? "Completed" : "Pending";
+            default -> null;
+        };
+    }
+
+    /**
+     * Redraws the rows affected by changes of the task manager, called on the event dispatch thread
+     * Added tasks in consecutive rows and changed tasks are redrawn row by row; deletions, resets and changes
+     * while a view is set redraw the visible rows, since they can move any row. Added tasks are not put into search
+     * results; the controller searches again for them
+     * @param events the changes, in the order they were made
+     */
+    public void tasksChanged(List<TaskEvent> events) {
+        if (taskManager == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            redrawChanges(events);
+        } finally {
+            taskManager.getMetrics().record(TaskMetrics.Operation.TABLE_REFRESH, start);
+        }
+    }
+
+    private void redrawChanges(List<TaskEvent> events) {
+        Set<Long> deletedIds = new HashSet<>();
+        boolean isReset = false;
+        long firstAddedId = 0;
+        long lastAddedId = 0;
+        int addedCount = 0;
+        int firstUpdatedRow = Integer.MAX_VALUE;
+        int lastUpdatedRow = -1;
+        for (TaskEvent event : events) {
+            switch (event.kind()) {
+                case ADDED -> {
+                    firstAddedId = firstAddedId == 0 ? event.taskId() : firstAddedId;
+                    lastAddedId = event.taskId();
+                    addedCount++;
+                }
+                case UPDATED, COMPLETED -> {
+                    int row = view == null ? rowOfTask(event.taskId()) : -1; //rows of a view are redrawn together
+                    if (row >= 0) {
+                        firstUpdatedRow = Math.min(firstUpdatedRow, row);
+                        lastUpdatedRow = Math.max(lastUpdatedRow, row);
+                    }
+                }
+                case DELETED -> deletedIds.add(event.taskId());
+                case RESET -> isReset = true;
+            }
+        }
+
+        if (!deletedIds.isEmpty() && resultIds != null) {
+            int kept = 0;
+            for (int row = 0; row < resultCount; row++) {
+                if (!deletedIds.contains(resultIds[row])) {
+                    resultIds[kept++] = resultIds[row];
+                }
+            }
+            resultCount = kept;
+        }
+        if (isReset || !deletedIds.isEmpty() || (view != null && !events.isEmpty())) {
+            fireTableDataChanged();
+            return;
+        }
+
+        if (firstAddedId != 0 && resultIds == null) {
+            int firstRow = taskManager.indexOfTask(firstAddedId);
+            int lastRow = taskManager.indexOfTask(lastAddedId);
+            if (firstRow >= 0 && lastRow - firstRow + 1 == addedCount) {
+                fireTableRowsInserted(firstRow, lastRow);
+            } else {
+                fireTableDataChanged(); //the tasks are not in consecutive rows, e.g. after undoing a deletion
+                return;
+            }
+        }
+        if (lastUpdatedRow >= 0) {
+            fireTableRowsUpdated(firstUpdatedRow, lastUpdatedRow);
+        }
+    }
+}
@@ -9,21 +9,37 @@ import org.jdatepicker.impl.JDatePickerImpl;
 import org.jdatepicker.impl.UtilDateModel;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
-import java.text.SimpleDateFormat;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.time.ZoneId;
 import java.util.Objects;
 import java.util.Properties;
 
 /**
  * Class responsible for user interface
  */
-public class ToDoAppView extends JFrame {
-    private final DefaultTableModel tableModel;
+public class ToDoAppView extends JFrame implements TaskListView {
+    private final TaskTableModel tableModel;
     private final JTable table;
+    private JTextField searchField;
     private JButton addButton;
     private JButton markCompletedButton;
     private JButton deleteButton;
+    private JButton importButton;
+    private JButton exportButton;
+    private JButton undoButton;
+    private JButton redoButton;
+    private JLabel reminderLabel;
 
     public ToDoAppView() {
         //set up the main frame
@@ -35,9 +51,11 @@ public class ToDoAppView extends JFrame {
         table = createTable(tableModel);
         JScrollPane scrollPane = new JScrollPane(table);
         JPanel buttonPanel = createButtonPanel();
+        JPanel searchPanel = createSearchPanel();
 
+        panel.add(searchPanel, BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER); //table with scroll pane
-        panel.add(buttonPanel, BorderLayout.SOUTH);
+        panel.add(createSouthPanel(buttonPanel), BorderLayout.SOUTH);
         add(panel);
     }
 
@@ -53,13 +71,10 @@ public class ToDoAppView extends JFrame {
 
     /**
      * Creates the table model with column headers for task attributes
-     * @return A DefaultTableModel instance
+     * @return A TaskTableModel instance
      */
-    private DefaultTableModel createTableModel() {
-        return new DefaultTableModel(
-                new String[]{"Title", "Description", "Due Date", "Category", "Priority", "Status"},
-                0
-        );
+    private TaskTableModel createTableModel() {
+        return new TaskTableModel();
     }
 
     /**
@@ -67,12 +82,123 @@ public class ToDoAppView extends JFrame {
      * @param model the table model to use
      * @return a JTable instance
      */
-    private JTable createTable(DefaultTableModel model) {
-        return new JTable(model);
+    private JTable createTable(TaskTableModel model) {
+        JTable table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION); //several tasks can be completed or deleted at once
+        return table;
+    }
+
+    @Override
+    public void bind(ToDoAppController controller) {
+        //add listeners to buttons
+        addButton.addActionListener(e -> showAddTaskDialog(controller));
+        markCompletedButton.addActionListener(e -> controller.markTasksAsCompleted(table.getSelectedRows()));
+        deleteButton.addActionListener(e -> controller.deleteTasks(table.getSelectedRows()));
+        importButton.addActionListener(e -> controller.importTasks(chooseImportFile()));
+        exportButton.addActionListener(e -> controller.exportTasks(chooseExportFile()));
+        undoButton.addActionListener(e -> controller.undo());
+        redoButton.addActionListener(e -> controller.redo());
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "undo", controller::undo);
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), "redo", controller::redo);
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK), "redo", controller::redo);
+
+        //clicking a column header sorts by that column
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.getTableHeader().columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    controller.sortByColumn(table.convertColumnIndexToModel(column));
+                }
+            }
+        });
+
+        //search again on every keystroke
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                controller.search(searchField.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                controller.search(searchField.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                controller.search(searchField.getText());
+            }
+        });
+    }
+
+    @Override
+    public void onClose(Runnable action) {
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    @Override
+    public void open() {
+        setVisible(true);
+    }
+
+    @Override
+    public void showError(String message) {
+        JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    @Override
+    public void showMessage(String message, int messageType) {
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, message,
+                messageType == JOptionPane.ERROR_MESSAGE ? "Error" : "To-Do List", messageType));
+    }
+
+    @Override
+    public void showUndoState(boolean canUndo, boolean canRedo) {
+        undoButton.setEnabled(canUndo);
+        redoButton.setEnabled(canRedo);
+    }
+
+    /**
+     * Marks the column the rows are sorted by with an arrow in its header
+     * @param column model index of the sorted column, or -1 if the rows are in list order
+     * @param ascending true for an upward arrow, false for a downward one
+     */
+    @Override
+    public void showSortColumn(int column, boolean ascending) {
+        for (int i = 0; i < tableModel.getColumnCount(); i++) {
+            String name = tableModel.getColumnName(i);
+            if (i == column) {
+                name += ascending ? " \u25B2" : " \u25BC";
+            }
+            table.getColumnModel().getColumn(table.convertColumnIndexToView(i)).setHeaderValue(name);
+        }
+        table.getTableHeader().repaint();
     }
 
     /**
-     * Creates a panel with buttons for adding, marking tasks as completed, and deleting tasks
+     * Creates a panel with a field for searching task titles and descriptions
+     * @return JPanel containing the search field
+     */
+    private JPanel createSearchPanel() {
+        JPanel searchPanel = new JPanel(new BorderLayout());
+
+        searchField = createTextField();
+        searchField.setToolTipText("Words to find in titles and descriptions, use OR for either word and * for word beginnings");
+
+        searchPanel.add(new JLabel("Search: "), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+
+        return searchPanel;
+    }
+
+    /**
+     * Creates a panel with buttons for adding, marking tasks as completed, deleting tasks, and undoing changes
      * @return JPanel containing the buttons
      */
     private JPanel createButtonPanel() {
@@ -81,14 +207,54 @@ public class ToDoAppView extends JFrame {
         addButton = new JButton("Add Task");
         markCompletedButton = new JButton("Mark as Completed");
         deleteButton = new JButton("Delete Task");
+        importButton = new JButton("Import...");
+        exportButton = new JButton("Export...");
+        undoButton = new JButton("Undo");
+        redoButton = new JButton("Redo");
+        undoButton.setToolTipText("Undo the last change (Ctrl+Z)");
+        redoButton.setToolTipText("Redo the last undone change (Ctrl+Y)");
+        undoButton.setEnabled(false); //enabled once there is a change to undo
+        redoButton.setEnabled(false);
 
         buttonPanel.add(addButton);
         buttonPanel.add(markCompletedButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(importButton);
+        buttonPanel.add(exportButton);
+        buttonPanel.add(undoButton);
+        buttonPanel.add(redoButton);
 
         return buttonPanel;
     }
 
+    /**
+     * Creates the bottom area with the buttons above a line for reminders
+     * @param buttonPanel panel holding the buttons
+     * @return JPanel containing the buttons and the reminder line
+     */
+    private JPanel createSouthPanel(JPanel buttonPanel) {
+        JPanel southPanel = new JPanel(new BorderLayout());
+
+        reminderLabel = new JLabel(" ");
+        reminderLabel.setBorder(BorderFactory.createEmptyBorder(0, 8, 4, 8));
+
+        southPanel.add(buttonPanel, BorderLayout.CENTER);
+        southPanel.add(reminderLabel, BorderLayout.SOUTH);
+
+        return southPanel;
+    }
+
+    /**
+     * Shows a reminder below the buttons, replacing the previous one
+     * @param message text of the reminder
+     * @param details longer text shown when the mouse is over the reminder, may be null
+     */
+    @Override
+    public void showReminder(String message, String details) {
+        reminderLabel.setText(message);
+        reminderLabel.setToolTipText(details);
+    }
+
     /**
      * Displays a dialog for adding a new task and handles user input
      * @param controller ToDoAppController instance to handle task creation
@@ -163,7 +329,7 @@ public class ToDoAppView extends JFrame {
     private void handleTaskDialogSubmission(ToDoAppController controller, JTextField titleField, JTextField descriptionField, JComboBox<TaskCategory> categoryField, JComboBox<String> priorityBox, JPanel datePickerPanel) {
         JDatePickerImpl datePicker = (JDatePickerImpl) datePickerPanel.getComponent(1);
         java.util.Date selectedDate = (java.util.Date) datePicker.getModel().getValue();
-        String dueDate = selectedDate != null ? new SimpleDateFormat("yyyy-MM-dd").format(selectedDate) : "No Date";
+        String dueDate = selectedDate != null ? selectedDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toString() : "No Date";
 
         try {
             controller.addTask(
@@ -180,6 +346,34 @@ public class ToDoAppView extends JFrame {
     }
 
 
+    /**
+     * Lets the user pick a CSV or JSON Lines file to import
+     * @return the chosen file, or null if the dialog was cancelled
+     */
+    public File chooseImportFile() {
+        JFileChooser chooser = createTaskFileChooser();
+        return chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION ? chooser.getSelectedFile() : null;
+    }
+
+    /**
+     * Lets the user pick the file to export the tasks to
+     * @return the chosen file, or null if the dialog was cancelled
+     */
+    public File chooseExportFile() {
+        JFileChooser chooser = createTaskFileChooser();
+        return chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION ? chooser.getSelectedFile() : null;
+    }
+
+    /**
+     * Creates a file chooser showing CSV and JSON Lines files
+     * @return JFileChooser instance
+     */
+    private JFileChooser createTaskFileChooser() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Task files (CSV, JSON Lines)", "csv", "jsonl", "json"));
+        return chooser;
+    }
+
     /**
      * Creates a dropdown for selecting task priority
      * @return JComboBox containing priority options - high, medium and low
@@ -214,12 +408,21 @@ public class ToDoAppView extends JFrame {
 
     /**
      * Getter for the table model
-     * @return DefaultTableModel used by the table
+     * @return TaskTableModel used by the table
      */
-    public DefaultTableModel getTableModel() {
+    @Override
+    public TaskTableModel getTableModel() {
         return tableModel;
     }
 
+    /**
+     * Getter for the search field
+     * @return JTextField for the search text
+     */
+    public JTextField getSearchField() {
+        return searchField;
+    }
+
     /**
      * Getter for the Add Task button
      * @return JButton for adding tasks
@@ -228,6 +431,22 @@ public class ToDoAppView extends JFrame {
         return addButton;
     }
 
+    /**
+     * Getter for the Import button
+     * @return JButton for importing tasks from a file
+     */
+    public JButton getImportButton() {
+        return importButton;
+    }
+
+    /**
+     * Getter for the Export button
+     * @return JButton for exporting tasks to a file
+     */
+    public JButton getExportButton() {
+        return exportButton;
+    }
+
     /**
      * Getter for the Mark as Completed button
      * @return JButton for marking tasks as completed
@@ -243,4 +462,36 @@ public class ToDoAppView extends JFrame {
     public JButton getDeleteButton() {
         return deleteButton;
     }
+
+    /**
+     * Getter for the Undo button
+     * @return JButton for undoing the last change
+     */
+    public JButton getUndoButton() {
+        return undoButton;
+    }
+
+    /**
+     * Getter for the Redo button
+     * @return JButton for redoing the last undone change
+     */
+    public JButton getRedoButton() {
+        return redoButton;
+    }
+
+    /**
+     * Runs an action when a key combination is pressed anywhere in the window
+     * @param keyStroke the key combination
+     * @param name name of the action
+     * @param action the action
+     */
+    public void bindKey(KeyStroke keyStroke, String name, Runnable action) {
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(keyStroke, name);
+        getRootPane().getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
 }
@@ -0,0 +1,91 @@
+package test;
+
+import Model.DueDate;
+import Model.Task;
+import Model.TaskCategory;
+import Model.TaskPriority;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskFootprintTest {
+    private static final int TASK_COUNT = 10_000;
+
+    /**
+     * Task as it was stored before, with one string per due date, category and priority
+     */
+    private static final class TextTask {
+        private final long id;
+        private final String title;
+        private final String dueDate;
+        private final String category;
+        private final String priority;
+        private final String description;
+        private boolean isCompleted;
+
+        TextTask(long id, String title, String description, String dueDate, String category, String priority) {
+            this.id = id;
+            this.title = title;
+            this.description = description;
+            this.dueDate = dueDate;
+            this.category = category;
+            this.priority = priority;
+        }
+    }
+
+
+    //test cases for the memory use of tasks
+    @Test
+    void compactTaskUsesLessThanHalfTheHeap(){
+        String title = "Title"; //shared, so only the per-task overhead is measured
+        String description = "Description";
+        Object[] textTasks = new Object[TASK_COUNT];
+        Object[] tasks = new Object[TASK_COUNT];
+
+        for (int i = 0; i < TASK_COUNT; i++) {
+            //a loaded task gets its own due date string, while category and priority use the shared constant names
+            String dueDate = LocalDate.of(2025, 1, 1).plusDays(i % 365).toString();
+            textTasks[i] = new TextTask(i + 1, title, description, dueDate, TaskCategory.WORK.name(), TaskPriority.LOW.getLabel());
+            tasks[i] = new Task(i + 1, title, description, dueDate, TaskCategory.WORK.name(), TaskPriority.LOW.getLabel(), false);
+        }
+
+        long textSize = GraphLayout.parseInstance(textTasks).totalSize();
+        long compactSize = GraphLayout.parseInstance(tasks).totalSize();
+        assertTrue(compactSize * 2 < textSize, "compact " + compactSize + " bytes, text " + textSize + " bytes");
+    }
+
+    @Test
+    void compactFieldsReadBackAsText(){
+        Task task = new Task(7, "Title", "Description", "2024-02-29", "STUDY", "medium", true);
+
+        assertEquals("2024-02-29", task.getDueDate());
+        assertEquals(LocalDate.of(2024, 2, 29).toEpochDay(), task.getDueDay());
+        assertEquals("STUDY", task.getCategory());
+        assertEquals(TaskCategory.STUDY, task.getTaskCategory());
+        assertEquals("Medium", task.getPriority());
+        assertTrue(task.withId(8).isCompleted());
+        assertFalse(task.withCompleted(false).isCompleted());
+
+        Task irregular = new Task("Title", null, "No Date", "Misc", null, false);
+        assertEquals("No Date", irregular.getDueDate());
+        assertEquals(DueDate.NONE, irregular.getDueDay());
+        assertEquals("Misc", irregular.getCategory());
+        assertNull(irregular.getTaskCategory());
+        assertNull(irregular.getPriority());
+    }
+
+    @Test
+    void dueDatesMatchLocalDate(){
+        for (LocalDate date = LocalDate.of(1899, 12, 1); date.getYear() < 2101; date = date.plusDays(1)) {
+            assertEquals(date.toEpochDay(), DueDate.parse(date.toString()));
+            assertEquals(date.toString(), DueDate.format((int) date.toEpochDay()));
+        }
+        assertEquals(DueDate.NONE, DueDate.parse("2025-02-29"));
+        assertEquals(DueDate.NONE, DueDate.parse("2025-13-01"));
+        assertEquals(DueDate.NONE, DueDate.parse("2025-1-01"));
+        assertEquals(DueDate.NONE, DueDate.parse(null));
+    }
+}
@@ -0,0 +1,95 @@
+package test;
+
+import Controller.TaskExporter;
+import Controller.TaskFileFormat;
+import Controller.TaskImporter;
+import Controller.TaskManager;
+import Controller.TaskValidator;
+import Model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskImporterTest {
+
+
+    //test cases for import
+    @Test
+    void importCsvWithQuotedFields() throws IOException {
+        TaskManager taskManager = new TaskManager();
+        String csv = """
+                title,description,dueDate,category,priority,completed
+                Groceries,"Milk, eggs",2025-10-10,ERRANDS,Low,false
+                "Say \"\"hi\"\"","First line
+                second line",2025-10-11,social,High,true
+                """;
+
+        TaskImporter.Result result = new TaskImporter(taskManager, 1).importTasks(new StringReader(csv), TaskFileFormat.CSV, null);
+        assertEquals(2, result.imported());
+        assertEquals(0, result.rejected());
+        assertEquals("Milk, eggs", taskManager.getTask(0).getDescription());
+        assertEquals("Say \"hi\"", taskManager.getTask(1).getTitle());
+        assertEquals("First line\nsecond line", taskManager.getTask(1).getDescription());
+        assertTrue(taskManager.getTask(1).isCompleted());
+    }
+
+    @Test
+    void importRejectsInvalidRecords() throws IOException {
+        TaskManager taskManager = new TaskManager();
+        String jsonl = """
+                {"title":"Report","description":"Q3","dueDate":"2025-10-10","category":"WORK","priority":"Medium","completed":false}
+                {"title":"","dueDate":"2025-10-10","category":"WORK","priority":"Medium"}
+                {"title":"Run","dueDate":"tomorrow","category":"FITNESS","priority":"Low"}
+                not json
+                """;
+
+        TaskImporter.Result result = new TaskImporter(taskManager, 100).importTasks(new StringReader(jsonl), TaskFileFormat.JSONL, null);
+        assertEquals(1, result.imported());
+        assertEquals(3, result.rejected());
+        assertTrue(result.errors().get(0).startsWith("Line 2"));
+        assertEquals("Report", taskManager.getTask(0).getTitle());
+    }
+
+    @Test
+    void importRejectsImpossibleDatesInOrder() throws IOException {
+        TaskManager taskManager = new TaskManager();
+        StringBuilder csv = new StringBuilder("title,description,dueDate,category,priority,completed\n");
+        for (int i = 0; i < 5000; i++) {
+            String dueDate = i % 1000 == 0 ? "2025-02-29" : "2024-02-29";
+            csv.append("Task ").append(i).append(",,").append(dueDate).append(",WORK,Low,false\n");
+        }
+
+        TaskImporter.Result result = new TaskImporter(taskManager, 5000).importTasks(new StringReader(csv.toString()), TaskFileFormat.CSV, null);
+        assertEquals(4995, result.imported());
+        assertEquals(5, result.rejected());
+        assertEquals("Line 2: " + TaskValidator.Problem.INVALID_DATE.getMessage(), result.errors().get(0));
+        assertEquals("Line 1002: " + TaskValidator.Problem.INVALID_DATE.getMessage(), result.errors().get(1));
+        assertEquals("Task 1", taskManager.getTask(0).getTitle());
+        assertEquals("Task 4999", taskManager.getTask(4994).getTitle());
+    }
+
+    @Test
+    void exportedTasksImportUnchanged() throws IOException {
+        TaskManager source = new TaskManager();
+        source.addTask(new Task("Quote \" and, comma", "Tab\tand\nnewline", "2025-10-10", "STUDY", "High", true));
+        source.addTask(new Task("Plain", "", "2025-10-11", "WORK", "Low", false));
+
+        for (TaskFileFormat format : TaskFileFormat.values()) {
+            StringWriter file = new StringWriter();
+            assertEquals(2, TaskExporter.exportTasks(source, file, format));
+
+            TaskManager target = new TaskManager();
+            new TaskImporter(target, 1).importTasks(new StringReader(file.toString()), format, null);
+            assertEquals(2, target.getTaskCount());
+            for (int i = 0; i < 2; i++) {
+                assertEquals(source.getTask(i).getTitle(), target.getTask(i).getTitle());
+                assertEquals(source.getTask(i).getDescription(), target.getTask(i).getDescription());
+                assertEquals(source.getTask(i).isCompleted(), target.getTask(i).isCompleted());
+            }
+        }
+    }
+}
@@ -0,0 +1,833 @@
+package test;
+
+import Controller.ReminderScheduler;
+import Controller.TaskBatch;
+import Controller.TaskEvent;
+import Controller.TaskEventBus;
+import Controller.TaskManager;
+import Controller.TaskMetrics;
+import Controller.TaskQuery;
+import Controller.TaskSnapshot;
+import Controller.TaskSync;
+import Controller.TaskView;
+import Controller.TaskWorkspace;
+import Model.Task;
+import Model.TaskCategory;
+import Model.TaskPriority;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskManagerTest {
+
+    private static Task task(String title) {
+        return new Task(title, "Description", "2025-10-10", "ERRANDS", "Low", false);
+    }
+
+    /**
+     * Clock that only moves when told to
+     */
+    private static final class TestClock extends Clock {
+        private Instant now;
+
+        TestClock(LocalDate date) {
+            now = date.atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+
+        void advanceDays(int days) {
+            now = now.plusSeconds(days * 86_400L);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+
+    //test cases for task IDs
+    @Test
+    void addedTasksGetDistinctIds(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("First"));
+        taskManager.addTask(task("Second"));
+        assertNotEquals(0, taskManager.getTaskId(0));
+        assertNotEquals(taskManager.getTaskId(0), taskManager.getTaskId(1));
+    }
+
+    @Test
+    void getTaskByIdReturnsTheTask(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("First"));
+        long id = taskManager.getTaskId(0);
+        assertEquals("First", taskManager.getTaskById(id).getTitle());
+        assertEquals(id, taskManager.getTaskById(id).getId());
+    }
+
+    @Test
+    void idSurvivesDeletionOfEarlierTasks(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("First"));
+        taskManager.addTask(task("Second"));
+        taskManager.addTask(task("Third"));
+        long id = taskManager.getTaskId(2);
+
+        assertTrue(taskManager.deleteTask(0));
+        assertEquals(1, taskManager.indexOfTask(id));
+        assertEquals("Third", taskManager.getTask(1).getTitle());
+    }
+
+    @Test
+    void deleteTaskById(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("First"));
+        long id = taskManager.getTaskId(0);
+        assertTrue(taskManager.deleteTaskById(id));
+        assertNull(taskManager.getTaskById(id));
+        assertEquals(-1, taskManager.indexOfTask(id));
+        assertFalse(taskManager.deleteTaskById(id));
+    }
+
+    @Test
+    void markTaskAsCompletedById(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("First"));
+        long id = taskManager.getTaskId(0);
+        assertTrue(taskManager.markTaskAsCompletedById(id));
+        assertTrue(taskManager.getTask(0).isCompleted());
+    }
+
+    @Test
+    void changesOfDifferentTasksRunConcurrently() throws Exception {
+        TaskManager taskManager = new TaskManager();
+        for (int i = 0; i < 40; i++) {
+            taskManager.addTask(task("Task " + i));
+        }
+        long firstId = taskManager.getTaskById(taskManager.getTaskId(0)).getId();
+
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            int writer = w;
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (int i = writer; i < 40; i += 4) {
+                    long id = taskManager.getTaskId(i);
+                    assertTrue(taskManager.updateTaskById(id, task("Renamed " + i)));
+                    assertTrue(taskManager.markTaskAsCompletedById(id));
+                }
+            }));
+        }
+        CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).get();
+
+        for (int i = 0; i < 40; i++) {
+            assertEquals("Renamed " + i, taskManager.getTask(i).getTitle());
+            assertTrue(taskManager.getTask(i).isCompleted());
+        }
+        for (int i = 0; i < 80; i++) {
+            assertTrue(taskManager.undo());
+        }
+        assertEquals("Task 0", taskManager.getTaskById(firstId).getTitle());
+        assertFalse(taskManager.getTask(39).isCompleted());
+    }
+
+    @Test
+    void markTaskAsCompletedWithUnknownId(){
+        TaskManager taskManager = new TaskManager();
+        assertFalse(taskManager.markTaskAsCompletedById(42));
+    }
+
+    @Test
+    void updateTaskByIdKeepsIdAndPosition(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("First"));
+        taskManager.addTask(task("Second"));
+        long id = taskManager.getTaskId(0);
+
+        assertTrue(taskManager.updateTaskById(id, task("Renamed")));
+        assertEquals("Renamed", taskManager.getTask(0).getTitle());
+        assertEquals(id, taskManager.getTask(0).getId());
+    }
+
+    @Test
+    void updateTaskByIdWithBlankTitle(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("First"));
+        assertFalse(taskManager.updateTaskById(taskManager.getTaskId(0), task(" ")));
+    }
+
+    @Test
+    void bulkDeleteKeepsRemainingOrder(){
+        TaskManager taskManager = new TaskManager();
+        long[] ids = new long[100];
+        for (int i = 0; i < 100; i++) {
+            taskManager.addTask(task("Task " + i));
+            ids[i] = taskManager.getTaskId(i);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            assertTrue(taskManager.deleteTaskById(ids[i]));
+        }
+
+        assertEquals(50, taskManager.getTaskCount());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("Task " + (2 * i + 1), taskManager.getTask(i).getTitle());
+        }
+    }
+
+
+    //test cases for queries
+    @Test
+    void findTasksByCategoryAndPriority(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(new Task("Groceries", "Description", "2025-10-10", "ERRANDS", "High", false));
+        taskManager.addTask(new Task("Report", "Description", "2025-10-11", "WORK", "High", false));
+        taskManager.addTask(new Task("Post office", "Description", "2025-10-12", "ERRANDS", "Low", false));
+
+        List<Task> found = taskManager.findTasks(new TaskQuery().category(TaskCategory.ERRANDS).priority(TaskPriority.HIGH));
+        assertEquals(1, found.size());
+        assertEquals("Groceries", found.get(0).getTitle());
+    }
+
+    @Test
+    void overdueQueryFollowsChanges(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(new Task("Late", "Description", "2025-01-02", "WORK", "Low", false));
+        taskManager.addTask(new Task("Later", "Description", "2025-01-01", "WORK", "Low", false));
+        taskManager.addTask(new Task("Future", "Description", "2026-01-01", "WORK", "Low", false));
+
+        List<Task> found = taskManager.findTasks(TaskQuery.overdue("2025-06-01"));
+        assertEquals(List.of("Later", "Late"), found.stream().map(Task::getTitle).toList());
+
+        taskManager.markTaskAsCompletedById(found.get(0).getId());
+        taskManager.deleteTaskById(found.get(1).getId());
+        taskManager.addTask(new Task("New", "Description", "2025-03-03", "WORK", "Low", false));
+        found = taskManager.findTasks(TaskQuery.overdue("2025-06-01"));
+        assertEquals(List.of("New"), found.stream().map(Task::getTitle).toList());
+    }
+
+
+    //test cases for search
+    @Test
+    void searchRanksTitleMatchesFirst(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(new Task("Call the bank", "About the invoice", "2025-10-10", "WORK", "Low", false));
+        taskManager.addTask(new Task("Pay invoice", "Bank transfer", "2025-10-10", "WORK", "Low", false));
+        taskManager.addTask(new Task("Groceries", "Milk", "2025-10-10", "ERRANDS", "Low", false));
+
+        long[] found = taskManager.searchTasks("invoice ", 10);
+        assertEquals(2, found.length);
+        assertEquals("Pay invoice", taskManager.getTaskById(found[0]).getTitle());
+        assertEquals(3, taskManager.searchTasks("invoice OR milk ", 10).length);
+        assertEquals(1, taskManager.searchTasks("bank pay", 10).length);
+    }
+
+    @Test
+    void searchMatchesPrefixesAndFollowsDeletes(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("Dentist appointment"));
+        assertEquals(1, taskManager.searchTasks("appoint", 10).length);
+        assertEquals(0, taskManager.searchTasks("appoint ", 10).length);
+
+        assertTrue(taskManager.deleteTask(0));
+        assertEquals(0, taskManager.searchTasks("appoint", 10).length);
+    }
+
+
+    //test cases for batches
+    @Test
+    void applyBatchChangesAllTasks(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("First"));
+        taskManager.addTask(task("Second"));
+        taskManager.addTask(task("Third"));
+
+        TaskBatch batch = new TaskBatch().complete(taskManager.getTaskId(0)).delete(taskManager.getTaskId(1)).add(task("Fourth"));
+        assertTrue(taskManager.applyBatch(batch));
+        assertEquals(3, taskManager.getTaskCount());
+        assertTrue(taskManager.getTask(0).isCompleted());
+        assertEquals("Third", taskManager.getTask(1).getTitle());
+        assertEquals("Fourth", taskManager.getTask(2).getTitle());
+    }
+
+    @Test
+    void applyBatchIsAllOrNothing(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("First"));
+        long id = taskManager.getTaskId(0);
+
+        assertFalse(taskManager.applyBatch(new TaskBatch().complete(id).delete(id).complete(id)));
+        assertFalse(taskManager.applyBatch(new TaskBatch().complete(id).add(task(" "))));
+        assertEquals(1, taskManager.getTaskCount());
+        assertFalse(taskManager.getTask(0).isCompleted());
+    }
+
+    @Test
+    void batchIsReplayedFromTheJournal(@TempDir Path directory){
+        String filePath = directory.resolve("todolist.txt").toString();
+        TaskManager taskManager = new TaskManager(true, TaskManager.Storage.HEAP, filePath);
+        taskManager.loadTasks();
+        taskManager.addTask(task("First"));
+        taskManager.addTask(task("Second"));
+        assertTrue(taskManager.applyBatch(new TaskBatch().complete(taskManager.getTaskId(0)).delete(taskManager.getTaskId(1))));
+        assertTrue(taskManager.saveTasks());
+
+        TaskManager reloaded = new TaskManager(true, TaskManager.Storage.HEAP, filePath);
+        assertTrue(reloaded.loadTasks());
+        assertEquals(1, reloaded.getTaskCount());
+        assertTrue(reloaded.getTask(0).isCompleted());
+    }
+
+    @Test
+    void damagedJournalRecordDoesNotStopLaterSegments(@TempDir Path directory) throws Exception {
+        String filePath = directory.resolve("todolist.txt").toString();
+        TaskManager first = new TaskManager(true, TaskManager.Storage.HEAP, filePath);
+        first.loadTasks();
+        first.addTask(task("First"));
+        first.addTask(task("Second"));
+        assertTrue(first.saveTasks());
+        first.close();
+        TaskManager second = new TaskManager(true, TaskManager.Storage.HEAP, filePath);
+        assertTrue(second.loadTasks());
+        second.addTask(task("Third")); //written to a new segment
+        assertTrue(second.saveTasks());
+        second.close();
+
+        Path segment = directory.resolve("todolist.txt.1.log");
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 6] ^= 0x10; //a flipped bit inside the last record of the first segment
+        Files.write(segment, bytes);
+
+        TaskManager reloaded = new TaskManager(true, TaskManager.Storage.HEAP, filePath);
+        assertTrue(reloaded.loadTasks());
+        assertEquals(List.of("First", "Third"), reloaded.getAllTasks().stream().map(Task::getTitle).toList());
+        assertTrue(Files.size(segment) < bytes.length); //the damaged record was cut off
+        reloaded.close();
+    }
+
+    @Test
+    void undoRestoresBatchInPlaceAndIsJournaled(@TempDir Path directory){
+        String filePath = directory.resolve("todolist.txt").toString();
+        TaskManager taskManager = new TaskManager(true, TaskManager.Storage.HEAP, filePath);
+        taskManager.loadTasks();
+        for (String title : List.of("First", "Second", "Third", "Fourth")) {
+            taskManager.addTask(task(title));
+        }
+        long secondId = taskManager.getTaskId(1);
+        assertTrue(taskManager.applyBatch(new TaskBatch().complete(taskManager.getTaskId(0)).delete(secondId)
+                .delete(taskManager.getTaskId(2))));
+
+        assertTrue(taskManager.undo());
+        assertEquals(4, taskManager.getTaskCount());
+        assertEquals("Second", taskManager.getTask(1).getTitle());
+        assertEquals("Third", taskManager.getTask(2).getTitle());
+        assertEquals(secondId, taskManager.getTaskId(1));
+        assertFalse(taskManager.getTask(0).isCompleted());
+
+        assertTrue(taskManager.redo());
+        assertEquals(2, taskManager.getTaskCount());
+        assertTrue(taskManager.undo());
+        assertTrue(taskManager.canRedo());
+        taskManager.updateTaskById(secondId, task("Renamed"));
+        assertFalse(taskManager.canRedo()); //a new change drops the undone one
+        assertTrue(taskManager.undo());
+        assertTrue(taskManager.saveTasks());
+
+        TaskManager reloaded = new TaskManager(true, TaskManager.Storage.HEAP, filePath);
+        assertTrue(reloaded.loadTasks());
+        assertEquals(List.of("First", "Second", "Third", "Fourth"), reloaded.getAllTasks().stream().map(Task::getTitle).toList());
+        assertFalse(reloaded.canUndo()); //the history does not outlive the manager
+    }
+
+
+    //test cases for off-heap storage
+    @Test
+    void offHeapStoreKeepsTaskContents(){
+        TaskManager taskManager = new TaskManager(false, TaskManager.Storage.OFF_HEAP);
+        taskManager.addTask(new Task("Report", "Quarterly numbers", "2025-10-11", "WORK", "High", false));
+        taskManager.addTask(new Task("Caf\u00e9", null, "No Date", "ERRANDS", "Low", false));
+        taskManager.addTask(task("Third"));
+        long id = taskManager.getTaskId(0);
+
+        assertTrue(taskManager.markTaskAsCompletedById(id));
+        assertTrue(taskManager.deleteTask(2));
+        Task report = taskManager.getTaskById(id);
+        assertEquals("Quarterly numbers", report.getDescription());
+        assertEquals("2025-10-11", report.getDueDate());
+        assertEquals(TaskPriority.HIGH, report.getTaskPriority());
+        assertTrue(report.isCompleted());
+
+        Task cafe = taskManager.getTask(1);
+        assertEquals("Caf\u00e9", cafe.getTitle());
+        assertNull(cafe.getDescription());
+        assertEquals("No Date", cafe.getDueDate());
+        assertEquals(1, taskManager.findTasks(new TaskQuery().category(TaskCategory.WORK).completed(true)).size());
+    }
+
+    @Test
+    void offHeapStoreSurvivesUpdatesAndReload(@TempDir Path directory){
+        String filePath = directory.resolve("todolist.txt").toString();
+        TaskManager taskManager = new TaskManager(false, TaskManager.Storage.OFF_HEAP, filePath);
+        taskManager.addTask(task("First"));
+        long id = taskManager.getTaskId(0);
+        String description = "x".repeat(1000);
+        for (int i = 0; i < 200; i++) { //leaves more replaced text behind than the arena holds, so it is compacted
+            assertTrue(taskManager.updateTaskById(id, new Task("Version " + i, description, "2025-10-10", "WORK", "Low", false)));
+        }
+        assertTrue(taskManager.saveTasks());
+
+        TaskManager reloaded = new TaskManager(false, TaskManager.Storage.OFF_HEAP, filePath);
+        assertTrue(reloaded.loadTasks());
+        assertEquals(1, reloaded.getTaskCount());
+        assertEquals("Version 199", reloaded.getTask(0).getTitle());
+        assertEquals(description, reloaded.getTask(0).getDescription());
+    }
+
+
+    //test cases for sorted views
+    @Test
+    void sortedViewFollowsChanges(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(new Task("Later", "Description", "2025-03-01", "WORK", "Low", false));
+        taskManager.addTask(new Task("Sooner", "Description", "2025-01-01", "WORK", "High", false));
+        TaskView byDueDate = TaskView.sortedBy(TaskView.SortKey.DUE_DATE, true);
+        assertEquals("Sooner", taskManager.getViewTask(byDueDate, 0).getTitle());
+
+        taskManager.addTask(new Task("Soonest", "Description", "2024-12-31", "WORK", "Low", false));
+        assertEquals("Soonest", taskManager.getViewTask(byDueDate, 0).getTitle());
+        assertEquals("Soonest", taskManager.getViewTask(TaskView.sortedBy(TaskView.SortKey.DUE_DATE, false), 2).getTitle());
+        long laterId = taskManager.getTaskId(0);
+        assertEquals(2, taskManager.viewRowOfTask(byDueDate, laterId));
+
+        TaskView pending = TaskView.withStatus(false);
+        assertEquals(3, taskManager.getViewSize(pending));
+        assertTrue(taskManager.markTaskAsCompletedById(laterId));
+        assertEquals(2, taskManager.getViewSize(pending));
+        assertEquals(-1, taskManager.viewRowOfTask(pending, laterId));
+        assertEquals(laterId, taskManager.getViewTaskId(TaskView.withStatus(true), 0));
+
+        assertTrue(taskManager.deleteTaskById(laterId));
+        assertEquals(2, taskManager.getViewSize(byDueDate));
+        assertEquals(1, taskManager.getViewSize(TaskView.withPriority(TaskPriority.HIGH)));
+    }
+
+    @Test
+    void sortedViewMatchesFullSort(){
+        TaskManager taskManager = new TaskManager();
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String dueDate = String.format("2025-%02d-%02d", random.nextInt(12) + 1, random.nextInt(28) + 1);
+            taskManager.addTask(new Task("Task " + i, "Description", dueDate, "WORK", "Low", false));
+        }
+        TaskView byDueDate = TaskView.sortedBy(TaskView.SortKey.DUE_DATE, true);
+        taskManager.getViewSize(byDueDate); //orders the tasks before the changes below
+        for (int i = 0; i < 500; i++) {
+            long id = taskManager.getTaskId(random.nextInt(taskManager.getTaskCount()));
+            String dueDate = String.format("2026-%02d-%02d", random.nextInt(12) + 1, random.nextInt(28) + 1);
+            switch (random.nextInt(3)) {
+                case 0 -> taskManager.deleteTaskById(id);
+                case 1 -> taskManager.updateTaskById(id, new Task("Moved", "Description", dueDate, "WORK", "Low", false));
+                default -> taskManager.addTask(new Task("New", "Description", dueDate, "WORK", "Low", false));
+            }
+        }
+
+        List<String> expected = taskManager.getAllTasks().stream().map(Task::getDueDate).sorted().toList();
+        assertEquals(expected.size(), taskManager.getViewSize(byDueDate));
+        for (int row = 0; row < expected.size(); row++) {
+            Task task = taskManager.getViewTask(byDueDate, row);
+            assertEquals(expected.get(row), task.getDueDate());
+            assertEquals(row, taskManager.viewRowOfTask(byDueDate, task.getId()));
+        }
+    }
+
+
+    //test cases for snapshots
+    @Test
+    void snapshotsFollowChangesAndNeverChange(){
+        TaskManager taskManager = new TaskManager();
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            taskManager.addTask(task("Task " + i));
+        }
+        TaskSnapshot first = taskManager.snapshot();
+        List<Task> firstTasks = new ArrayList<>(first);
+
+        for (int i = 0; i < 2000; i++) {
+            long id = taskManager.getTaskId(random.nextInt(taskManager.getTaskCount()));
+            switch (random.nextInt(6)) {
+                case 0 -> taskManager.deleteTaskById(id);
+                case 1 -> taskManager.updateTaskById(id, task("Edited " + i));
+                case 2 -> taskManager.markTaskAsCompletedById(id);
+                case 3 -> taskManager.addTask(task("New " + i));
+                case 4 -> taskManager.applyBatch(new TaskBatch().delete(id).add(task("Batched " + i)));
+                default -> taskManager.undo(); //puts deleted tasks back in the middle of the list
+            }
+            if (i % 2 == 0) {
+                taskManager.snapshot(); //keeps the snapshots following the changes
+            }
+        }
+
+        TaskSnapshot last = taskManager.snapshot();
+        assertEquals(taskManager.getTaskCount(), last.size());
+        int row = 0;
+        for (Task task : last) {
+            assertSame(taskManager.getTask(row), task);
+            assertEquals(row, last.rowOf(task.getId()));
+            assertSame(task, last.getById(task.getId()));
+            row++;
+        }
+        assertEquals(firstTasks, first); //the first snapshot still shows the list as it was
+        assertSame(last, taskManager.snapshot()); //no change, no new snapshot
+    }
+
+    @Test
+    void snapshotsOfOffHeapTasksAreNotKept(@TempDir Path directory){
+        TaskManager taskManager = new TaskManager(false, TaskManager.Storage.OFF_HEAP, directory.resolve("todolist.txt").toString());
+        taskManager.addTask(task("Task 0"));
+        TaskSnapshot first = taskManager.snapshot();
+        assertNotSame(first, taskManager.snapshot()); //made from the store on every call
+        taskManager.addTask(task("Task 1"));
+        assertEquals(1, first.size());
+        assertEquals(2, taskManager.snapshot().size());
+        taskManager.close();
+    }
+
+    @Test
+    void tasksDeletedFromTheBottomUpAreUndoneInPlace(){
+        TaskManager taskManager = new TaskManager();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            taskManager.addTask(task("Task " + i));
+            ids.add(taskManager.getTaskId(i));
+        }
+        int deleted = 0;
+        for (int i = 8; i >= 1; i -= 1 + i % 2) {
+            assertTrue(taskManager.deleteTaskById(ids.get(i))); //the deleted rows are not squeezed out in between
+            deleted++;
+        }
+        for (int i = 0; i < deleted; i++) {
+            assertTrue(taskManager.undo()); //each task goes back in front of the task that followed it
+        }
+
+        assertEquals(10, taskManager.getTaskCount());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Task " + i, taskManager.getTask(i).getTitle());
+        }
+    }
+
+    @Test
+    void snapshotKeepsOrderWhenManyTasksArePutBackInOnePlace(){
+        TaskManager taskManager = new TaskManager();
+        for (int i = 0; i <= 41; i++) {
+            taskManager.addTask(task("Task " + i));
+        }
+        taskManager.snapshot();
+        for (int row = 40; row >= 1; row--) {
+            taskManager.deleteTask(row); //every task is deleted in front of the last one
+        }
+        for (int i = 0; i < 40; i++) {
+            assertTrue(taskManager.undo()); //each goes back between the previous one and the last task
+        }
+
+        List<String> titles = taskManager.snapshot().stream().map(Task::getTitle).toList();
+        assertEquals(42, titles.size());
+        for (int i = 0; i <= 41; i++) {
+            assertEquals("Task " + i, titles.get(i));
+        }
+    }
+
+
+    //test cases for reminders
+    @Test
+    void remindersFollowTaskChanges(){
+        TestClock clock = new TestClock(LocalDate.of(2025, 10, 1));
+        ReminderScheduler reminders = new ReminderScheduler(due -> {}, clock, 1);
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("Existing"));
+        reminders.follow(taskManager);
+        taskManager.addTask(new Task("Soon", "Description", "2025-10-02", "WORK", "Low", false));
+        taskManager.addTask(new Task("Done", "Description", "2025-10-02", "WORK", "Low", false));
+        taskManager.addTask(new Task("No date", "Description", "No Date", "WORK", "Low", false));
+        long existingId = taskManager.getTaskId(0);
+        long soonId = taskManager.getTaskId(1);
+        taskManager.markTaskAsCompletedById(taskManager.getTaskId(2));
+        assertEquals(2, reminders.size());
+
+        List<ReminderScheduler.Reminder> due = reminders.fireDue();
+        assertEquals(List.of(new ReminderScheduler.Reminder(soonId, (int) LocalDate.of(2025, 10, 2).toEpochDay(), ReminderScheduler.Kind.DUE_SOON)), due);
+        assertTrue(reminders.fireDue().isEmpty());
+
+        clock.advanceDays(2);
+        due = reminders.fireDue();
+        assertEquals(1, due.size());
+        assertEquals(ReminderScheduler.Kind.OVERDUE, due.get(0).kind());
+        assertEquals(1, reminders.size()); //only the existing task is left
+
+        taskManager.updateTaskById(soonId, new Task("Renamed", "Description", "2025-10-02", "WORK", "Low", false));
+        taskManager.markTaskAsCompletedById(soonId);
+        assertTrue(taskManager.undo());
+        assertTrue(reminders.fireDue().isEmpty()); //still overdue, but already reminded of it
+        taskManager.updateTaskById(soonId, new Task("Renamed", "Description", "2025-09-30", "WORK", "Low", false));
+        assertEquals(ReminderScheduler.Kind.OVERDUE, reminders.fireDue().get(0).kind()); //a new due date that passed as well
+        taskManager.deleteTaskById(soonId);
+
+        taskManager.updateTaskById(existingId, new Task("Moved", "Description", "2025-12-24", "WORK", "Low", false));
+        clock.advanceDays(10);
+        assertTrue(reminders.fireDue().isEmpty());
+        taskManager.deleteTaskById(existingId);
+        assertEquals(0, reminders.size());
+    }
+
+
+    //test cases for change events
+    @Test
+    void batchArrivesAsOneListOfEvents(){
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(task("First"));
+        long firstId = taskManager.getTaskId(0);
+        List<List<TaskEvent>> received = new ArrayList<>();
+        taskManager.getEventBus().subscribe(received::add, TaskEventBus.DIRECT);
+
+        taskManager.addTask(task("Second"));
+        long secondId = taskManager.getTaskId(1);
+        taskManager.applyBatch(new TaskBatch().complete(firstId).delete(secondId));
+
+        assertEquals(2, received.size());
+        assertEquals(TaskEvent.Kind.ADDED, received.get(0).get(0).kind());
+        assertEquals("Second", received.get(0).get(0).task().getTitle());
+        assertEquals(List.of(TaskEvent.Kind.COMPLETED, TaskEvent.Kind.DELETED), received.get(1).stream().map(TaskEvent::kind).toList());
+        assertTrue(received.get(1).get(0).task().isCompleted());
+        assertEquals(secondId, received.get(1).get(1).taskId());
+    }
+
+    @Test
+    void slowListenerGetsResetInsteadOfBacklog(){
+        TaskManager taskManager = new TaskManager();
+        List<Runnable> deliveries = new ArrayList<>();
+        List<List<TaskEvent>> received = new ArrayList<>();
+        taskManager.getEventBus().subscribe(received::add, deliveries::add, 3);
+
+        for (int i = 0; i < 5; i++) {
+            taskManager.addTask(task("Task " + i));
+        }
+        assertEquals(1, deliveries.size()); //one delivery is scheduled however many events wait
+        deliveries.get(0).run();
+        assertEquals(List.of(List.of(TaskEvent.reset())), received);
+    }
+
+
+    //test cases for metrics
+    @Test
+    void metricsRecordOperationsAndSaves(@TempDir Path dir) throws Exception {
+        TaskManager taskManager = new TaskManager(false, TaskManager.Storage.HEAP, dir.resolve("tasks.bin").toString());
+        for (int i = 0; i < 100; i++) {
+            taskManager.addTask(task("Task " + i));
+        }
+        taskManager.markTaskAsCompleted(0);
+        assertTrue(taskManager.saveTasks());
+
+        TaskMetrics metrics = taskManager.getMetrics();
+        assertEquals(100, metrics.getAddLatency().getCount());
+        assertEquals(1, metrics.getCompleteLatency().getCount());
+        assertTrue(metrics.getAddLatency().getP50Nanos() <= metrics.getAddLatency().getP99Nanos());
+        assertTrue(metrics.getAddLatency().getP99Nanos() <= metrics.getAddLatency().getMaxNanos());
+        assertTrue(metrics.getLastSaveBytes() > 0);
+        assertTrue(metrics.getJson().contains("\"taskCount\":100"));
+
+        metrics.registerMBean();
+        CompositeData add = (CompositeData) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName("todo:type=TaskMetrics"), "AddLatency");
+        assertEquals(100L, add.get("count"));
+    }
+
+
+    //test cases for crash recovery
+    @Test
+    void damagedSnapshotFallsBackToPreviousGeneration(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("todolist.txt");
+        TaskManager taskManager = new TaskManager(false, TaskManager.Storage.HEAP, file.toString());
+        taskManager.addTask(task("First"));
+        assertTrue(taskManager.saveTasks());
+        taskManager.addTask(task("Second"));
+        assertTrue(taskManager.saveTasks());
+        assertFalse(Files.exists(dir.resolve("todolist.txt.tmp")));
+
+        TaskManager reloaded = new TaskManager(false, TaskManager.Storage.MAPPED, file.toString());
+        assertTrue(reloaded.loadTasks());
+        assertEquals(2, reloaded.getTaskCount());
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x10; //a flipped bit inside a record
+        Files.write(file, bytes);
+        TaskManager recovered = new TaskManager(false, TaskManager.Storage.HEAP, file.toString());
+        assertTrue(recovered.loadTasks());
+        assertEquals(1, recovered.getTaskCount());
+        assertEquals("First", recovered.getTask(0).getTitle());
+        assertTrue(Files.exists(dir.resolve("todolist.txt.damaged")));
+    }
+
+    @Test
+    void damagedRecordLengthFallsBackToPreviousGeneration(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("todolist.txt");
+        TaskManager taskManager = new TaskManager(false, TaskManager.Storage.HEAP, file.toString());
+        taskManager.addTask(task("First"));
+        assertTrue(taskManager.saveTasks());
+        taskManager.addTask(task("Second"));
+        assertTrue(taskManager.saveTasks());
+
+        byte[] bytes = Files.readAllBytes(file);
+        for (int i = 33; i < 37; i++) {
+            bytes[i] = (byte) 0xFF; //the length prefix of the first record, after the 33-byte header, now reads as -1
+        }
+        bytes[37] = 0x0F;
+        Files.write(file, bytes);
+        TaskManager recovered = new TaskManager(false, TaskManager.Storage.HEAP, file.toString());
+        assertTrue(recovered.loadTasks());
+        assertEquals(1, recovered.getTaskCount());
+        assertTrue(Files.exists(dir.resolve("todolist.txt.damaged")));
+    }
+
+    //test cases for synchronization
+    private static TaskManager loaded(Path file) {
+        TaskManager taskManager = new TaskManager(false, TaskManager.Storage.HEAP, file.toString());
+        taskManager.loadTasks();
+        return taskManager;
+    }
+
+    @Test
+    void concurrentChangesConvergeOnBothReplicas(@TempDir Path dir) throws Exception {
+        TaskManager first = loaded(dir.resolve("a"));
+        first.addTask(task("Shared"));
+        first.addTask(task("Doomed"));
+        assertTrue(first.saveTasks());
+        Files.copy(dir.resolve("a"), dir.resolve("b")); //both replicas start from the same file
+        TaskManager second = loaded(dir.resolve("b"));
+        TaskSync a = new TaskSync(first, dir.resolve("a.sync"));
+        TaskSync b = new TaskSync(second, dir.resolve("b.sync"));
+
+        assertEquals(0, b.merge(a.changesSince(b.getVersionVector())).conflicts()); //the same starting point
+        assertEquals(0, a.merge(b.changesSince(a.getVersionVector())).received());
+
+        first.updateTaskById(first.getTaskId(1), task("Edited"));
+        first.updateTaskById(first.getTaskId(0), task("Renamed")); //later than the completion, so the title wins
+        first.addTask(task("Only on a"));
+        second.markTaskAsCompleted(0); //completed on b while renamed on a
+        second.deleteTask(1); //deleted on b while edited on a
+
+        assertEquals(2, b.merge(a.changesSince(b.getVersionVector())).conflicts());
+        a.merge(b.changesSince(a.getVersionVector()));
+        b.merge(a.changesSince(b.getVersionVector()));
+
+        for (TaskManager replica : List.of(first, second)) {
+            assertEquals(2, replica.getTaskCount());
+            assertEquals("Renamed", replica.getTask(0).getTitle());
+            assertTrue(replica.getTask(0).isCompleted());
+            assertEquals("Only on a", replica.getTask(1).getTitle());
+        }
+        assertEquals(0, a.changesSince(b.getVersionVector()).size()); //nothing left to send either way
+        assertEquals(0, b.changesSince(a.getVersionVector()).size());
+
+        Files.delete(dir.resolve("a"));
+        a.merge(b.changesSince(a.getVersionVector()));
+        assertFalse(Files.exists(dir.resolve("a"))); //a merge that changed nothing does not save the tasks again
+    }
+
+    @Test
+    void replicasExchangeOnlyChangesOverSocketAfterRestart(@TempDir Path dir) throws Exception {
+        TaskManager first = loaded(dir.resolve("a"));
+        for (int i = 0; i < 100; i++) {
+            first.addTask(task("Task " + i));
+        }
+        assertTrue(first.saveTasks());
+        TaskSync a = new TaskSync(first, dir.resolve("a.sync"));
+        TaskSync b = new TaskSync(loaded(dir.resolve("b")), dir.resolve("b.sync"));
+        Path file = dir.resolve("a-to-b.delta");
+        a.exportChanges(file, b.getReplicaId());
+        assertEquals(100, b.importChanges(file).received());
+
+        first.markTaskAsCompleted(5);
+        assertTrue(first.saveTasks());
+        //both replicas restart from their files
+        TaskSync restartedA = new TaskSync(loaded(dir.resolve("a")), dir.resolve("a.sync"));
+        TaskManager second = loaded(dir.resolve("b"));
+        TaskSync restartedB = new TaskSync(second, dir.resolve("b.sync"));
+        second.addTask(task("Added on b"));
+
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            CompletableFuture<TaskSync.Result> answer = CompletableFuture.supplyAsync(() -> {
+                try (Socket socket = server.accept()) {
+                    return restartedA.sync(socket, false);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            TaskSync.Result started;
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+                started = restartedB.sync(socket, true);
+            }
+            assertEquals(new TaskSync.Result(1, 1, 0), started); //the completion in, the new task out
+            assertEquals(new TaskSync.Result(1, 1, 0), answer.get());
+        }
+        assertEquals(101, second.getTaskCount());
+        assertTrue(second.getTask(5).isCompleted());
+        assertEquals("Added on b", loaded(dir.resolve("a")).getTask(100).getTitle());
+    }
+
+    //test cases for workspaces
+    @Test
+    void workspaceLoadsListsLazilyAndUnloadsLeastRecentlyUsed(@TempDir Path dir) throws Exception {
+        //the budget holds about two lists of ten tasks
+        try (TaskWorkspace workspace = new TaskWorkspace(dir, false, TaskManager.Storage.HEAP, 6_000, 0)) {
+            for (String name : List.of("alpha", "beta", "gamma")) {
+                workspace.withList(name, taskManager -> {
+                    for (int i = 0; i < 10; i++) {
+                        taskManager.addTask(task(name + " " + i));
+                    }
+                    return null;
+                });
+            }
+            assertEquals(2, workspace.getLoadedCount()); //alpha was saved and unloaded
+            assertEquals(List.of("alpha", "beta", "gamma"), workspace.getListNames());
+
+            try (TaskWorkspace.Lease alpha = workspace.open("alpha")) {
+                assertEquals(10, alpha.getTaskManager().getTaskCount());
+                assertEquals("alpha 0", alpha.getTaskManager().getTask(0).getTitle());
+                workspace.withList("delta", taskManager -> taskManager.addTask(task("delta")));
+                assertNotNull(alpha.getTaskManager()); //open lists are never unloaded
+            }
+            assertThrows(IllegalArgumentException.class, () -> workspace.open("../escape"));
+        }
+
+        try (TaskWorkspace reopened = new TaskWorkspace(dir, false, TaskManager.Storage.HEAP, 6_000, 0)) {
+            assertEquals(10, reopened.withList("gamma", TaskManager::getTaskCount));
+            assertEquals(1, reopened.getLoadedCount());
+        }
+    }
+}
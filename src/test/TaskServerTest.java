@@ -0,0 +1,77 @@
+package test;
+
+import Controller.TaskManager;
+import Controller.TaskServer;
+import Model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskServerTest {
+
+    @Test
+    void addListCompleteAndDeleteOverHttp() throws IOException, InterruptedException {
+        TaskManager taskManager = new TaskManager();
+        TaskServer server = new TaskServer(taskManager, 0);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + server.getPort() + "/tasks";
+
+            HttpResponse<String> added = send(client, HttpRequest.newBuilder(URI.create(base)).POST(HttpRequest.BodyPublishers.ofString(
+                    "{\"title\":\"Pay \\\"rent\\\"\",\"dueDate\":\"2025-07-01\",\"priority\":\"high\",\"category\":\"finance\"}")));
+            assertEquals(201, added.statusCode());
+            long id = taskManager.getTask(0).getId();
+            assertTrue(added.body().startsWith("{\"id\":" + id + ",\"title\":\"Pay \\\"rent\\\"\""));
+
+            HttpResponse<String> rejected = send(client, HttpRequest.newBuilder(URI.create(base)).POST(HttpRequest.BodyPublishers.ofString(
+                    "{\"title\":\"Run\",\"dueDate\":\"2025-02-30\",\"priority\":\"low\",\"category\":\"fitness\"}")));
+            assertEquals(400, rejected.statusCode());
+            assertTrue(rejected.body().startsWith("{\"error\":\"Due date"));
+
+            HttpResponse<String> list = send(client, HttpRequest.newBuilder(URI.create(base + "?category=finance&completed=false")));
+            assertTrue(list.body().startsWith("{\"total\":1,"));
+
+            assertEquals(200, send(client, HttpRequest.newBuilder(URI.create(base + "/" + id + "/complete"))
+                    .POST(HttpRequest.BodyPublishers.noBody())).statusCode());
+            assertTrue(taskManager.getTask(0).isCompleted());
+
+            assertEquals(204, send(client, HttpRequest.newBuilder(URI.create(base + "/" + id)).DELETE()).statusCode());
+            assertEquals(404, send(client, HttpRequest.newBuilder(URI.create(base + "/" + id))).statusCode());
+            assertEquals(0, taskManager.getTaskCount());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void pageBeyondTheEndIsEmpty() throws IOException, InterruptedException {
+        TaskManager taskManager = new TaskManager();
+        taskManager.addTask(new Task("Pay rent", "Description", "2025-07-01", "FINANCE", "High", false));
+        TaskServer server = new TaskServer(taskManager, 0);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + server.getPort() + "/tasks";
+
+            for (String query : new String[]{"", "&category=finance", "&search=rent"}) {
+                HttpResponse<String> page = send(client, HttpRequest.newBuilder(URI.create(base
+                        + "?offset=2147483600&limit=100" + query)));
+                assertEquals(200, page.statusCode());
+                assertEquals("{\"total\":1,\"offset\":2147483600,\"tasks\":[]}", page.body());
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static HttpResponse<String> send(HttpClient client, HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -1,61 +1,131 @@
 package test;
 
+import Controller.TaskManager;
 import Controller.ToDoAppController;
 import Model.TaskCategory;
+import View.TaskListView;
+import View.TaskTableModel;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ToDoAppControllerTest {
+    @TempDir
+    Path directory; //holds the task file, so the tests start from an empty list and leave no tasks behind
+    private final RecordingView view = new RecordingView();
+
+    /**
+     * View without a window that keeps the errors it is shown
+     */
+    private static final class RecordingView implements TaskListView {
+        private final TaskTableModel tableModel = new TaskTableModel();
+        private final List<String> errors = new ArrayList<>();
+        private Runnable closeAction = () -> { };
+
+        @Override
+        public TaskTableModel getTableModel() {
+            return tableModel;
+        }
+
+        @Override
+        public void bind(ToDoAppController controller) {
+        }
+
+        @Override
+        public void onClose(Runnable action) {
+            closeAction = action;
+        }
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public void showError(String message) {
+            errors.add(message);
+        }
+
+        @Override
+        public void showMessage(String message, int messageType) {
+        }
+
+        @Override
+        public void showUndoState(boolean canUndo, boolean canRedo) {
+        }
+
+        @Override
+        public void showSortColumn(int column, boolean ascending) {
+        }
+
+        @Override
+        public void showReminder(String message, String details) {
+        }
+    }
+
+    private ToDoAppController controller() {
+        return new ToDoAppController(new TaskManager(false, TaskManager.Storage.HEAP, directory.resolve("todolist.txt").toString()), view);
+    }
+
+    @AfterEach
+    void closeView() {
+        view.closeAction.run(); //the save is written before the directory is removed
+    }
 
 
     //test cases for the add method
     @Test
     void addValidTask(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         boolean result = toDoAppController.addTask("Title", "Description", "2025-10-10" ,TaskCategory.ERRANDS, "low");
         assertTrue(result);
     }
 
     @Test
     void addNullTask(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         boolean result = toDoAppController.addTask(null, null, null, null, null);
         assertFalse(result);
     }
 
     @Test
     void addTaskWithNullTitle(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         boolean result = toDoAppController.addTask(null, "Description", "2025-10-10" ,TaskCategory.ERRANDS, "low");
         assertFalse(result);
     }
 
     @Test
     void addTaskWithEmptyTitle(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         boolean result = toDoAppController.addTask("", "Description", "2025-10-10" ,TaskCategory.ERRANDS, "low");
         assertFalse(result);
     }
 
     @Test
     void addTaskWithInvalidDueDate(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         boolean result = toDoAppController.addTask("Title", "Description", "20251010" ,TaskCategory.ERRANDS, "low");
         assertFalse(result);
     }
 
     @Test
     void addTaskWithNullCategory(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         boolean result = toDoAppController.addTask("Task title", "Description", "2025-10-10" , null, "low");
         assertFalse(result);
     }
 
     @Test
     void addTaskWithInvalidPriority(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         boolean result = toDoAppController.addTask("Task title", "Description", "2025-10-10" , TaskCategory.ERRANDS, "priority");
         assertFalse(result);
     }
@@ -65,7 +135,7 @@ public class ToDoAppControllerTest {
     //test cases for the delete method
     @Test
     void deleteWithValidIndex(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         toDoAppController.addTask("Title", "Description", "2025-10-10" ,TaskCategory.ERRANDS, "low");
         boolean result = toDoAppController.deleteTask(0);
         assertTrue(result);
@@ -73,15 +143,16 @@ public class ToDoAppControllerTest {
 
     @Test
     void deleteWithIndexOutOfBounds(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         toDoAppController.addTask("Title", "Description", "2025-10-10" ,TaskCategory.ERRANDS, "low");
         boolean result = toDoAppController.deleteTask(55);
         assertFalse(result);
+        assertEquals("Please select a valid task!", view.errors.get(view.errors.size() - 1));
     }
 
     @Test
     void deleteWithNegativeIndex(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         toDoAppController.addTask("Title", "Description", "2025-10-10" ,TaskCategory.ERRANDS, "low");
         boolean result = toDoAppController.deleteTask(-1);
         assertFalse(result);
@@ -92,7 +163,7 @@ public class ToDoAppControllerTest {
     //test cases for the markTaskAsCompleted method
     @Test
     void markTaskAsCompletedWithValidIndex(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         toDoAppController.addTask("Title", "Description", "2025-10-10" ,TaskCategory.ERRANDS, "low");
         boolean result = toDoAppController.markTaskAsCompleted(0);
         assertTrue(result);
@@ -100,7 +171,7 @@ public class ToDoAppControllerTest {
 
     @Test
     void markTaskAsCompletedWithNegativeIndex(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         toDoAppController.addTask("Title", "Description", "2025-10-10" ,TaskCategory.ERRANDS, "low");
         boolean result = toDoAppController.markTaskAsCompleted(-1);
         assertFalse(result);
@@ -108,7 +179,7 @@ public class ToDoAppControllerTest {
 
     @Test
     void markTaskAsCompletedWithOutOfBoundsIndex(){
-        ToDoAppController toDoAppController = new ToDoAppController();
+        ToDoAppController toDoAppController = controller();
         toDoAppController.addTask("Title", "Description", "2025-10-10" ,TaskCategory.ERRANDS, "low");
         boolean result = toDoAppController.markTaskAsCompleted(55);
         assertFalse(result);